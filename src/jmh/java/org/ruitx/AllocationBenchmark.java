@@ -0,0 +1,139 @@
+package org.ruitx;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One generation step per operation, stepping back and forth between two grids
+ * ({@code Conways.nextGeneration(gameGrid, spareGrid)}), for the backends that can.
+ * The {@code allocatedBytes} and {@code steps} counters are the bytes allocated by the
+ * benchmark thread and the steps it took in each iteration, so their ratio is the
+ * allocation per step alone; {@code -prof gc} also counts the harness threads, which shows
+ * up as hundreds of B/op when a step takes a millisecond.
+ * {@code main} runs it and fails if any backend allocates more than {@code MAX_BYTES_PER_OP}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class AllocationBenchmark {
+
+    /**
+     * Bytes per step allowed for "no allocation", warming up and the harness show a few.
+     */
+    static final double MAX_BYTES_PER_OP = 16;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Param({"BOXED", "BITPACKED", "HALO"})
+    public GridBackendEnum backend;
+
+    @Param({"SOUP", "GOSPER_GUN"})
+    public BenchmarkPattern pattern;
+
+    @Param({"64", "256"})
+    public int size;
+
+    private ParallelStepper sequentialStepper;
+    private Conways conways;
+    private Grid grid;
+    private Grid spareGrid;
+
+    @Setup(Level.Trial)
+    public void setUpStepper() {
+        // sequential stepping, parallel stripes are tasks allocated every step
+        this.sequentialStepper = new ParallelStepper(1, Integer.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownStepper() {
+        this.sequentialStepper.shutdown();
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        this.conways = new Conways(this.sequentialStepper);
+        this.grid = BenchmarkEngine.seed(this.backend, this.pattern, this.size, this.size);
+        this.spareGrid = this.conways.newSpareGrid(this.grid);
+    }
+
+    @Benchmark
+    public Grid nextGeneration(AllocationCounter counter) {
+        Grid next = this.conways.nextGeneration(this.grid, this.spareGrid);
+        this.spareGrid = this.grid;
+        this.grid = next;
+        counter.steps++;
+        return next;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(AllocationBenchmark.class.getSimpleName())
+                .build();
+        Collection<RunResult> results = new Runner(options).run();
+
+        StringBuilder failures = new StringBuilder();
+        for (RunResult result : results) {
+            Result<?> allocatedBytes = result.getSecondaryResults().get("allocatedBytes");
+            Result<?> steps = result.getSecondaryResults().get("steps");
+            double bytesPerStep = allocatedBytes.getScore() / Math.max(steps.getScore(), 1);
+            String line = String.format("%s %s %s: %.3f B/step%n", result.getParams().getParam("backend"),
+                                        result.getParams().getParam("pattern"),
+                                        result.getParams().getParam("size"), bytesPerStep);
+            System.out.print(line);
+            if (bytesPerStep > MAX_BYTES_PER_OP) {
+                failures.append(line);
+            }
+        }
+        if (failures.length() > 0) {
+            throw new IllegalStateException("Stepping allocates:\n" + failures);
+        }
+        System.out.println("All backends step without allocating (<= " + MAX_BYTES_PER_OP + " B/step)");
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class AllocationCounter {
+
+        public long allocatedBytes;
+        public long steps;
+        private long startBytes;
+
+        @Setup(Level.Iteration)
+        public void start() {
+            this.allocatedBytes = 0;
+            this.steps = 0;
+            this.startBytes = THREADS.getCurrentThreadAllocatedBytes();
+        }
+
+        @TearDown(Level.Iteration)
+        public void stop() {
+            this.allocatedBytes = THREADS.getCurrentThreadAllocatedBytes() - this.startBytes;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package org.ruitx;
+
+import java.util.function.UnaryOperator;
+
+/**
+ * Every engine variant, behind the same start/step calls so they run the same workloads.
+ */
+public enum BenchmarkEngine {
+    BOXED {
+        @Override
+        Run start(BenchmarkPattern pattern, int lengthY, int lengthX) {
+            Conways conways = new Conways();
+            return new GridRun(seed(GridBackendEnum.BOXED, pattern, lengthY, lengthX), conways::nextGeneration);
+        }
+    },
+    BITPACKED {
+        @Override
+        Run start(BenchmarkPattern pattern, int lengthY, int lengthX) {
+            return new GridRun(seed(GridBackendEnum.BITPACKED, pattern, lengthY, lengthX),
+                               grid -> ((BitGrid) grid).nextGeneration());
+        }
+    },
+    PARALLEL {
+        @Override
+        Run start(BenchmarkPattern pattern, int lengthY, int lengthX) {
+            return new GridRun(seed(GridBackendEnum.BITPACKED, pattern, lengthY, lengthX),
+                               grid -> Steppers.PARALLEL.nextGeneration((BitGrid) grid));
+        }
+    },
+    SPARSE {
+        @Override
+        Run start(BenchmarkPattern pattern, int lengthY, int lengthX) {
+            return new GridRun(seed(GridBackendEnum.SPARSE, pattern, lengthY, lengthX),
+                               grid -> ((SparseGrid) grid).nextGeneration());
+        }
+    },
+    TILED {
+        @Override
+        Run start(BenchmarkPattern pattern, int lengthY, int lengthX) {
+            return new GridRun(seed(GridBackendEnum.TILED, pattern, lengthY, lengthX),
+                               grid -> ((TiledGrid) grid).nextGeneration());
+        }
+    },
+    HALO {
+        @Override
+        Run start(BenchmarkPattern pattern, int lengthY, int lengthX) {
+            return new GridRun(seed(GridBackendEnum.HALO, pattern, lengthY, lengthX),
+                               grid -> ((HaloGrid) grid).nextGeneration(Rule.CONWAY, false));
+        }
+    },
+    HALO_VECTOR {
+        @Override
+        Run start(BenchmarkPattern pattern, int lengthY, int lengthX) {
+            if (HaloGrid.VECTOR_LANES == 0) {
+                throw new IllegalStateException("Vector API not enabled, run with --add-modules jdk.incubator.vector");
+            }
+            return new GridRun(seed(GridBackendEnum.HALO, pattern, lengthY, lengthX),
+                               grid -> ((HaloGrid) grid).nextGeneration(Rule.CONWAY, true));
+        }
+    },
+    OFFHEAP {
+        @Override
+        Run start(BenchmarkPattern pattern, int lengthY, int lengthX) {
+            return new GridRun(seed(GridBackendEnum.OFFHEAP, pattern, lengthY, lengthX),
+                               grid -> ((OffHeapGrid) grid).nextGeneration());
+        }
+    },
+    HASHLIFE {
+        @Override
+        Run start(BenchmarkPattern pattern, int lengthY, int lengthX) {
+            HashLife hashLife = new HashLife();
+            hashLife.loadGrid(seed(GridBackendEnum.BITPACKED, pattern, lengthY, lengthX));
+            return new Run() {
+                @Override
+                void step() {
+                    hashLife.advance(1);
+                }
+
+                @Override
+                Object current() {
+                    return hashLife.population();
+                }
+            };
+        }
+    };
+
+    abstract Run start(BenchmarkPattern pattern, int lengthY, int lengthX);
+
+    static Grid seed(GridBackendEnum backend, BenchmarkPattern pattern, int lengthY, int lengthX) {
+        Grid grid = backend.newGrid(lengthY, lengthX);
+        pattern.fill(grid);
+        return grid;
+    }
+
+    abstract static class Run {
+
+        abstract void step();
+
+        /**
+         * @return something depending on the current generation, for the blackhole {@code Object}
+         */
+        abstract Object current();
+    }
+
+    /**
+     * One parallel stepper for every run, its pool lives as long as the benchmark JVM.
+     */
+    private static final class Steppers {
+
+        private static final ParallelStepper PARALLEL =
+                new ParallelStepper(Runtime.getRuntime().availableProcessors(), 64, 0);
+    }
+
+    static final class GridRun extends Run {
+
+        private final UnaryOperator<Grid> stepper;
+        private Grid grid;
+
+        GridRun(Grid grid, UnaryOperator<Grid> stepper) {
+            this.grid = grid;
+            this.stepper = stepper;
+        }
+
+        @Override
+        void step() {
+            this.grid = this.stepper.apply(this.grid);
+        }
+
+        @Override
+        Object current() {
+            return this.grid;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package org.ruitx;
+
+/**
+ * Standard workloads every engine is benchmarked on.
+ * Patterns are placed in the center of the grid, the soup fills all of it.
+ */
+public enum BenchmarkPattern {
+    SOUP(new String[0]),
+    GOSPER_GUN(new String[]{
+            "........................*...........",
+            "......................*.*...........",
+            "............**......**............**",
+            "...........*...*....**............**",
+            "**........*.....*...**..............",
+            "**........*...*.**....*.*...........",
+            "..........*.....*.......*...........",
+            "...........*...*....................",
+            "............**......................"}),
+    R_PENTOMINO(new String[]{
+            ".**",
+            "**.",
+            ".*."}),
+    /**
+     * Acorns every 16 cells over the whole grid: a dense field of methuselahs.
+     */
+    ACORN_FIELD(new String[]{
+            ".*.....",
+            "...*...",
+            "**..***"});
+
+    private static final long SOUP_SEED = 42;
+    private static final double SOUP_DENSITY = 0.5;
+    private static final int FIELD_SPACING = 16;
+
+    private final String[] rows;
+
+    BenchmarkPattern(String[] rows) {
+        this.rows = rows;
+    }
+
+    public void fill(Grid grid) {
+        if (this == SOUP) {
+            SoupSearch.fillSoup(grid, SOUP_SEED, SOUP_DENSITY);
+        } else if (this == ACORN_FIELD) {
+            for (int y = 0; y + FIELD_SPACING <= grid.lengthY(); y += FIELD_SPACING) {
+                for (int x = 0; x + FIELD_SPACING <= grid.lengthX(); x += FIELD_SPACING) {
+                    this.place(grid, y + FIELD_SPACING / 2, x + FIELD_SPACING / 2);
+                }
+            }
+        } else {
+            this.place(grid, (grid.lengthY() - this.rows.length) / 2, (grid.lengthX() - this.rows[0].length()) / 2);
+        }
+    }
+
+    private void place(Grid grid, int top, int left) {
+        for (int y = 0; y < this.rows.length; y++) {
+            for (int x = 0; x < this.rows[y].length(); x++) {
+                if (this.rows[y].charAt(x) == '*' && top + y < grid.lengthY() && left + x < grid.lengthX()) {
+                    grid.setCoordinatesValueTo(top + y, left + x, true);
+                }
+            }
+        }
+    }
+}
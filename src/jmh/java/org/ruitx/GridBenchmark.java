@@ -0,0 +1,90 @@
+package org.ruitx;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Everything around the stepping: grid comparison, pattern loading and console printing,
+ * for each grid backend.
+ * Printing goes to a discarding stream, so this measures building the output, not the terminal.
+ */
+@BenchmarkMode({Mode.AverageTime, Mode.Throughput})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GridBenchmark {
+
+    private static final String MAPS_DIRECTORY = "src" + File.separator +
+                                                 "main" + File.separator +
+                                                 "java" + File.separator +
+                                                 "org" + File.separator +
+                                                 "ruitx" + File.separator +
+                                                 "maps" + File.separator;
+
+    @Param({"BOXED", "BITPACKED", "SPARSE", "TILED", "HALO"})
+    public GridBackendEnum backend;
+
+    @Param({"SOUP", "GOSPER_GUN"})
+    public BenchmarkPattern pattern;
+
+    private Conways conways;
+    private Grid grid;
+    private Grid sameGrid;
+    private Path mapFile;
+    private PrintStream standardOut;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        this.conways = new Conways();
+        this.conways.setGridBackend(this.backend);
+        this.grid = BenchmarkEngine.seed(this.backend, this.pattern, 30, 100);
+        this.sameGrid = BenchmarkEngine.seed(this.backend, this.pattern, 30, 100);
+        this.mapFile = Path.of(MAPS_DIRECTORY + "gosper_gun");
+
+        this.standardOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.setOut(this.standardOut);
+    }
+
+    /**
+     * Equal grids, the worst case: every cell is compared.
+     */
+    @Benchmark
+    public boolean compareGameGrid() {
+        return Conways.compareGameGrid(this.grid, this.sameGrid);
+    }
+
+    @Benchmark
+    public Grid readPattern() throws IOException {
+        return this.conways.readPattern(this.mapFile);
+    }
+
+    @Benchmark
+    public void printGrid() {
+        this.conways.printGrid(this.grid);
+    }
+}
@@ -0,0 +1,70 @@
+package org.ruitx;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One generation step per operation, for every engine, workload and grid size.
+ * Each measurement iteration restarts from generation 0 of the workload.
+ * The {@code cellGenerations} counter is normalized like the primary result, so in
+ * average time mode it reads as ns per cell-generation and in throughput mode as
+ * cell-generations per time unit.
+ * Forks run with the Vector API enabled, so {@code HALO} (scalar) and {@code HALO_VECTOR}
+ * compare the same grid on both kernels at the vector width of the machine.
+ */
+@BenchmarkMode({Mode.AverageTime, Mode.Throughput})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class SteppingBenchmark {
+
+    @Param({"BOXED", "BITPACKED", "PARALLEL", "SPARSE", "TILED", "HALO", "HALO_VECTOR", "OFFHEAP", "HASHLIFE"})
+    public BenchmarkEngine engine;
+
+    @Param({"SOUP", "GOSPER_GUN", "R_PENTOMINO", "ACORN_FIELD"})
+    public BenchmarkPattern pattern;
+
+    @Param({"64", "256", "1024"})
+    public int size;
+
+    private BenchmarkEngine.Run run;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        this.run = this.engine.start(this.pattern, this.size, this.size);
+    }
+
+    @Benchmark
+    public Object nextGeneration(CellCounter counter) {
+        this.run.step();
+        counter.cellGenerations += (long) this.size * this.size;
+        return this.run.current();
+    }
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class CellCounter {
+
+        public long cellGenerations;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            this.cellGenerations = 0;
+        }
+    }
+}
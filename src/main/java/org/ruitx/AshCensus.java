@@ -0,0 +1,562 @@
+package org.ruitx;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the objects that make up the ash of settled worlds: blocks, beehives, blinkers,
+ * gliders and so on, across any number of worlds and threads.
+ * The ash is stepped for one period of the world and the live cells of all those
+ * generations are joined, so an oscillator that falls apart in some phase (a beacon) is one
+ * piece; every group of joined cells touching each other, corners included, is an object.
+ * An object is keyed by its cells in the last generation: every cell adds a hashed term for
+ * its position from the top left corner, so the key doesn't depend on where the object is
+ * or the order of its cells, and the smallest key of the 8 rotations and reflections is
+ * the one that counts. The index maps the key of every phase of every object seen so far
+ * to the object, so most objects are one hash and one lookup. It starts with the common
+ * objects of Conway's rule; an object that isn't in it is simulated on its own once to find
+ * its period, and is added under an apgsearch style code: {@code xs} and its cells for
+ * still lifes, {@code xp} and the period for oscillators, {@code xq} for spaceships, then
+ * the smallest key of its phases. Pieces that don't repeat on their own are tried again
+ * joined with the ones within 2 cells (a pulsar's quarters never touch). Objects that still
+ * don't repeat on their own within {@code MAX_PERIOD} (constellations that only settle
+ * together, or ones kept alive by the edges of the world) are counted as {@code UNSTABLE};
+ * only the first {@code MAX_UNSTABLE_KEYS} of them are remembered.
+ * The world is taken as having no edges, objects that wrap around a torus are counted in pieces.
+ */
+public class AshCensus {
+
+    static final int MAX_PERIOD = 60;
+    /**
+     * Generations joined for worlds that didn't settle, so no period is known.
+     */
+    private static final int UNKNOWN_PERIOD_GENERATIONS = 2;
+    /**
+     * Unstable pieces remembered so they aren't simulated again, most are never seen twice.
+     */
+    private static final int MAX_UNSTABLE_KEYS = 1 << 14;
+
+    private static final String[][] KNOWN_OBJECTS = {
+            {"block", "OO", "OO"},
+            {"beehive", ".OO.", "O..O", ".OO."},
+            {"loaf", ".OO.", "O..O", ".O.O", "..O."},
+            {"boat", "OO.", "O.O", ".O."},
+            {"ship", "OO.", "O.O", ".OO"},
+            {"tub", ".O.", "O.O", ".O."},
+            {"pond", ".OO.", "O..O", "O..O", ".OO."},
+            {"long boat", "OO..", "O.O.", ".O.O", "..O."},
+            {"long ship", "OO..", "O.O.", ".O.O", "..OO"},
+            {"barge", ".O..", "O.O.", ".O.O", "..O."},
+            {"mango", ".OO..", "O..O.", ".O..O", "..OO."},
+            {"eater 1", "OO..", "O.O.", "..O.", "..OO"},
+            {"aircraft carrier", "OO..", "O..O", "..OO"},
+            {"snake", "OO.O", "O.OO"},
+            {"shillelagh", "OO...", "O..OO", ".OO.O"},
+            {"blinker", "OOO"},
+            {"toad", ".OOO", "OOO."},
+            {"beacon", "OO..", "OO..", "..OO", "..OO"},
+            {"pulsar", "..OOO...OOO..", ".............", "O....O.O....O", "O....O.O....O", "O....O.O....O",
+             "..OOO...OOO..", ".............", "..OOO...OOO..", "O....O.O....O", "O....O.O....O",
+             "O....O.O....O", ".............", "..OOO...OOO.."},
+            {"pentadecathlon", "..O....O..", "OO.OOOO.OO", "..O....O.."},
+            {"glider", ".O.", "..O", "OOO"},
+            {"lightweight spaceship", ".O..O", "O....", "O...O", "OOOO."},
+            {"middleweight spaceship", "...O..", ".O...O", "O.....", "O....O", "OOOOO."},
+            {"heavyweight spaceship", "...OO..", ".O....O", "O......", "O.....O", "OOOOOO."},
+    };
+
+    public static final ObjectKind UNSTABLE = new ObjectKind("unstable", "unstable", 0, 0, false);
+
+    private final Rule rule;
+    private final Map<Long, ObjectKind> index;
+    private final Set<Long> unstableKeys;
+    private final Map<String, ObjectKind> kindsByCode;
+    private final Map<ObjectKind, LongAdder> counts;
+    private final LongAdder worlds;
+
+    /**
+     * @param rule the ash was simulated with, only Conway's starts with known objects {@code Rule}
+     */
+    public AshCensus(Rule rule) {
+        this.rule = rule;
+        this.index = new ConcurrentHashMap<>();
+        this.unstableKeys = ConcurrentHashMap.newKeySet();
+        this.kindsByCode = new ConcurrentHashMap<>();
+        this.counts = new ConcurrentHashMap<>();
+        this.worlds = new LongAdder();
+        if (rule.isConway()) {
+            this.index.putAll(ConwayIndex.INDEX);
+            for (ObjectKind kind : ConwayIndex.INDEX.values()) {
+                this.kindsByCode.put(kind.code(), kind);
+            }
+        }
+    }
+
+    /**
+     * Splits the ash of a world into objects, classifies and counts them. Safe to call from many threads.
+     *
+     * @param ash    last generation of the world {@code Grid}
+     * @param period of the world, 0 if it didn't settle {@code int}
+     * @return the world's objects {@code List<ObjectKind>}
+     */
+    public List<ObjectKind> add(Grid ash, int period) {
+        this.worlds.increment();
+        int[] bounds = {Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE};
+        ash.forEachLiveCell((y, x, isAlive) -> {
+            bounds[0] = Math.min(bounds[0], y);
+            bounds[1] = Math.min(bounds[1], x);
+            bounds[2] = Math.max(bounds[2], y);
+            bounds[3] = Math.max(bounds[3], x);
+        });
+        if (bounds[2] < bounds[0]) {
+            return List.of();
+        }
+
+        // room for the phases to grow, spaceships move at most half a cell per generation
+        int generations = period > 0 ? Math.min(period, MAX_PERIOD) : UNKNOWN_PERIOD_GENERATIONS;
+        int margin = 2 + (generations + 1) / 2;
+        int originY = bounds[0] - margin;
+        int originX = bounds[1] - margin;
+        int lengthY = bounds[2] - bounds[0] + 1 + 2 * margin;
+        int lengthX = bounds[3] - bounds[1] + 1 + 2 * margin;
+        BitGrid world = new BitGrid(lengthY, lengthX);
+        ash.forEachLiveCell((y, x, isAlive) -> world.setCoordinatesValueTo(y - originY, x - originX, true));
+        BitGrid union = this.union(world, generations);
+
+        // pieces: cells of the union touching each other
+        Pieces pieces = new Pieces(world, union);
+        BitGrid seen = new BitGrid(lengthY, lengthX);
+        List<ObjectKind> kinds = new ArrayList<>();
+        List<Integer> starts = new ArrayList<>();
+        CellList cells = new CellList();
+        boolean isUnstableFound = false;
+        for (int y = 0; y < lengthY; y++) {
+            for (int x = 0; x < lengthX; x++) {
+                if (union.checkCoordinates(y, x) && !seen.checkCoordinates(y, x)) {
+                    cells.clear();
+                    pieces.fill(y, x, 1, seen, cells, kinds.size() + 1, null);
+                    ObjectKind kind = cells.size > 0 ? this.classify(cells) : null;
+                    kinds.add(kind);
+                    starts.add(y * lengthX + x);
+                    isUnstableFound |= kind == UNSTABLE;
+                }
+            }
+        }
+
+        // unstable pieces can be parts of one object that never touch (a pulsar's quarters),
+        // those within 2 cells of each other are tried again as a whole
+        List<ObjectKind> objects = new ArrayList<>();
+        if (isUnstableFound) {
+            BitGrid joinedSeen = new BitGrid(lengthY, lengthX);
+            BitSet joined = new BitSet();
+            for (int piece = 0; piece < kinds.size(); piece++) {
+                int start = starts.get(piece);
+                if (kinds.get(piece) != UNSTABLE || joinedSeen.checkCoordinates(start / lengthX, start % lengthX)) {
+                    continue;
+                }
+                cells.clear();
+                joined.clear();
+                pieces.fill(start / lengthX, start % lengthX, 2, joinedSeen, cells, 0, joined);
+                ObjectKind kind = joined.cardinality() > 1 ? this.classify(cells) : UNSTABLE;
+                if (kind != UNSTABLE) {
+                    objects.add(kind);
+                    joined.stream().forEach(joinedPiece -> kinds.set(joinedPiece - 1, null));
+                }
+            }
+        }
+        for (ObjectKind kind : kinds) {
+            if (kind != null) {
+                objects.add(kind);
+            }
+        }
+
+        for (ObjectKind kind : objects) {
+            this.counts.computeIfAbsent(kind, k -> new LongAdder()).increment();
+        }
+        return objects;
+    }
+
+    public long worlds() {
+        return this.worlds.sum();
+    }
+
+    public long objects() {
+        long objects = 0;
+        for (LongAdder count : this.counts.values()) {
+            objects += count.sum();
+        }
+        return objects;
+    }
+
+    /**
+     * @return objects counted so far, most common first {@code Map<ObjectKind, Long>}
+     */
+    public Map<ObjectKind, Long> counts() {
+        Map<ObjectKind, Long> counts = new LinkedHashMap<>();
+        this.counts.entrySet().stream()
+                .map(entry -> Map.entry(entry.getKey(), entry.getValue().sum()))
+                .sorted(Map.Entry.<ObjectKind, Long>comparingByValue().reversed()
+                                .thenComparing(entry -> entry.getKey().name()))
+                .forEach(entry -> counts.put(entry.getKey(), entry.getValue()));
+        return counts;
+    }
+
+    /**
+     * @param top most common objects listed {@code int}
+     * @return worlds, objects and the most common ones with their codes {@code String}
+     */
+    public String report(int top) {
+        Map<ObjectKind, Long> counts = this.counts();
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("Ash of %d worlds: %d objects of %d kinds%n", this.worlds(), this.objects(),
+                                    counts.size()));
+        counts.entrySet().stream().limit(top).forEach(entry -> report.append(String.format(
+                "%10d  %-24s %s%n", entry.getValue(), entry.getKey().name(), entry.getKey().code())));
+        return report.toString();
+    }
+
+    /**
+     * @param objects {@code List<ObjectKind>}
+     * @return how many of each, most common first, like "2 block, 1 blinker" {@code String}
+     */
+    public static String describe(List<ObjectKind> objects) {
+        Map<ObjectKind, Long> counts = new LinkedHashMap<>();
+        for (ObjectKind kind : objects) {
+            counts.merge(kind, 1L, Long::sum);
+        }
+        List<String> parts = new ArrayList<>();
+        counts.entrySet().stream()
+                .sorted(Map.Entry.<ObjectKind, Long>comparingByValue().reversed()
+                                .thenComparing(entry -> entry.getKey().name()))
+                .forEach(entry -> parts.add(entry.getValue() + " " + entry.getKey().name()));
+        return parts.isEmpty() ? "nothing" : String.join(", ", parts);
+    }
+
+    /**
+     * Live cells of the world in any of its next {@code generations} generations, the first included.
+     */
+    private BitGrid union(BitGrid world, int generations) {
+        int lengthY = world.lengthY();
+        BitGrid union = new BitGrid(lengthY, world.lengthX());
+        union.or(world);
+        if (generations > 1) {
+            BitGrid phase = new BitGrid(lengthY, world.lengthX());
+            BitGrid next = new BitGrid(lengthY, world.lengthX());
+            world.nextRows(phase, 0, lengthY, this.rule);
+            union.or(phase);
+            for (int generation = 2; generation < generations; generation++) {
+                phase.nextRows(next, 0, lengthY, this.rule);
+                union.or(next);
+                BitGrid swap = phase;
+                phase = next;
+                next = swap;
+            }
+        }
+        return union;
+    }
+
+    private ObjectKind classify(CellList cells) {
+        long key = canonicalKey(cells);
+        ObjectKind kind = this.index.get(key);
+        if (kind != null) {
+            return kind;
+        }
+        if (this.unstableKeys.contains(key)) {
+            return UNSTABLE;
+        }
+
+        Evolution evolution = evolve(this.rule, cells);
+        if (evolution == null) {
+            // kept apart from the index and capped, bulk runs turn up new unstable pieces forever
+            if (this.unstableKeys.size() < MAX_UNSTABLE_KEYS) {
+                this.unstableKeys.add(key);
+            }
+            return UNSTABLE;
+        }
+        kind = this.kindsByCode.computeIfAbsent(evolution.code(), code -> evolution.kind(code));
+        for (long phaseKey : evolution.phaseKeys) {
+            this.index.putIfAbsent(phaseKey, kind);
+        }
+        return kind;
+    }
+
+    /**
+     * Simulates an object on its own until it repeats.
+     *
+     * @return its phases, or null if it doesn't repeat from the start within {@code MAX_PERIOD} {@code Evolution}
+     */
+    private static Evolution evolve(Rule rule, CellList cells) {
+        SparseGrid grid = new SparseGrid(1, 1);
+        for (int i = 0; i < cells.size; i++) {
+            grid.setCoordinatesValueTo(cells.ys[i], cells.xs[i], true);
+        }
+        CycleDetector cycleDetector = new CycleDetector(grid);
+        long[] phaseKeys = new long[MAX_PERIOD];
+        phaseKeys[0] = canonicalKey(cells);
+        int population = cells.size;
+        CellList phaseCells = new CellList();
+        for (int generation = 1; generation <= MAX_PERIOD; generation++) {
+            SparseGrid next = grid.nextGeneration(rule);
+            if (cycleDetector.update(grid, next)) {
+                if (cycleDetector.firstGeneration() != 0 || cycleDetector.population() == 0) {
+                    return null;
+                }
+                boolean isSpaceship = cycleDetector.displacementY() != 0 || cycleDetector.displacementX() != 0;
+                return new Evolution(Arrays.copyOf(phaseKeys, generation), population, isSpaceship);
+            }
+            if (generation == MAX_PERIOD) {
+                return null;
+            }
+            phaseCells.clear();
+            next.forEachLiveCell((y, x, isAlive) -> phaseCells.add(y, x));
+            phaseKeys[generation] = canonicalKey(phaseCells);
+            population = Math.min(population, phaseCells.size);
+            grid = next;
+        }
+        return null;
+    }
+
+    /**
+     * Sum of a hashed term per cell, positions from the top left corner of the cells,
+     * the smallest of the 8 rotations and reflections.
+     */
+    private static long canonicalKey(CellList cells) {
+        long best = Long.MAX_VALUE;
+        for (int symmetry = 0; symmetry < 8; symmetry++) {
+            boolean isTransposed = (symmetry & 1) != 0;
+            int signY = (symmetry & 2) != 0 ? -1 : 1;
+            int signX = (symmetry & 4) != 0 ? -1 : 1;
+            int minY = Integer.MAX_VALUE;
+            int minX = Integer.MAX_VALUE;
+            for (int i = 0; i < cells.size; i++) {
+                minY = Math.min(minY, signY * (isTransposed ? cells.xs[i] : cells.ys[i]));
+                minX = Math.min(minX, signX * (isTransposed ? cells.ys[i] : cells.xs[i]));
+            }
+            long key = 0;
+            for (int i = 0; i < cells.size; i++) {
+                long y = signY * (isTransposed ? cells.xs[i] : cells.ys[i]) - minY;
+                long x = signX * (isTransposed ? cells.ys[i] : cells.xs[i]) - minX;
+                key += mix((y << 32 | x) + 0x9E3779B97F4A7C15L);
+            }
+            best = Math.min(best, key);
+        }
+        return best;
+    }
+
+    /**
+     * Murmur3's 64 bit finalizer.
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+        value = (value ^ (value >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return value ^ (value >>> 33);
+    }
+
+    /**
+     * An object: still life, oscillator or spaceship.
+     */
+    public static final class ObjectKind {
+
+        private final String name;
+        private final String code;
+        private final int period;
+        private final int population;
+        private final boolean isSpaceship;
+
+        ObjectKind(String name, String code, int period, int population, boolean isSpaceship) {
+            this.name = name;
+            this.code = code;
+            this.period = period;
+            this.population = population;
+            this.isSpaceship = isSpaceship;
+        }
+
+        /**
+         * @return common name, the code for objects that don't have one {@code String}
+         */
+        public String name() {
+            return this.name;
+        }
+
+        public String code() {
+            return this.code;
+        }
+
+        public int period() {
+            return this.period;
+        }
+
+        /**
+         * @return live cells of its smallest phase {@code int}
+         */
+        public int population() {
+            return this.population;
+        }
+
+        public boolean isSpaceship() {
+            return this.isSpaceship;
+        }
+
+        @Override
+        public String toString() {
+            return this.name;
+        }
+    }
+
+    /**
+     * Phases of an object that repeats on its own.
+     */
+    private static final class Evolution {
+
+        private final long[] phaseKeys;
+        private final int population;
+        private final boolean isSpaceship;
+
+        Evolution(long[] phaseKeys, int population, boolean isSpaceship) {
+            this.phaseKeys = phaseKeys;
+            this.population = population;
+            this.isSpaceship = isSpaceship;
+        }
+
+        /**
+         * @return apgsearch style code: type, cells or period, smallest phase key {@code String}
+         */
+        String code() {
+            long smallest = Long.MAX_VALUE;
+            for (long phaseKey : this.phaseKeys) {
+                smallest = Math.min(smallest, phaseKey);
+            }
+            String type = this.isSpaceship ? "xq" + this.phaseKeys.length
+                                           : this.phaseKeys.length == 1 ? "xs" + this.population
+                                                                        : "xp" + this.phaseKeys.length;
+            return type + "_" + Long.toHexString(smallest);
+        }
+
+        ObjectKind kind(String name) {
+            return new ObjectKind(name, this.code(), this.phaseKeys.length, this.population, this.isSpaceship);
+        }
+    }
+
+    /**
+     * Flood fill over the live cells of the joined phases of a world.
+     */
+    private static final class Pieces {
+
+        private final BitGrid world;
+        private final BitGrid union;
+        private final int[] pieceByCell;
+        private int[] stack;
+
+        Pieces(BitGrid world, BitGrid union) {
+            this.world = world;
+            this.union = union;
+            this.pieceByCell = new int[world.lengthY() * world.lengthX()];
+            this.stack = new int[64];
+        }
+
+        /**
+         * Visits the cells of the union joined to a cell, each within {@code radius} of the next one.
+         *
+         * @param seen   cells visited, marked as they are {@code BitGrid}
+         * @param cells  where the live cells of the last generation go {@code CellList}
+         * @param piece  number given to the cells visited, 0 to leave them as they are {@code int}
+         * @param pieces where the numbers of the cells visited go, or null {@code BitSet}
+         */
+        void fill(int y, int x, int radius, BitGrid seen, CellList cells, int piece, BitSet pieces) {
+            int lengthY = this.world.lengthY();
+            int lengthX = this.world.lengthX();
+            seen.setCoordinatesValueTo(y, x, true);
+            this.stack[0] = y * lengthX + x;
+            int top = 1;
+            while (top > 0) {
+                int cell = this.stack[--top];
+                int cellY = cell / lengthX;
+                int cellX = cell % lengthX;
+                if (piece > 0) {
+                    this.pieceByCell[cell] = piece;
+                }
+                if (pieces != null) {
+                    pieces.set(this.pieceByCell[cell]);
+                }
+                if (this.world.checkCoordinates(cellY, cellX)) {
+                    cells.add(cellY, cellX);
+                }
+                for (int nextY = Math.max(cellY - radius, 0); nextY <= Math.min(cellY + radius, lengthY - 1); nextY++) {
+                    for (int nextX = Math.max(cellX - radius, 0); nextX <= Math.min(cellX + radius, lengthX - 1); nextX++) {
+                        if (this.union.checkCoordinates(nextY, nextX) && !seen.checkCoordinates(nextY, nextX)) {
+                            seen.setCoordinatesValueTo(nextY, nextX, true);
+                            if (top == this.stack.length) {
+                                this.stack = Arrays.copyOf(this.stack, top << 1);
+                            }
+                            this.stack[top++] = nextY * lengthX + nextX;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Cells of one object, grown as needed.
+     */
+    private static final class CellList {
+
+        private int[] ys = new int[16];
+        private int[] xs = new int[16];
+        private int size;
+
+        void add(int y, int x) {
+            if (this.size == this.ys.length) {
+                this.ys = Arrays.copyOf(this.ys, this.size << 1);
+                this.xs = Arrays.copyOf(this.xs, this.size << 1);
+            }
+            this.ys[this.size] = y;
+            this.xs[this.size] = x;
+            this.size++;
+        }
+
+        void clear() {
+            this.size = 0;
+        }
+    }
+
+    /**
+     * Every phase of the known objects of Conway's rule, built the first time a census needs it.
+     */
+    private static final class ConwayIndex {
+
+        static final Map<Long, ObjectKind> INDEX = build();
+
+        private static Map<Long, ObjectKind> build() {
+            Map<Long, ObjectKind> index = new ConcurrentHashMap<>();
+            CellList cells = new CellList();
+            for (String[] object : KNOWN_OBJECTS) {
+                cells.clear();
+                for (int y = 1; y < object.length; y++) {
+                    for (int x = 0; x < object[y].length(); x++) {
+                        if (object[y].charAt(x) == 'O') {
+                            cells.add(y, x);
+                        }
+                    }
+                }
+                Evolution evolution = evolve(Rule.CONWAY, cells);
+                if (evolution == null) {
+                    throw new IllegalStateException("Known object " + object[0] + " doesn't repeat");
+                }
+                ObjectKind kind = evolution.kind(object[0]);
+                for (long phaseKey : evolution.phaseKeys) {
+                    index.put(phaseKey, kind);
+                }
+            }
+            return index;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package org.ruitx;
+
+public enum BatchFormatEnum {
+    CSV(1, "Comma separated values, a header and one row per file"),
+    JSON(2, "JSON Lines, one object per file");
+
+    private int id;
+    private String desc;
+
+    BatchFormatEnum(int id, String desc) {
+        this.id = id;
+        this.desc = desc;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getDesc() {
+        return desc;
+    }
+}
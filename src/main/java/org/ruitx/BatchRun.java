@@ -0,0 +1,355 @@
+package org.ruitx;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Simulates many pattern files without the menu or any rendering, for scripts and job schedulers.
+ * Files are simulated concurrently, one per worker thread, each on its own {@code Conways}
+ * with the given backend, edges, rule and minimum world size; bit-packed grids are stepped
+ * on the worker itself, the workers already keep the cores busy. A run ends at the first
+ * repeat found by {@code CycleDetector} or after {@code maxGenerations}.
+ * One stats record per file is written in the input order, as CSV or JSON Lines
+ * ({@code BatchFormatEnum}), and with a snapshot directory the last generation of each
+ * file is saved there as a plaintext pattern. A file that fails gets a record with the error,
+ * the others go on.
+ */
+public class BatchRun {
+
+    private static final String[] CSV_HEADER = {
+            "file", "backend", "rule", "lengthY", "lengthX", "generations", "stop", "period",
+            "population", "births", "deaths", "millis", "error"};
+
+    private final List<Path> files;
+    private final long maxGenerations;
+    private final GridBackendEnum gridBackend;
+    private final BoundaryModeEnum boundaryMode;
+    private final Rule rule;
+    private final int gridLengthY;
+    private final int gridLengthX;
+    private final int threads;
+    private final BatchFormatEnum format;
+    private final Path snapshotDirectory;
+
+    private long startNanos;
+    private long endNanos;
+    private long totalGenerations;
+    private int failedFiles;
+
+    /**
+     * @param files             pattern files {@code List<Path>}
+     * @param maxGenerations    {@code long}
+     * @param gridBackend       {@code GridBackendEnum}
+     * @param boundaryMode      {@code BoundaryModeEnum}
+     * @param rule              used unless a file has its own {@code Rule}
+     * @param gridLengthY       smallest world, worlds grow to fit their pattern; 0 for the menu's {@code int}
+     * @param gridLengthX       {@code int}
+     * @param threads           files simulated at once {@code int}
+     * @param format            {@code BatchFormatEnum}
+     * @param snapshotDirectory where last generations are saved, null for none {@code Path}
+     */
+    public BatchRun(List<Path> files, long maxGenerations, GridBackendEnum gridBackend, BoundaryModeEnum boundaryMode,
+                    Rule rule, int gridLengthY, int gridLengthX, int threads, BatchFormatEnum format,
+                    Path snapshotDirectory) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Threads must be at least 1: " + threads);
+        }
+        this.files = files;
+        this.maxGenerations = maxGenerations;
+        this.gridBackend = gridBackend;
+        this.boundaryMode = boundaryMode;
+        this.rule = rule;
+        this.gridLengthY = gridLengthY;
+        this.gridLengthX = gridLengthX;
+        this.threads = threads;
+        this.format = format;
+        this.snapshotDirectory = snapshotDirectory;
+    }
+
+    /**
+     * Expands a path or glob into the files it names, sorted.
+     * A glob is matched from its first directory without wildcards, {@code **} crosses
+     * directories: {@code patterns/**.rle}, {@code maps/*}.
+     *
+     * @param pathOrGlob {@code String}
+     * @return files {@code List<Path>}
+     */
+    public static List<Path> expand(String pathOrGlob) throws IOException {
+        int wildcard = indexOfWildcard(pathOrGlob);
+        if (wildcard < 0) {
+            return List.of(Path.of(pathOrGlob));
+        }
+
+        int separator = Math.max(pathOrGlob.lastIndexOf('/', wildcard), pathOrGlob.lastIndexOf('\\', wildcard));
+        Path base = separator < 0 ? Path.of("") : Path.of(pathOrGlob.substring(0, separator + 1));
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pathOrGlob.substring(separator + 1));
+        try (Stream<Path> paths = Files.walk(base)) {
+            return paths.filter(Files::isRegularFile)
+                        .filter(path -> matcher.matches(base.relativize(path)))
+                        .sorted()
+                        .toList();
+        }
+    }
+
+    /**
+     * Simulates every file and writes their records to {@code out}.
+     *
+     * @param out {@code Writer}
+     * @return files that failed {@code int}
+     */
+    public int run(Writer out) throws IOException, InterruptedException {
+        this.startNanos = System.nanoTime();
+        // one worker per file already fills the cores, bit-packed grids are stepped on the worker
+        ParallelStepper sequentialStepper = new ParallelStepper(1, Integer.MAX_VALUE, Integer.MAX_VALUE);
+        ExecutorService executor = Executors.newFixedThreadPool(this.threads, runnable -> {
+            Thread thread = new Thread(runnable, "batch-run");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            List<Future<Result>> futures = new ArrayList<>(this.files.size());
+            for (Path file : this.files) {
+                futures.add(executor.submit(() -> this.simulate(file, sequentialStepper)));
+            }
+
+            if (this.format == BatchFormatEnum.CSV) {
+                out.write(csvLine(CSV_HEADER));
+            }
+            for (Future<Result> future : futures) {
+                Result result;
+                try {
+                    result = future.get();
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException(e.getCause());
+                }
+                this.totalGenerations += result.generations;
+                if (result.error != null) {
+                    this.failedFiles++;
+                }
+                out.write(this.format == BatchFormatEnum.CSV ? csvLine(result.fields()) : result.toJson());
+                out.flush();
+            }
+        } finally {
+            executor.shutdownNow();
+            sequentialStepper.shutdown();
+        }
+
+        this.endNanos = System.nanoTime();
+        return this.failedFiles;
+    }
+
+    /**
+     * @return files, generations and generations per second of the run {@code String}
+     */
+    public String report() {
+        double seconds = (this.endNanos - this.startNanos) / 1e9;
+        return String.format("%d files (%d failed) on %d threads, %d generations in %.2fs, %.0f generations/s%n",
+                             this.files.size(), this.failedFiles, this.threads, this.totalGenerations, seconds,
+                             this.totalGenerations / seconds);
+    }
+
+    private Result simulate(Path file, ParallelStepper sequentialStepper) {
+        long start = System.nanoTime();
+        Conways game = new Conways(sequentialStepper);
+        game.setGridBackend(this.gridBackend);
+        game.setBoundaryMode(this.boundaryMode);
+        game.setRule(this.rule);
+        if (this.gridLengthY > 0) {
+            game.setGridSize(this.gridLengthY, this.gridLengthX);
+        }
+
+        Grid grid;
+        try {
+            grid = game.readPattern(file);
+        } catch (IOException | RuntimeException e) {
+            return Result.failed(file, this.gridBackend, this.rule, e, System.nanoTime() - start);
+        }
+
+        try {
+            CycleDetector cycleDetector = new CycleDetector(grid);
+            SimulationProbe probe = new SimulationProbe(grid.getClass().getSimpleName(), game.rule());
+            String stopReason = "max generations";
+            long births = 0;
+            long deaths = 0;
+            Grid spareGrid = game.newSpareGrid(grid);
+            long generation = 0;
+            while (generation < this.maxGenerations) {
+                GenerationEvent event = probe.beginStep();
+                Grid newGrid = game.nextGeneration(grid, spareGrid);
+                probe.endStep(event);
+                boolean isRepeat = cycleDetector.update(grid, newGrid);
+                if (isRepeat && cycleDetector.period() == 1
+                    && cycleDetector.displacementY() == 0 && cycleDetector.displacementX() == 0) {
+                    // a still life is confirmed by comparing the grids, like Conways does
+                    isRepeat = Conways.compareGameGrid(grid, newGrid);
+                }
+                probe.recordGeneration(event, ++generation, cycleDetector);
+                births += cycleDetector.births();
+                deaths += cycleDetector.deaths();
+                if (spareGrid != null) {
+                    spareGrid = grid;
+                }
+                grid = newGrid;
+                if (isRepeat) {
+                    stopReason = cycleDetector.describe();
+                    break;
+                }
+            }
+            probe.finish(stopReason, cycleDetector, generation);
+
+            if (this.snapshotDirectory != null) {
+                this.writeSnapshot(file, grid, generation);
+            }
+            return new Result(file, grid.getClass().getSimpleName(), game.rule().toString(), grid.lengthY(),
+                              grid.lengthX(), generation, stopReason, cycleDetector.period(),
+                              cycleDetector.population(), births, deaths, System.nanoTime() - start, null);
+        } catch (IOException | RuntimeException e) {
+            return Result.failed(file, this.gridBackend, game.rule(), e, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Saves the last generation as {@code <file name>.cells} in the snapshot directory.
+     */
+    private void writeSnapshot(Path file, Grid grid, long generation) throws IOException {
+        Path snapshot = this.snapshotDirectory.resolve(file.getFileName() + ".cells");
+        try (GenerationDump generationDump = new GenerationDump(snapshot)) {
+            generationDump.write(grid, generation);
+        }
+    }
+
+    private static int indexOfWildcard(String pathOrGlob) {
+        for (int i = 0; i < pathOrGlob.length(); i++) {
+            if ("*?[{".indexOf(pathOrGlob.charAt(i)) >= 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String csvLine(String[] fields) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            String field = fields[i];
+            if (field.indexOf(',') >= 0 || field.indexOf('"') >= 0 || field.indexOf('\n') >= 0) {
+                line.append('"').append(field.replace("\"", "\"\"")).append('"');
+            } else {
+                line.append(field);
+            }
+        }
+        return line.append('\n').toString();
+    }
+
+    private static String jsonString(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder json = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append('"').toString();
+    }
+
+    /**
+     * Stats of one simulated file.
+     */
+    public static final class Result {
+
+        private final Path file;
+        private final String backend;
+        private final String rule;
+        private final int lengthY;
+        private final int lengthX;
+        private final long generations;
+        private final String stopReason;
+        private final int period;
+        private final long population;
+        private final long births;
+        private final long deaths;
+        private final long nanos;
+        private final String error;
+
+        Result(Path file, String backend, String rule, int lengthY, int lengthX, long generations, String stopReason,
+               int period, long population, long births, long deaths, long nanos, String error) {
+            this.file = file;
+            this.backend = backend;
+            this.rule = rule;
+            this.lengthY = lengthY;
+            this.lengthX = lengthX;
+            this.generations = generations;
+            this.stopReason = stopReason;
+            this.period = period;
+            this.population = population;
+            this.births = births;
+            this.deaths = deaths;
+            this.nanos = nanos;
+            this.error = error;
+        }
+
+        static Result failed(Path file, GridBackendEnum gridBackend, Rule rule, Exception e, long nanos) {
+            String error = e.getClass().getSimpleName() + ": " + e.getMessage();
+            return new Result(file, gridBackend.name(), rule.toString(), 0, 0, 0, "failed", 0, 0, 0, 0, nanos, error);
+        }
+
+        public long generations() {
+            return this.generations;
+        }
+
+        public String stopReason() {
+            return this.stopReason;
+        }
+
+        public String error() {
+            return this.error;
+        }
+
+        private String[] fields() {
+            return new String[]{
+                    this.file.toString(), this.backend, this.rule, String.valueOf(this.lengthY),
+                    String.valueOf(this.lengthX), String.valueOf(this.generations), this.stopReason,
+                    String.valueOf(this.period), String.valueOf(this.population), String.valueOf(this.births),
+                    String.valueOf(this.deaths), String.valueOf(this.nanos / 1_000_000),
+                    this.error != null ? this.error : ""};
+        }
+
+        private String toJson() {
+            return "{\"file\":" + jsonString(this.file.toString())
+                   + ",\"backend\":" + jsonString(this.backend)
+                   + ",\"rule\":" + jsonString(this.rule)
+                   + ",\"lengthY\":" + this.lengthY
+                   + ",\"lengthX\":" + this.lengthX
+                   + ",\"generations\":" + this.generations
+                   + ",\"stop\":" + jsonString(this.stopReason)
+                   + ",\"period\":" + this.period
+                   + ",\"population\":" + this.population
+                   + ",\"births\":" + this.births
+                   + ",\"deaths\":" + this.deaths
+                   + ",\"millis\":" + this.nanos / 1_000_000
+                   + ",\"error\":" + jsonString(this.error)
+                   + "}\n";
+        }
+    }
+}
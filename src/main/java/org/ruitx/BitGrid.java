@@ -0,0 +1,184 @@
+package org.ruitx;
+
+import java.util.Arrays;
+
+/**
+ * Bit-packed game grid.
+ * Each row is packed into {@code long} words, one bit per cell, so cell {@code x}
+ * is bit {@code x % 64} of word {@code x / 64}.
+ * The next generation is computed 64 cells at a time: the eight neighbors of a word
+ * are built with shifts and summed with bitwise full adders ({@code BitKernel}), so there
+ * is no per cell branching and no bounds check per neighbor.
+ * Cells outside the grid are dead, same as the boxed grid.
+ */
+public class BitGrid implements Grid {
+
+    private final int gridLengthY;
+    private final int gridLengthX;
+    private final int wordsPerRow;
+    private final long lastWordMask;
+    private final long[][] rows;
+    private final long[] emptyRow;
+
+    public BitGrid(int lengthY, int lengthX) {
+        this.gridLengthY = lengthY;
+        this.gridLengthX = lengthX;
+        this.wordsPerRow = (lengthX + 63) >>> 6;
+        this.lastWordMask = (lengthX & 63) == 0 ? -1L : (1L << (lengthX & 63)) - 1;
+        this.rows = new long[lengthY][this.wordsPerRow];
+        this.emptyRow = new long[this.wordsPerRow];
+    }
+
+    @Override
+    public int lengthY() {
+        return this.gridLengthY;
+    }
+
+    @Override
+    public int lengthX() {
+        return this.gridLengthX;
+    }
+
+    @Override
+    public boolean checkCoordinates(int y, int x) {
+        return (this.rows[y][x >>> 6] & (1L << x)) != 0;
+    }
+
+    @Override
+    public void setCoordinatesValueTo(int y, int x, boolean value) {
+        if (value) {
+            this.rows[y][x >>> 6] |= 1L << x;
+        } else {
+            this.rows[y][x >>> 6] &= ~(1L << x);
+        }
+    }
+
+    /**
+     * Compares the cells of two bit grids, a word at a time.
+     *
+     * @param other {@code BitGrid}
+     * @return isEqual {@code boolean}
+     */
+    public boolean sameCells(BitGrid other) {
+        if (this.gridLengthY != other.gridLengthY || this.gridLengthX != other.gridLengthX) {
+            return false;
+        }
+        for (int y = 0; y < this.gridLengthY; y++) {
+            if (!Arrays.equals(this.rows[y], other.rows[y])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds the live cells of {@code other}, a grid of the same size, to this one.
+     *
+     * @param other {@code BitGrid}
+     */
+    void or(BitGrid other) {
+        for (int y = 0; y < this.gridLengthY; y++) {
+            for (int w = 0; w < this.wordsPerRow; w++) {
+                this.rows[y][w] |= other.rows[y][w];
+            }
+        }
+    }
+
+    @Override
+    public void forEachLiveCell(CellConsumer action) {
+        for (int y = 0; y < this.gridLengthY; y++) {
+            for (int w = 0; w < this.wordsPerRow; w++) {
+                for (long word = this.rows[y][w]; word != 0; word &= word - 1) {
+                    action.accept(y, (w << 6) + Long.numberOfTrailingZeros(word), true);
+                }
+            }
+        }
+    }
+
+    /**
+     * XORs the rows a word at a time, so only changed cells are visited one by one.
+     */
+    @Override
+    public void forEachDifference(Grid other, CellConsumer action) {
+        if (!(other instanceof BitGrid otherBitGrid)) {
+            Grid.super.forEachDifference(other, action);
+            return;
+        }
+        for (int y = 0; y < this.gridLengthY; y++) {
+            for (int w = 0; w < this.wordsPerRow; w++) {
+                long otherWord = otherBitGrid.rows[y][w];
+                for (long changed = this.rows[y][w] ^ otherWord; changed != 0; changed &= changed - 1) {
+                    int bit = Long.numberOfTrailingZeros(changed);
+                    action.accept(y, (w << 6) + bit, (otherWord & (1L << bit)) != 0);
+                }
+            }
+        }
+    }
+
+    /**
+     * Process's the next generation into a new grid.
+     * For each word the row above, the row itself and the row below are shifted
+     * one cell west and east (carrying the edge bit from the adjacent word),
+     * which gives the 8 neighbor bit planes for {@code BitKernel}.
+     *
+     * @return newGrid {@code BitGrid}
+     */
+    public BitGrid nextGeneration() {
+        return this.nextGeneration(Rule.CONWAY);
+    }
+
+    /**
+     * Process's the next generation into a new grid, with any rule.
+     *
+     * @param rule {@code Rule}
+     * @return newGrid {@code BitGrid}
+     */
+    public BitGrid nextGeneration(Rule rule) {
+        BitGrid next = new BitGrid(this.gridLengthY, this.gridLengthX);
+        this.nextRows(next, 0, this.gridLengthY, rule);
+        return next;
+    }
+
+    /**
+     * Process's the next generation of rows {@code fromY} (inclusive) to {@code toY} (exclusive)
+     * into {@code next}, which must have the same size.
+     * Only reads this grid and only writes those rows of {@code next}, so disjoint row ranges
+     * can be computed at the same time without locking.
+     *
+     * @param next  {@code BitGrid}
+     * @param fromY {@code int}
+     * @param toY   {@code int}
+     * @param rule  {@code Rule}
+     */
+    void nextRows(BitGrid next, int fromY, int toY, Rule rule) {
+        for (int y = fromY; y < toY; y++) {
+            long[] above = y > 0 ? this.rows[y - 1] : this.emptyRow;
+            long[] current = this.rows[y];
+            long[] below = y + 1 < this.gridLengthY ? this.rows[y + 1] : this.emptyRow;
+            long[] out = next.rows[y];
+
+            for (int w = 0; w < this.wordsPerRow; w++) {
+                out[w] = nextWord(above, current, below, w, rule);
+            }
+            out[this.wordsPerRow - 1] &= this.lastWordMask;
+        }
+    }
+
+    /**
+     * Computes one word of the next generation from three rows.
+     */
+    private long nextWord(long[] above, long[] current, long[] below, int w, Rule rule) {
+        long aboveWest = w > 0 ? above[w - 1] : 0L;
+        long aboveEast = w + 1 < this.wordsPerRow ? above[w + 1] : 0L;
+        long currentWest = w > 0 ? current[w - 1] : 0L;
+        long currentEast = w + 1 < this.wordsPerRow ? current[w + 1] : 0L;
+        long belowWest = w > 0 ? below[w - 1] : 0L;
+        long belowEast = w + 1 < this.wordsPerRow ? below[w + 1] : 0L;
+
+        return BitKernel.next(
+                rule,
+                BitKernel.west(above[w], aboveWest), above[w], BitKernel.east(above[w], aboveEast),
+                BitKernel.west(current[w], currentWest), current[w], BitKernel.east(current[w], currentEast),
+                BitKernel.west(below[w], belowWest), below[w], BitKernel.east(below[w], belowEast));
+    }
+}
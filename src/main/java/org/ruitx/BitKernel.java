@@ -0,0 +1,110 @@
+package org.ruitx;
+
+/**
+ * The rules of the game on 64 cells at once.
+ * Each argument is a word of neighbor bits already shifted in place: bit {@code i} of
+ * {@code nw} is the north-west neighbor of cell {@code i}, and so on. The eight neighbor
+ * planes are added with bitwise full adders and the rules are applied to the bit-sliced
+ * count, so there is no branching per cell.
+ * Conway's rule has its own kernel; any other {@code Rule} gets the full count, 0 to 8
+ * in four bit planes, matched against the counts of the rule.
+ * Shared by every bit-packed engine.
+ */
+final class BitKernel {
+
+    private BitKernel() {
+    }
+
+    /**
+     * Rules of the game in bit form: a cell is alive on the next generation if it
+     * has exactly three neighbors, or if it is alive and has exactly two.
+     *
+     * @return the 64 cells on the next generation {@code long}
+     */
+    static long next(long nw, long n, long ne, long w, long c, long e, long sw, long s, long se) {
+        // full adder on each row of three (the middle row has two)
+        long aboveOnes = nw ^ n ^ ne;
+        long aboveTwos = (nw & n) | (ne & (nw ^ n));
+        long middleOnes = w ^ e;
+        long middleTwos = w & e;
+        long belowOnes = sw ^ s ^ se;
+        long belowTwos = (sw & s) | (se & (sw ^ s));
+
+        // add up the ones, carrying into the twos
+        long ones = aboveOnes ^ middleOnes ^ belowOnes;
+        long onesCarry = (aboveOnes & middleOnes) | (belowOnes & (aboveOnes ^ middleOnes));
+
+        // count is 2 or 3 when exactly one of the four twos is set
+        long twosOdd = aboveTwos ^ middleTwos ^ belowTwos ^ onesCarry;
+        long twosPair = (aboveTwos & middleTwos) | (belowTwos & onesCarry);
+        long exactlyOneTwo = twosOdd & ~twosPair;
+
+        // 3 neighbors -> birth or survive, 2 neighbors -> survive only
+        return exactlyOneTwo & (ones | c);
+    }
+
+    /**
+     * Same as {@code next}, for any rule.
+     *
+     * @return the 64 cells on the next generation {@code long}
+     */
+    static long next(Rule rule, long nw, long n, long ne, long w, long c, long e, long sw, long s, long se) {
+        if (rule.isConway()) {
+            return next(nw, n, ne, w, c, e, sw, s, se);
+        }
+
+        long aboveOnes = nw ^ n ^ ne;
+        long aboveTwos = (nw & n) | (ne & (nw ^ n));
+        long middleOnes = w ^ e;
+        long middleTwos = w & e;
+        long belowOnes = sw ^ s ^ se;
+        long belowTwos = (sw & s) | (se & (sw ^ s));
+
+        long ones = aboveOnes ^ middleOnes ^ belowOnes;
+        long onesCarry = (aboveOnes & middleOnes) | (belowOnes & (aboveOnes ^ middleOnes));
+
+        // add the four twos: two half adders, then their carries
+        long aboveMiddleTwos = aboveTwos ^ middleTwos;
+        long belowCarryTwos = belowTwos ^ onesCarry;
+        long twos = aboveMiddleTwos ^ belowCarryTwos;
+        long aboveMiddleFours = aboveTwos & middleTwos;
+        long belowCarryFours = belowTwos & onesCarry;
+        // at most two of the three fours are set, and only both pairs for 8 neighbors
+        long fours = aboveMiddleFours ^ belowCarryFours ^ (aboveMiddleTwos & belowCarryTwos);
+        long eights = aboveMiddleFours & belowCarryFours;
+
+        long births = 0L;
+        long survivals = 0L;
+        for (int count = 0; count <= 8; count++) {
+            boolean isBirth = (rule.birthMask() >>> count & 1) != 0;
+            boolean isSurvival = (rule.survivalMask() >>> count & 1) != 0;
+            if (isBirth || isSurvival) {
+                long hasCount = ((count & 1) != 0 ? ones : ~ones)
+                                & ((count & 2) != 0 ? twos : ~twos)
+                                & ((count & 4) != 0 ? fours : ~fours)
+                                & ((count & 8) != 0 ? eights : ~eights);
+                births |= isBirth ? hasCount : 0L;
+                survivals |= isSurvival ? hasCount : 0L;
+            }
+        }
+        return (births & ~c) | (survivals & c);
+    }
+
+    /**
+     * @param word     {@code long}
+     * @param westWord the word to the west, only its highest bit is used {@code long}
+     * @return the word shifted so each bit holds its west neighbor {@code long}
+     */
+    static long west(long word, long westWord) {
+        return (word << 1) | (westWord >>> 63);
+    }
+
+    /**
+     * @param word     {@code long}
+     * @param eastWord the word to the east, only its lowest bit is used {@code long}
+     * @return the word shifted so each bit holds its east neighbor {@code long}
+     */
+    static long east(long word, long eastWord) {
+        return (word >>> 1) | (eastWord << 63);
+    }
+}
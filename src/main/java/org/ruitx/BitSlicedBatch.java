@@ -0,0 +1,349 @@
+package org.ruitx;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.function.Consumer;
+
+/**
+ * Simulates many small worlds of the same size at once, bit-sliced: the cell at y,x of
+ * 64 worlds is one {@code long}, bit {@code k} for the world in lane {@code k}. A word and
+ * its eight neighbor words go through the same adder logic as the bit-packed grid
+ * ({@code BitKernel}), so one step of a 30x100 grid steps 64 worlds with no shifting at
+ * all. With {@code planes} greater than 1 there are {@code 64 * planes} lanes, each plane
+ * stepped on its own.
+ * Every lane has its own {@code CycleDetector}, fed with the changed cells found by XORing
+ * the old and new words, and the top left corner of its live cells, the first row and
+ * column whose OR of words has the lane's bit; and its own generation count. A lane stops when its world
+ * repeats (a still life confirmed by the lane not changing at all) or after
+ * {@code maxGenerations}, the same endings and generation numbers as simulating the world
+ * on its own with {@code Conways}. A stopped lane is cleared and takes the next world
+ * right away, the others go on.
+ * Cells outside the grid are dead: the planes have a one cell border that is never written.
+ * With {@code setAshKept(true)} every result also has the world's last generation, taken
+ * out of the lane before it's cleared ({@code AshCensus}).
+ */
+public class BitSlicedBatch {
+
+    public static final int LANES_PER_PLANE = Long.SIZE;
+
+    private final int lengthY;
+    private final int lengthX;
+    private final int stride;
+    private final int planeLength;
+    private final int planes;
+    private final Rule rule;
+    private final int maxGenerations;
+    private boolean isAshKept;
+
+    private long[] cells;
+    private long[] nextCells;
+    /**
+     * Lanes with a live cell in each column of the plane being stepped.
+     */
+    private final long[] columnLanes;
+    private final CycleDetector[] cycleDetectors;
+    private final int[] laneGenerations;
+    private final long[] laneIds;
+    /**
+     * Bit {@code k} of word {@code p} set when lane {@code p * 64 + k} has a world.
+     */
+    private final long[] activeLanes;
+    private int activeLaneCount;
+    /**
+     * Top row and left column with a live cell, by lane of the plane being stepped.
+     */
+    private final int[] minYs;
+    private final int[] minXs;
+
+    /**
+     * @param lengthY        {@code int}
+     * @param lengthX        {@code int}
+     * @param planes         lanes are {@code 64 * planes} {@code int}
+     * @param rule           {@code Rule}
+     * @param maxGenerations worlds still changing after this stop unsettled {@code int}
+     */
+    public BitSlicedBatch(int lengthY, int lengthX, int planes, Rule rule, int maxGenerations) {
+        if (lengthY < 1 || lengthX < 1 || planes < 1) {
+            throw new IllegalArgumentException("Grid must be at least 1x1 with 1 plane: " + lengthY + "x" + lengthX
+                                               + ", " + planes);
+        }
+        this.lengthY = lengthY;
+        this.lengthX = lengthX;
+        this.stride = lengthX + 2;
+        this.planeLength = (lengthY + 2) * this.stride;
+        this.planes = planes;
+        this.rule = rule;
+        this.maxGenerations = maxGenerations;
+        this.cells = new long[planes * this.planeLength];
+        this.nextCells = new long[planes * this.planeLength];
+        this.columnLanes = new long[lengthX];
+        this.cycleDetectors = new CycleDetector[planes * LANES_PER_PLANE];
+        this.laneGenerations = new int[planes * LANES_PER_PLANE];
+        this.laneIds = new long[planes * LANES_PER_PLANE];
+        this.activeLanes = new long[planes];
+        this.minYs = new int[LANES_PER_PLANE];
+        this.minXs = new int[LANES_PER_PLANE];
+    }
+
+    /**
+     * @param isAshKept give each result the world's last generation, see {@code Result.ash()} {@code boolean}
+     */
+    public void setAshKept(boolean isAshKept) {
+        this.isAshKept = isAshKept;
+    }
+
+    public int lanes() {
+        return this.planes * LANES_PER_PLANE;
+    }
+
+    public int activeLaneCount() {
+        return this.activeLaneCount;
+    }
+
+    public boolean hasFreeLane() {
+        return this.activeLaneCount < this.lanes();
+    }
+
+    /**
+     * Simulates every world, keeping the lanes full while there are worlds left.
+     * Worlds are numbered in the order they come, starting at 0.
+     *
+     * @param worlds  grids of this batch's size {@code Iterator<? extends Grid>}
+     * @param results gets each world as it stops, in no particular order {@code Consumer<Result>}
+     */
+    public void run(Iterator<? extends Grid> worlds, Consumer<Result> results) {
+        long nextId = 0;
+        while (true) {
+            while (this.hasFreeLane() && worlds.hasNext()) {
+                this.load(worlds.next(), nextId++);
+            }
+            if (this.activeLaneCount == 0) {
+                return;
+            }
+            this.step(results);
+        }
+    }
+
+    /**
+     * Puts a world in a free lane.
+     *
+     * @param world grid of this batch's size {@code Grid}
+     * @param id    given back with the world's result {@code long}
+     * @return lane {@code int}
+     */
+    public int load(Grid world, long id) {
+        if (world.lengthY() != this.lengthY || world.lengthX() != this.lengthX) {
+            throw new IllegalArgumentException("World is " + world.lengthY() + "x" + world.lengthX()
+                                               + ", the batch is " + this.lengthY + "x" + this.lengthX);
+        }
+        int lane = this.freeLane();
+        int plane = lane / LANES_PER_PLANE;
+        long bit = 1L << lane;
+        int base = plane * this.planeLength;
+        world.forEachLiveCell((y, x, isAlive) -> this.cells[base + (y + 1) * this.stride + x + 1] |= bit);
+
+        this.activeLanes[plane] |= bit;
+        this.activeLaneCount++;
+        this.cycleDetectors[lane] = new CycleDetector(world);
+        this.laneGenerations[lane] = 0;
+        this.laneIds[lane] = id;
+        return lane;
+    }
+
+    /**
+     * Steps every lane one generation; lanes that stop give their result and become free.
+     *
+     * @param results {@code Consumer<Result>}
+     */
+    public void step(Consumer<Result> results) {
+        for (int plane = 0; plane < this.planes; plane++) {
+            if (this.activeLanes[plane] != 0) {
+                this.stepPlane(plane, results);
+            }
+        }
+        long[] swap = this.cells;
+        this.cells = this.nextCells;
+        this.nextCells = swap;
+    }
+
+    private void stepPlane(int plane, Consumer<Result> results) {
+        long active = this.activeLanes[plane];
+        for (long lanes = active; lanes != 0; lanes &= lanes - 1) {
+            this.cycleDetectors[plane * LANES_PER_PLANE + Long.numberOfTrailingZeros(lanes)].beginUpdate();
+        }
+
+        long[] cells = this.cells;
+        long[] nextCells = this.nextCells;
+        long[] columnLanes = this.columnLanes;
+        int[] minYs = this.minYs;
+        int stride = this.stride;
+        long changedLanes = 0L;
+        long laneFound = 0L;
+        Arrays.fill(columnLanes, 0L);
+        for (int y = 1; y <= this.lengthY; y++) {
+            int row = plane * this.planeLength + y * stride;
+            long rowLanes = 0L;
+            for (int i = row + 1; i <= row + this.lengthX; i++) {
+                long next = BitKernel.next(this.rule,
+                                           cells[i - stride - 1], cells[i - stride], cells[i - stride + 1],
+                                           cells[i - 1], cells[i], cells[i + 1],
+                                           cells[i + stride - 1], cells[i + stride], cells[i + stride + 1]);
+                nextCells[i] = next;
+                rowLanes |= next;
+                columnLanes[i - row - 1] |= next;
+                long changed = next ^ cells[i];
+                changedLanes |= changed;
+                for (; changed != 0; changed &= changed - 1) {
+                    int lane = Long.numberOfTrailingZeros(changed);
+                    this.cycleDetectors[plane * LANES_PER_PLANE + lane]
+                            .change(y - 1, i - row - 1, (next >>> lane & 1) != 0);
+                }
+            }
+            for (long lanes = rowLanes & ~laneFound; lanes != 0; lanes &= lanes - 1) {
+                minYs[Long.numberOfTrailingZeros(lanes)] = y - 1;
+            }
+            laneFound |= rowLanes;
+        }
+        int[] minXs = this.minXs;
+        long columnFound = 0L;
+        for (int x = 0; x < this.lengthX && columnFound != laneFound; x++) {
+            for (long lanes = columnLanes[x] & ~columnFound; lanes != 0; lanes &= lanes - 1) {
+                minXs[Long.numberOfTrailingZeros(lanes)] = x;
+            }
+            columnFound |= columnLanes[x];
+        }
+
+        long stoppedLanes = 0L;
+        for (long lanes = active; lanes != 0; lanes &= lanes - 1) {
+            int bit = Long.numberOfTrailingZeros(lanes);
+            int lane = plane * LANES_PER_PLANE + bit;
+            CycleDetector cycleDetector = this.cycleDetectors[lane];
+            int generation = this.laneGenerations[lane]++;
+            boolean isEmpty = (laneFound >>> bit & 1) == 0;
+            if (cycleDetector.endUpdate(isEmpty ? 0 : minYs[bit], isEmpty ? 0 : minXs[bit])) {
+                boolean isStillLife = cycleDetector.period() == 1
+                                      && cycleDetector.displacementY() == 0
+                                      && cycleDetector.displacementX() == 0;
+                // a still life is confirmed by the lane not changing, like Conways compares the grids
+                if (!isStillLife || (changedLanes >>> bit & 1) == 0) {
+                    stoppedLanes |= 1L << bit;
+                    results.accept(new Result(this.laneIds[lane], generation, cycleDetector.period(),
+                                              cycleDetector.population(), cycleDetector.describe(),
+                                              this.ash(plane, bit)));
+                    continue;
+                }
+            }
+            if (generation + 1 >= this.maxGenerations) {
+                stoppedLanes |= 1L << bit;
+                results.accept(new Result(this.laneIds[lane], this.maxGenerations, 0, cycleDetector.population(),
+                                          "not settled", this.ash(plane, bit)));
+            }
+        }
+
+        if (stoppedLanes != 0) {
+            this.free(plane, stoppedLanes);
+        }
+    }
+
+    /**
+     * Clears the stopped lanes in both generations, so they're empty for the next worlds
+     * even if their plane isn't stepped (and rewritten) for a while.
+     */
+    private void free(int plane, long stoppedLanes) {
+        long keep = ~stoppedLanes;
+        int end = (plane + 1) * this.planeLength;
+        for (int i = plane * this.planeLength; i < end; i++) {
+            this.cells[i] &= keep;
+            this.nextCells[i] &= keep;
+        }
+        for (long lanes = stoppedLanes; lanes != 0; lanes &= lanes - 1) {
+            this.cycleDetectors[plane * LANES_PER_PLANE + Long.numberOfTrailingZeros(lanes)] = null;
+        }
+        this.activeLanes[plane] &= keep;
+        this.activeLaneCount -= Long.bitCount(stoppedLanes);
+    }
+
+    /**
+     * @return the lane's world in the generation just stepped, or null if the ash isn't kept {@code BitGrid}
+     */
+    private BitGrid ash(int plane, int bit) {
+        if (!this.isAshKept) {
+            return null;
+        }
+        BitGrid ash = new BitGrid(this.lengthY, this.lengthX);
+        for (int y = 0; y < this.lengthY; y++) {
+            int row = plane * this.planeLength + (y + 1) * this.stride + 1;
+            for (int x = 0; x < this.lengthX; x++) {
+                if ((this.nextCells[row + x] >>> bit & 1) != 0) {
+                    ash.setCoordinatesValueTo(y, x, true);
+                }
+            }
+        }
+        return ash;
+    }
+
+    private int freeLane() {
+        for (int plane = 0; plane < this.planes; plane++) {
+            if (this.activeLanes[plane] != -1L) {
+                return plane * LANES_PER_PLANE + Long.numberOfTrailingZeros(~this.activeLanes[plane]);
+            }
+        }
+        throw new IllegalStateException("No free lane, all " + this.lanes() + " have a world");
+    }
+
+    /**
+     * A world and how it ended.
+     */
+    public static final class Result {
+
+        private final long id;
+        private final int generations;
+        private final int period;
+        private final int population;
+        private final String ending;
+        private final BitGrid ash;
+
+        Result(long id, int generations, int period, int population, String ending, BitGrid ash) {
+            this.id = id;
+            this.generations = generations;
+            this.period = period;
+            this.population = population;
+            this.ending = ending;
+            this.ash = ash;
+        }
+
+        public long id() {
+            return this.id;
+        }
+
+        /**
+         * @return generation the repeat was found at, same as {@code Conways}, or the max {@code int}
+         */
+        public int generations() {
+            return this.generations;
+        }
+
+        public int period() {
+            return this.period;
+        }
+
+        public int population() {
+            return this.population;
+        }
+
+        public boolean isSettled() {
+            return this.period > 0;
+        }
+
+        public String describe() {
+            return this.ending;
+        }
+
+        /**
+         * @return the world's last generation, null unless the batch keeps the ash {@code BitGrid}
+         */
+        public BitGrid ash() {
+            return this.ash;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package org.ruitx;
+
+public enum BoundaryModeEnum {
+    DEAD(1, "Dead edges, nothing lives outside the world"),
+    TORUS(2, "Toroidal, edges wrap around to the opposite side"),
+    KLEIN(3, "Klein bottle, left and right wrap, top and bottom wrap mirrored");
+
+    private int id;
+    private String desc;
+
+    BoundaryModeEnum(int id, String desc) {
+        this.id = id;
+        this.desc = desc;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getDesc() {
+        return desc;
+    }
+
+    /**
+     * @return the mode after this one, wrapping around at the end {@code BoundaryModeEnum}
+     */
+    public BoundaryModeEnum next() {
+        return values()[(this.ordinal() + 1) % values().length];
+    }
+}
@@ -0,0 +1,288 @@
+package org.ruitx;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/**
+ * Binary snapshot of a world, to save a simulation and resume it later.
+ * Layout, big endian:
+ * <pre>
+ *  0  int    magic "JNWC"
+ *  4  short  version
+ *  6  short  flags: 1 has history, 2 unbounded grid
+ *  8  int    CRC32 of every byte after this field
+ * 12  int    lengthY, int lengthX
+ * 20  long   generation
+ * 28  int    minY, minX, maxY, maxX of the live cells (max below min when empty)
+ * 44  long   population
+ * 52  short  rule length, then the rule in UTF-8
+ *     cells  from the next multiple of 8: the bounding box, one bit per cell, rows of longs
+ *     history, when flagged, as written by {@code GenerationHistory}
+ * </pre>
+ * The cells are written and read through {@code MappedByteBuffer} windows of the file,
+ * so a large world goes straight between the grid and the page cache. Saving writes a
+ * temporary file and moves it over the old one, a crash never leaves half a checkpoint.
+ */
+public final class Checkpoint {
+
+    /**
+     * "JNWC"
+     */
+    private static final int MAGIC = 0x4A4E5743;
+    private static final short VERSION = 1;
+    private static final short FLAG_HISTORY = 1;
+    private static final short FLAG_UNBOUNDED = 2;
+    private static final int CHECKSUM_OFFSET = 8;
+    private static final int CHECKSUMMED_FROM = 12;
+    private static final int FIXED_HEADER_BYTES = 54;
+    private static final long MAP_WINDOW_BYTES = 1L << 30;
+
+    private final Grid grid;
+    private final long generation;
+    private final String rule;
+    private final GenerationHistory history;
+    private final boolean isBounded;
+
+    private Checkpoint(Grid grid, long generation, String rule, GenerationHistory history, boolean isBounded) {
+        this.grid = grid;
+        this.generation = generation;
+        this.rule = rule;
+        this.history = history;
+        this.isBounded = isBounded;
+    }
+
+    public Grid grid() {
+        return this.grid;
+    }
+
+    public long generation() {
+        return this.generation;
+    }
+
+    public String rule() {
+        return this.rule;
+    }
+
+    /**
+     * @return false if the world was saved from an unbounded grid {@code boolean}
+     */
+    public boolean isBounded() {
+        return this.isBounded;
+    }
+
+    /**
+     * @return history saved with the world, or null {@code GenerationHistory}
+     */
+    public GenerationHistory history() {
+        return this.history;
+    }
+
+    /**
+     * Saves a world.
+     *
+     * @param path       {@code Path}
+     * @param grid       {@code Grid}
+     * @param generation generation of the grid {@code long}
+     * @param rule       {@code String}
+     * @param history    generations leading to it, or null to save only the grid {@code GenerationHistory}
+     */
+    public static void save(Path path, Grid grid, long generation, String rule,
+                            GenerationHistory history) throws IOException {
+        int[] bounds = {Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE};
+        long[] population = {0};
+        grid.forEachLiveCell((y, x, isAlive) -> {
+            bounds[0] = Math.min(bounds[0], y);
+            bounds[1] = Math.min(bounds[1], x);
+            bounds[2] = Math.max(bounds[2], y);
+            bounds[3] = Math.max(bounds[3], x);
+            population[0]++;
+        });
+        if (population[0] == 0) {
+            bounds[0] = bounds[1] = 0;
+            bounds[2] = bounds[3] = -1;
+        }
+        CellLayout layout = new CellLayout(bounds[0], bounds[1], bounds[2], bounds[3],
+                                           cellsOffset(rule.getBytes(StandardCharsets.UTF_8).length));
+
+        Path temporaryPath = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporaryPath, StandardOpenOption.CREATE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING,
+                                                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            short flags = (short) ((history != null ? FLAG_HISTORY : 0) | (grid.isBounded() ? 0 : FLAG_UNBOUNDED));
+            writeHeader(channel, flags, grid, generation, rule, bounds, population[0]);
+
+            MappedByteBuffer[] windows = layout.map(channel, FileChannel.MapMode.READ_WRITE);
+            grid.forEachLiveCell((y, x, isAlive) -> layout.setBit(windows, y, x));
+
+            if (history != null) {
+                channel.position(layout.end());
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+                history.writeTo(out);
+                out.flush();
+            }
+
+            channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, checksum(channel)), CHECKSUM_OFFSET);
+            channel.force(true);
+        }
+        Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Loads a world saved with {@code save}.
+     *
+     * @param path               {@code Path}
+     * @param gridFactory        makes the grids for the saved size {@code PatternReader.GridFactory}
+     * @param historyGridFactory makes the grids the history replays on, called once the saved size
+     *                           has gone through {@code gridFactory} {@code Supplier<Grid>}
+     * @return checkpoint {@code Checkpoint}
+     * @throws IOException if the file can't be read, isn't a checkpoint or is corrupt
+     */
+    public static Checkpoint load(Path path, PatternReader.GridFactory gridFactory, Supplier<Grid> historyGridFactory)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(FIXED_HEADER_BYTES);
+            if (channel.read(header, 0) < FIXED_HEADER_BYTES || header.getInt(0) != MAGIC) {
+                throw new IOException("Not a checkpoint: " + path);
+            }
+            if (header.getShort(4) != VERSION) {
+                throw new IOException("Unsupported checkpoint version " + header.getShort(4));
+            }
+            if (header.getInt(CHECKSUM_OFFSET) != checksum(channel)) {
+                throw new IOException("Checkpoint is corrupt, checksum mismatch: " + path);
+            }
+
+            short flags = header.getShort(6);
+            int lengthY = header.getInt(12);
+            int lengthX = header.getInt(16);
+            long generation = header.getLong(20);
+            ByteBuffer ruleBytes = ByteBuffer.allocate(header.getShort(52));
+            channel.read(ruleBytes, FIXED_HEADER_BYTES);
+            String rule = new String(ruleBytes.array(), StandardCharsets.UTF_8);
+
+            CellLayout layout = new CellLayout(header.getInt(28), header.getInt(32), header.getInt(36),
+                                               header.getInt(40), cellsOffset(ruleBytes.capacity()));
+            Grid grid = gridFactory.newGrid(lengthY, lengthX);
+            layout.readCells(layout.map(channel, FileChannel.MapMode.READ_ONLY), grid);
+
+            GenerationHistory history = null;
+            if ((flags & FLAG_HISTORY) != 0) {
+                channel.position(layout.end());
+                DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+                history = GenerationHistory.readFrom(in, historyGridFactory, gridFactory.newGrid(lengthY, lengthX));
+            }
+            return new Checkpoint(grid, generation, rule, history, (flags & FLAG_UNBOUNDED) == 0);
+        }
+    }
+
+    private static void writeHeader(FileChannel channel, short flags, Grid grid, long generation, String rule,
+                                    int[] bounds, long population) throws IOException {
+        byte[] ruleBytes = rule.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer header = ByteBuffer.allocate(FIXED_HEADER_BYTES + ruleBytes.length);
+        header.putInt(MAGIC)
+              .putShort(VERSION)
+              .putShort(flags)
+              .putInt(0)
+              .putInt(grid.lengthY())
+              .putInt(grid.lengthX())
+              .putLong(generation);
+        for (int bound : bounds) {
+            header.putInt(bound);
+        }
+        header.putLong(population)
+              .putShort((short) ruleBytes.length)
+              .put(ruleBytes)
+              .flip();
+        channel.write(header, 0);
+    }
+
+    private static long cellsOffset(int ruleLength) {
+        return (FIXED_HEADER_BYTES + ruleLength + 7) & ~7L;
+    }
+
+    /**
+     * CRC32 of the file after the checksum field, read through mapped windows.
+     */
+    private static int checksum(FileChannel channel) throws IOException {
+        CRC32 crc = new CRC32();
+        long size = channel.size();
+        for (long position = CHECKSUMMED_FROM; position < size; position += MAP_WINDOW_BYTES) {
+            crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAP_WINDOW_BYTES, size - position)));
+        }
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Where each cell of the bounding box is in the file: row {@code y - minY}, bit
+     * {@code (x - minX) % 64} of long {@code (x - minX) / 64}, same packing as {@code BitGrid}.
+     */
+    private static final class CellLayout {
+
+        private final int minY;
+        private final int minX;
+        private final long rows;
+        private final long wordsPerRow;
+        private final long offset;
+        private final long bytes;
+
+        CellLayout(int minY, int minX, int maxY, int maxX, long offset) {
+            this.minY = minY;
+            this.minX = minX;
+            this.rows = Math.max((long) maxY - minY + 1, 0);
+            this.wordsPerRow = Math.max(((long) maxX - minX + 64) >>> 6, 0);
+            this.offset = offset;
+            this.bytes = this.rows * this.wordsPerRow * Long.BYTES;
+        }
+
+        long end() {
+            return this.offset + this.bytes;
+        }
+
+        MappedByteBuffer[] map(FileChannel channel, FileChannel.MapMode mode) throws IOException {
+            MappedByteBuffer[] windows = new MappedByteBuffer[(int) ((this.bytes + MAP_WINDOW_BYTES - 1) / MAP_WINDOW_BYTES)];
+            for (int i = 0; i < windows.length; i++) {
+                long start = i * MAP_WINDOW_BYTES;
+                windows[i] = channel.map(mode, this.offset + start, Math.min(MAP_WINDOW_BYTES, this.bytes - start));
+            }
+            return windows;
+        }
+
+        void setBit(MappedByteBuffer[] windows, int y, int x) {
+            long column = (long) x - this.minX;
+            long byteIndex = (((long) y - this.minY) * this.wordsPerRow + (column >>> 6)) * Long.BYTES;
+            MappedByteBuffer window = windows[(int) (byteIndex / MAP_WINDOW_BYTES)];
+            int index = (int) (byteIndex % MAP_WINDOW_BYTES);
+            window.putLong(index, window.getLong(index) | 1L << column);
+        }
+
+        void readCells(MappedByteBuffer[] windows, Grid grid) {
+            long byteIndex = 0;
+            for (long row = 0; row < this.rows; row++) {
+                for (long w = 0; w < this.wordsPerRow; w++, byteIndex += Long.BYTES) {
+                    long word = windows[(int) (byteIndex / MAP_WINDOW_BYTES)].getLong((int) (byteIndex % MAP_WINDOW_BYTES));
+                    for (; word != 0; word &= word - 1) {
+                        long y = this.minY + row;
+                        long x = this.minX + (w << 6) + Long.numberOfTrailingZeros(word);
+                        // an unbounded world resumed on a bounded grid keeps what fits
+                        if (!grid.isBounded() || y >= 0 && y < grid.lengthY() && x >= 0 && x < grid.lengthX()) {
+                            grid.setCoordinatesValueTo((int) y, (int) x, true);
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package org.ruitx;
+
+public enum ConsoleModeEnum {
+    PLAIN(1, "Plain, one frame after the other"),
+    INPLACE(2, "Redrawn in place (ANSI)"),
+    INPLACE_RLE(3, "Redrawn in place, runs of dead cells skipped (ANSI)"),
+    HALF_BLOCK(4, "Redrawn in place, two rows per character (ANSI)");
+
+    private int id;
+    private String desc;
+
+    ConsoleModeEnum(int id, String desc) {
+        this.id = id;
+        this.desc = desc;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getDesc() {
+        return desc;
+    }
+
+    /**
+     * @return the mode after this one, wrapping around at the end {@code ConsoleModeEnum}
+     */
+    public ConsoleModeEnum next() {
+        return values()[(this.ordinal() + 1) % values().length];
+    }
+}
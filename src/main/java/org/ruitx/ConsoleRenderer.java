@@ -0,0 +1,188 @@
+package org.ruitx;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Prints generations to the console, one write per frame.
+ * Each frame is encoded as UTF-8 into a byte buffer that's kept between frames, and
+ * written with a single call, instead of a formatted print per cell.
+ * Besides plain frames one after the other ({@code PLAIN}, same output as always), frames
+ * can be redrawn in place with ANSI cursor home, optionally skipping runs of dead cells
+ * ({@code INPLACE_RLE}: the run is erased and jumped over, and the dead end of a row is
+ * cleared in one go) or with two rows per character using half blocks ({@code HALF_BLOCK}).
+ */
+public class ConsoleRenderer {
+
+    private static final byte[] ALIVE = "☼".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] DEAD = " ".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] UPPER_HALF = "▀".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] LOWER_HALF = "▄".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] FULL_BLOCK = "█".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] PLAIN_ROW_END = " \n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] PLAIN_FRAME_END = " --- \n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CLEAR_SCREEN = "\033[2J".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CURSOR_HOME = "\033[H".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CLEAR_TO_LINE_END = "\033[K".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CLEAR_TO_SCREEN_END = "\033[J".getBytes(StandardCharsets.US_ASCII);
+    /**
+     * Shortest run of dead cells worth an erase and a jump instead of spaces.
+     */
+    private static final int MIN_SKIPPED_RUN = 8;
+
+    private final OutputStream out;
+    private final ConsoleModeEnum mode;
+
+    private byte[] frame;
+    private int length;
+    private boolean isScreenCleared;
+
+    public ConsoleRenderer(OutputStream out, ConsoleModeEnum mode) {
+        this.out = out;
+        this.mode = mode;
+        this.frame = new byte[4096];
+    }
+
+    /**
+     * Prints a generation.
+     *
+     * @param gameGrid {@code Grid}
+     */
+    public void render(Grid gameGrid) {
+        this.length = 0;
+        if (this.mode != ConsoleModeEnum.PLAIN) {
+            // the first in-place frame starts on a blank screen
+            if (!this.isScreenCleared) {
+                this.put(CLEAR_SCREEN);
+                this.isScreenCleared = true;
+            }
+            this.put(CURSOR_HOME);
+        }
+
+        switch (this.mode) {
+            case PLAIN:
+                this.encodePlain(gameGrid);
+                break;
+            case HALF_BLOCK:
+                this.encodeHalfBlocks(gameGrid);
+                break;
+            default:
+                this.encodeInPlace(gameGrid, this.mode == ConsoleModeEnum.INPLACE_RLE);
+        }
+
+        try {
+            this.out.write(this.frame, 0, this.length);
+            this.out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return bytes written for the last frame {@code int}
+     */
+    public int lastFrameBytes() {
+        return this.length;
+    }
+
+    private void encodePlain(Grid gameGrid) {
+        for (int y = 0; y < gameGrid.lengthY(); y++) {
+            for (int x = 0; x < gameGrid.lengthX(); x++) {
+                this.put(gameGrid.checkCoordinates(y, x) ? ALIVE : DEAD);
+            }
+            this.put(PLAIN_ROW_END);
+        }
+        this.put(PLAIN_FRAME_END);
+    }
+
+    private void encodeInPlace(Grid gameGrid, boolean isSkippingDeadRuns) {
+        for (int y = 0; y < gameGrid.lengthY(); y++) {
+            int x = 0;
+            while (x < gameGrid.lengthX()) {
+                if (gameGrid.checkCoordinates(y, x)) {
+                    this.put(ALIVE);
+                    x++;
+                    continue;
+                }
+                int runEnd = x + 1;
+                while (runEnd < gameGrid.lengthX() && !gameGrid.checkCoordinates(y, runEnd)) {
+                    runEnd++;
+                }
+                if (isSkippingDeadRuns && runEnd == gameGrid.lengthX()) {
+                    this.put(CLEAR_TO_LINE_END);
+                } else if (isSkippingDeadRuns && runEnd - x >= MIN_SKIPPED_RUN) {
+                    // erase the run, then move the cursor past it
+                    this.putEscape(runEnd - x, 'X');
+                    this.putEscape(runEnd - x, 'C');
+                } else {
+                    for (int i = x; i < runEnd; i++) {
+                        this.put(DEAD);
+                    }
+                }
+                x = runEnd;
+            }
+            this.put((byte) '\n');
+        }
+        this.put(CLEAR_TO_SCREEN_END);
+    }
+
+    private void encodeHalfBlocks(Grid gameGrid) {
+        for (int y = 0; y < gameGrid.lengthY(); y += 2) {
+            boolean hasLowerRow = y + 1 < gameGrid.lengthY();
+            for (int x = 0; x < gameGrid.lengthX(); x++) {
+                boolean isUpperAlive = gameGrid.checkCoordinates(y, x);
+                boolean isLowerAlive = hasLowerRow && gameGrid.checkCoordinates(y + 1, x);
+                if (isUpperAlive) {
+                    this.put(isLowerAlive ? FULL_BLOCK : UPPER_HALF);
+                } else {
+                    this.put(isLowerAlive ? LOWER_HALF : DEAD);
+                }
+            }
+            this.put((byte) '\n');
+        }
+        this.put(CLEAR_TO_SCREEN_END);
+    }
+
+    /**
+     * Puts {@code ESC [ count command}.
+     */
+    private void putEscape(int count, char command) {
+        this.put((byte) '\033');
+        this.put((byte) '[');
+        this.putNumber(count);
+        this.put((byte) command);
+    }
+
+    private void putNumber(int number) {
+        int digits = 1;
+        for (int rest = number / 10; rest != 0; rest /= 10) {
+            digits++;
+        }
+        this.ensureCapacity(digits);
+        for (int i = this.length + digits - 1; i >= this.length; i--) {
+            this.frame[i] = (byte) ('0' + number % 10);
+            number /= 10;
+        }
+        this.length += digits;
+    }
+
+    private void put(byte[] bytes) {
+        this.ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, this.frame, this.length, bytes.length);
+        this.length += bytes.length;
+    }
+
+    private void put(byte b) {
+        this.ensureCapacity(1);
+        this.frame[this.length++] = b;
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (this.length + bytes > this.frame.length) {
+            this.frame = Arrays.copyOf(this.frame, Math.max(this.frame.length << 1, this.length + bytes));
+        }
+    }
+}
@@ -1,8 +1,12 @@
 package org.ruitx;
 
 import java.io.*;
-import java.util.ArrayList;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.SplittableRandom;
 
 /**
  * Conway's Game of Life
@@ -13,11 +17,18 @@ import java.util.Iterator;
  * 2 - Any live cell with two or three live neighbors lives on to the next generation.
  * 3 - Any live cell with more than three live neighbors dies, as if by overpopulation.
  * 4 - Any dead cell with exactly three live neighbors becomes a live cell, as if by reproduction.
+ * Those are rule B3/S23, any other Life-like rule can be set instead ({@code Rule}).
  * How it works:
  * Make a grid, process the game and outputs it.
  * There is no animation, it just loops through all the generations and that's it.
+ * In streaming mode the world is simulated on its own thread while it's rendered ({@code GenerationStream}).
  * Game grid is a simple boolean array matrix, a 2d array.
  * If an index of the game grid is true, then a cell is alive, if not then it's dead.
+ * There is also a bit-packed backend ({@code BitGrid}), a sparse unbounded one ({@code SparseGrid})
+ * a tiled one that only steps where the world changes ({@code TiledGrid}) and an off-heap one for worlds
+ * larger than the heap ({@code OffHeapGrid}), selected with {@code GridBackendEnum}.
+ * The world size is set at runtime. Edges are dead by default, or wrap around as a torus or a Klein bottle
+ * ({@code BoundaryModeEnum}); wrapping edges always use the halo grid ({@code HaloGrid}).
  * The game grid starts at 0,0 and goes to, for example, 24, 80
  */
 public class Conways {
@@ -29,24 +40,59 @@ public class Conways {
                                                  "ruitx" + File.separator +
                                                  "maps" + File.separator;
 
-    private static final int MAX_SIMULATIONS = 500;
-    private static final int RENDER_SPEED_IN_MILLIS = 100;
-
-    private static final int MAX_GRID_LENGTH_Y = 30;
-    private static final int MAX_GRID_LENGTH_X = 100;
-
-    //"█■☼Θ"
-    private static final String ALIVE_CHAR = "☼";
-    private static final String DEAD_CHAR = " ";
-
-    private GameGrid currentGameGrid;
-    private ArrayList<GameGrid> generations;
+    static final int MAX_SIMULATIONS = 500;
+    private static final double TARGET_FPS = 10;
+    private static final double RANDOM_MAP_DENSITY = 0.5;
+
+    private static final int DEFAULT_GRID_LENGTH_Y = 30;
+    private static final int DEFAULT_GRID_LENGTH_X = 100;
+
+    private GridBackendEnum gridBackend;
+    private BoundaryModeEnum boundaryMode;
+    private Rule rule;
+    private Path gridDirectory;
+    private StreamingModeEnum streamingMode;
+    private ConsoleModeEnum consoleMode;
+    private ConsoleRenderer consoleRenderer;
+    private ParallelStepper parallelStepper;
+    private CycleDetector cycleDetector;
+    private SplittableRandom random;
+    private double randomMapDensity;
+    private Grid currentGameGrid;
+    private int gridLengthY;
+    private int gridLengthX;
+    private int worldLengthY;
+    private int worldLengthX;
+    private GenerationHistory generations;
     private int currentWorldGenerations;
     private String currentWorldPath;
+    private Path checkpointPath;
+    private int checkpointInterval;
+    private GenerationBroadcaster broadcaster;
+    private Grid replayGrid;
 
     public Conways() {
-        this.currentGameGrid = new GameGrid();
-        this.generations = new ArrayList<>();
+        this(ParallelStepper.shared());
+    }
+
+    /**
+     * @param parallelStepper steps bit-packed grids {@code ParallelStepper}
+     */
+    Conways(ParallelStepper parallelStepper) {
+        this.gridBackend = GridBackendEnum.BOXED;
+        this.boundaryMode = BoundaryModeEnum.DEAD;
+        this.rule = Rule.CONWAY;
+        this.streamingMode = StreamingModeEnum.OFF;
+        this.consoleMode = ConsoleModeEnum.PLAIN;
+        this.random = new SplittableRandom();
+        this.randomMapDensity = RANDOM_MAP_DENSITY;
+        this.parallelStepper = parallelStepper;
+        this.gridLengthY = DEFAULT_GRID_LENGTH_Y;
+        this.gridLengthX = DEFAULT_GRID_LENGTH_X;
+        this.worldLengthY = this.gridLengthY;
+        this.worldLengthX = this.gridLengthX;
+        this.currentGameGrid = this.newGrid();
+        this.generations = new GenerationHistory(this::newReplayGrid);
         this.currentWorldPath = "";
         this.currentWorldGenerations = 0;
     }
@@ -55,60 +101,278 @@ public class Conways {
         return "This is a Conways Class";
     }
 
+    /**
+     * How the last simulation ended: number of generations and the repeat that stopped it.
+     */
+    public String simulationSummary() {
+        if (this.cycleDetector == null) {
+            return "Not simulated yet";
+        }
+        String summary = this.generations.size() + " generations, " + this.cycleDetector.describe();
+        if (this.currentGameGrid instanceof TiledGrid tiledGrid) {
+            summary += ", tiles awake/sleeping: " + tiledGrid.awakeTileSteps() + "/" + tiledGrid.sleepingTileSteps();
+        }
+        return summary + ", ash: " + this.describeAsh();
+    }
+
+    /**
+     * @return the objects left in the last generation, like "2 block, 1 blinker" {@code String}
+     */
+    private String describeAsh() {
+        int period = this.cycleDetector.isCycleFound() ? this.cycleDetector.period() : 0;
+        return AshCensus.describe(new AshCensus(this.rule).add(this.currentGameGrid, period));
+    }
+
     private void resetGenerations() {
-        this.generations = new ArrayList<>();
+        this.generations = new GenerationHistory(this::newReplayGrid);
     }
 
-    public String loadMap() {
-        this.resetGenerations();
-        GameGrid newGameGrid = new GameGrid();
+    /**
+     * Grids the history rebuilds generations on. Off-heap worlds are too big for a new grid per
+     * replay (two planes in direct memory, or a mapped file), they're all rebuilt on one grid,
+     * cleared each time, which only lives as long as the world size.
+     */
+    private Grid newReplayGrid() {
+        if (this.gridBackend != GridBackendEnum.OFFHEAP || this.boundaryMode != BoundaryModeEnum.DEAD) {
+            return this.newGrid();
+        }
+        if (this.replayGrid == null || this.replayGrid.lengthY() != this.worldLengthY
+            || this.replayGrid.lengthX() != this.worldLengthX) {
+            this.replayGrid = this.newGrid();
+        } else {
+            this.replayGrid.clear();
+        }
+        return this.replayGrid;
+    }
 
-        String currentFilePath = this.pickMapFile();
-        if (currentFilePath == null) {
-            return null;
+    /**
+     * Edges that wrap need the halo grid, whatever the backend.
+     * Off-heap grids are memory-mapped in the grid directory, if there is one.
+     */
+    private Grid newGrid() {
+        if (this.boundaryMode != BoundaryModeEnum.DEAD) {
+            return new HaloGrid(this.worldLengthY, this.worldLengthX, this.boundaryMode);
+        }
+        if (this.gridBackend == GridBackendEnum.OFFHEAP && this.gridDirectory != null) {
+            try {
+                return OffHeapGrid.mapped(this.worldLengthY, this.worldLengthX, this.gridDirectory);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
         }
+        return this.gridBackend.newGrid(this.worldLengthY, this.worldLengthX);
+    }
+
+    /**
+     * Same as {@code newGrid().isBounded()}, without making a world: wrapping edges always use the halo grid.
+     */
+    private boolean isWorldBounded() {
+        return this.boundaryMode != BoundaryModeEnum.DEAD || this.gridBackend.isBounded();
+    }
+
+    /**
+     * Off-heap grids go in memory-mapped files in {@code directory} instead of direct memory.
+     *
+     * @param directory {@code Path}
+     */
+    public void setGridDirectory(Path directory) {
+        this.gridDirectory = directory;
+    }
+
+    /**
+     * Random worlds are always the grid size, loaded ones grow to fit their pattern.
+     */
+    private void resetWorldSize() {
+        this.worldLengthY = this.gridLengthY;
+        this.worldLengthX = this.gridLengthX;
+    }
 
-        BufferedReader reader = null;
+    /**
+     * Sets the size of the world, takes effect on the next loaded or generated world.
+     *
+     * @param lengthY {@code int}
+     * @param lengthX {@code int}
+     */
+    public void setGridSize(int lengthY, int lengthX) {
+        if (lengthY < 1 || lengthX < 1) {
+            throw new IllegalArgumentException("Grid must be at least 1x1: " + lengthY + "x" + lengthX);
+        }
+        this.gridLengthY = lengthY;
+        this.gridLengthX = lengthX;
+        this.resetWorldSize();
+    }
+
+    /**
+     * Switches to the next boundary mode.
+     * Takes effect on the next loaded or generated world.
+     */
+    public String switchBoundaryMode() {
+        this.boundaryMode = this.boundaryMode.next();
+        return "Edges: " + this.boundaryMode.getDesc();
+    }
+
+    /**
+     * Sets the boundary mode, takes effect on the next loaded or generated world.
+     *
+     * @param boundaryMode {@code BoundaryModeEnum}
+     */
+    public void setBoundaryMode(BoundaryModeEnum boundaryMode) {
+        this.boundaryMode = boundaryMode;
+    }
+
+    /**
+     * Switches to the next grid backend.
+     * Takes effect on the next loaded or generated world.
+     */
+    public String switchGridBackend() {
+        this.gridBackend = this.gridBackend.next();
+        if (this.gridBackend == GridBackendEnum.HALO) {
+            return "Grid backend: " + this.gridBackend.getDesc() + " (" + HaloGrid.kernelDescription() + ")";
+        }
+        return "Grid backend: " + this.gridBackend.getDesc();
+    }
+
+    /**
+     * Sets the grid backend, takes effect on the next loaded or generated world.
+     *
+     * @param gridBackend {@code GridBackendEnum}
+     */
+    public void setGridBackend(GridBackendEnum gridBackend) {
+        this.gridBackend = gridBackend;
+    }
+
+    /**
+     * Switches to the next streaming mode.
+     * Takes effect on the next loaded or generated world.
+     */
+    public String switchStreamingMode() {
+        this.streamingMode = this.streamingMode.next();
+        return "Streaming: " + this.streamingMode.getDesc();
+    }
+
+    /**
+     * Asks for a rule in B/S notation, used from the next loaded or generated world.
+     */
+    public String changeRule() {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
         try {
-            reader = new BufferedReader(new FileReader(currentFilePath));
-        } catch (FileNotFoundException e) {
-            System.out.println("Error: " + e.getMessage());
+            System.out.print("[rule]> ");
+            this.rule = Rule.parse(reader.readLine());
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Something went wrong. Please try again.\nDetails: " + e.getMessage());
+            return null;
         }
+        return "Rule: " + this.rule;
+    }
 
-        String currentFileLine = "";
-        int line = 0;
+    /**
+     * Sets the rule, used from the next loaded or generated world.
+     *
+     * @param rule {@code Rule}
+     */
+    public void setRule(Rule rule) {
+        this.rule = rule;
+    }
 
-        while (true) {
-            try {
-                if (!((currentFileLine = reader.readLine()) != null)) break;
-            } catch (IOException e) {
-                System.out.println("Error: " + e.getMessage());
-            }
+    /**
+     * @return rule the next world is simulated with, it may come from the last loaded file {@code Rule}
+     */
+    Rule rule() {
+        return this.rule;
+    }
 
-            String[] currentFileLineArray = currentFileLine.split("");
+    /**
+     * Sends every generation that's printed or drawn to the broadcaster's viewers too.
+     *
+     * @param broadcaster null for none {@code GenerationBroadcaster}
+     */
+    public void setBroadcaster(GenerationBroadcaster broadcaster) {
+        this.broadcaster = broadcaster;
+    }
 
-            int xSize = currentFileLineArray.length;
-            if (xSize > MAX_GRID_LENGTH_X)  {
-                xSize = MAX_GRID_LENGTH_X;
-            }
+    /**
+     * Switches to the next console output mode, used when printing.
+     */
+    public String switchConsoleMode() {
+        this.consoleMode = this.consoleMode.next();
+        return "Console output: " + this.consoleMode.getDesc();
+    }
 
-            for (int x = 0; x < xSize; x++) {
-                newGameGrid.setCoordinatesValueTo(line, x, currentFileLineArray[x].equals("*"));
-            }
+    /**
+     * Sets the chance of a cell starting alive on random worlds.
+     *
+     * @param randomMapDensity between 0 and 1 {@code double}
+     */
+    public void setRandomMapDensity(double randomMapDensity) {
+        if (randomMapDensity < 0 || randomMapDensity > 1) {
+            throw new IllegalArgumentException("Density must be between 0 and 1: " + randomMapDensity);
+        }
+        this.randomMapDensity = randomMapDensity;
+    }
 
-            line++;
-            if (line > MAX_GRID_LENGTH_Y)  {
-                break;
-            }
+    /**
+     * @return oldest generation the history still has, the one rendering starts at {@code Grid}
+     */
+    private Grid firstGameGrid() {
+        return this.generations.isEmpty() ? this.currentGameGrid
+                                          : this.generations.get(this.generations.firstAvailableGeneration());
+    }
+
+    public String loadMap() {
+        this.resetGenerations();
+
+        String currentFilePath = this.pickMapFile();
+        if (currentFilePath == null) {
+            return null;
+        }
+
+        Grid newGameGrid;
+        try {
+            newGameGrid = this.readPattern(Path.of(currentFilePath));
+        } catch (IOException e) {
+            System.out.println("Something went wrong. Please try again.\nDetails: " + e.getMessage());
+            return null;
         }
 
         this.generations.add(newGameGrid);
         this.currentGameGrid = newGameGrid;
-        this.simulateMap();
+        this.simulateMapUnlessStreaming();
 
         return currentFilePath;
     }
 
+    /**
+     * Reads a pattern file (plaintext, RLE, Life 1.06 or Macrocell, see {@code PatternReader}).
+     * The world grows to fit the pattern, it's never smaller than the grid size.
+     * A rule given in the file becomes the rule.
+     *
+     * @param path {@code Path}
+     * @return gameGrid {@code Grid}
+     */
+    Grid readPattern(Path path) throws IOException {
+        PatternReader patternReader = new PatternReader(path);
+        Grid gameGrid = patternReader.read((lengthY, lengthX) -> {
+            this.worldLengthY = Math.max(lengthY, this.gridLengthY);
+            this.worldLengthX = Math.max(lengthX, this.gridLengthX);
+            return this.newGrid();
+        });
+        if (patternReader.rule() != null) {
+            this.adoptRule(patternReader.rule());
+        }
+        return gameGrid;
+    }
+
+    /**
+     * Switches to a rule that came with a world, if it's one we can simulate.
+     */
+    private void adoptRule(String notation) {
+        try {
+            this.rule = Rule.parse(notation);
+        } catch (IllegalArgumentException e) {
+            System.out.println("Can't simulate rule " + notation + ", simulating with " + this.rule);
+        }
+    }
+
     public void printMap() {
         this.printCurrentMap();
     }
@@ -117,31 +381,246 @@ public class Conways {
         this.drawCurrentMap();
     }
 
+    /**
+     * Writes every generation of the current world to a file, as fast as they come
+     * (see {@code GenerationDump}).
+     */
+    public String dumpGenerations() {
+        Path path = this.pickPath("[dump]> ", false);
+        if (path == null) {
+            return null;
+        }
+        Iterator<Grid> iterator = this.renderIterator();
+        long generation = this.generations.firstAvailableGeneration();
+        try (GenerationDump generationDump = new GenerationDump(path)) {
+            while (iterator.hasNext()) {
+                generationDump.write(iterator.next(), generation++);
+            }
+            this.finishRender(iterator);
+            return generationDump.generations() + " generations written to " + path;
+        } catch (IOException e) {
+            this.finishRender(iterator);
+            System.out.println("Something went wrong. Please try again.\nDetails: " + e.getMessage());
+            return null;
+        }
+    }
+
     /**
      *
      */
     public String generateRandomMap() {
         this.resetGenerations();
+        this.resetWorldSize();
         this.generateRandomMapGrid();
+        this.simulateMapUnlessStreaming();
         return "Random Map with " + this.generations.size() + " generations";
     }
 
     /**
-     *
+     * Generates random worlds until one settles within {@code MAX_SIMULATIONS}.
+     * The search runs on all cores with {@code SoupSearch}; the first settled soup
+     * is rebuilt from its seed on the current backend and simulated as usual.
      */
     public String generateRandomStableMap() {
+        SoupSearch soupSearch = new SoupSearch(this.gridLengthY, this.gridLengthX, this.randomMapDensity,
+                                               MAX_SIMULATIONS, Runtime.getRuntime().availableProcessors(),
+                                               this.isWorldBounded(), this.boundaryMode, this.rule,
+                                               this.random.nextLong());
+        soupSearch.start(-1);
+        SoupSearch.Result result;
+        try {
+            result = soupSearch.takeResult();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            soupSearch.stop();
+        }
+        if (result == null) {
+            return null;
+        }
+        this.currentWorldGenerations = (int) soupSearch.triedSoups();
 
         this.resetGenerations();
-        this.generateRandomMapGrid();
+        this.resetWorldSize();
+        this.currentGameGrid = this.newGrid();
+        SoupSearch.fillSoup(this.currentGameGrid, result.seed(), this.randomMapDensity);
+        this.simulateMap();
+
+        return "Random Stable Map with " + this.generations.size() + " generations (seed " + result.seed()
+               + ", " + this.currentWorldGenerations + " soups tried)";
+    }
 
-        if (this.generations.size() == MAX_SIMULATIONS ) {
-            this.currentWorldGenerations++;
-            System.out.print(" " + this.currentWorldGenerations + " ");
-            this.generateRandomStableMap();
+    /**
+     * Runs a soup search on all cores and reports soups per second and how long soups take to settle.
+     */
+    public String searchSoups() {
+        Long soups = this.pickNumber("[soups]> ");
+        if (soups == null) {
+            return null;
         }
+        SoupSearch soupSearch = new SoupSearch(this.gridLengthY, this.gridLengthX, this.randomMapDensity,
+                                               MAX_SIMULATIONS, Runtime.getRuntime().availableProcessors(),
+                                               this.isWorldBounded(), this.boundaryMode, this.rule,
+                                               this.random.nextLong());
+        soupSearch.start(soups);
+        try {
+            soupSearch.awaitCompletion();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return soupSearch.report();
+    }
 
-        this.currentWorldGenerations = 0;
-        return "Random Stable Map with " + this.generations.size() + " generations";
+    /**
+     * Jumps the current world forward with {@code HashLife}.
+     * HashLife works on an unbounded plane with dead cells all around, the sparse backend's
+     * world, where a jump gives the same world as stepping. On a bounded grid with dead edges
+     * nothing is clipped while jumping: cells that leave the grid keep living, and can come
+     * back, so the result can differ from stepping as many generations, and the message says so.
+     * Torus and Klein bottle edges wrap, which HashLife can't do, so the jump is refused there.
+     * The jumped world, cut to the grid when it's bounded, becomes the new first generation
+     * and is simulated from there as usual.
+     */
+    public String jumpGenerations() {
+        if (this.boundaryMode != BoundaryModeEnum.DEAD) {
+            System.out.println("Something went wrong. Please try again.\nDetails: HashLife can't wrap "
+                               + this.boundaryMode.name().toLowerCase() + " edges, switch to dead edges to jump.");
+            return null;
+        }
+        Long generationsToJump = this.pickNumber("[generations]> ");
+        if (generationsToJump == null) {
+            return null;
+        }
+
+        HashLife hashLife = new HashLife(this.rule);
+        hashLife.loadGrid(this.firstGameGrid());
+        hashLife.advance(generationsToJump);
+
+        Grid newGameGrid = this.newGrid();
+        hashLife.copyInto(newGameGrid, 0, 0);
+
+        this.resetGenerations();
+        this.generations.add(newGameGrid);
+        this.currentGameGrid = newGameGrid;
+        this.simulateMapUnlessStreaming();
+
+        String jumped = "Generation " + hashLife.generation() + " with " + hashLife.population() + " live cells";
+        if (!newGameGrid.isBounded()) {
+            return jumped;
+        }
+        long[] population = {0};
+        newGameGrid.forEachLiveCell((y, x, isAlive) -> population[0]++);
+        return jumped + " on an unbounded plane, " + population[0] + " of them inside the grid"
+               + " (the dead edges only apply after the jump, stepping can end up elsewhere)";
+    }
+
+    /**
+     * Saves the current world and its history to a checkpoint file.
+     */
+    public String saveCheckpoint() {
+        Path path = this.pickPath("[checkpoint]> ", false);
+        if (path == null) {
+            return null;
+        }
+        try {
+            this.writeCheckpoint(path);
+        } catch (IOException e) {
+            System.out.println("Something went wrong. Please try again.\nDetails: " + e.getMessage());
+            return null;
+        }
+        return "Saved generation " + this.currentGeneration() + " to " + path;
+    }
+
+    /**
+     * Resumes a world saved with {@code saveCheckpoint}, and goes on simulating it
+     * from the saved generation.
+     */
+    public String resumeCheckpoint() {
+        Path path = this.pickPath("[checkpoint]> ", true);
+        if (path == null) {
+            return null;
+        }
+        Checkpoint checkpoint;
+        try {
+            checkpoint = Checkpoint.load(path, (lengthY, lengthX) -> {
+                this.worldLengthY = lengthY;
+                this.worldLengthX = lengthX;
+                return this.newGrid();
+            }, this::newReplayGrid);
+        } catch (IOException e) {
+            System.out.println("Something went wrong. Please try again.\nDetails: " + e.getMessage());
+            return null;
+        }
+        this.adoptRule(checkpoint.rule());
+
+        if (checkpoint.history() != null) {
+            this.generations = checkpoint.history();
+        } else {
+            this.resetGenerations();
+            this.generations.add(checkpoint.grid());
+        }
+        this.currentGameGrid = checkpoint.grid();
+        this.simulateMapUnlessStreaming();
+
+        return path + " (resumed at generation " + checkpoint.generation() + ")";
+    }
+
+    /**
+     * Saves a checkpoint every {@code interval} simulated generations, over the same file.
+     *
+     * @param path     {@code Path}
+     * @param interval {@code int}
+     */
+    public void setAutoCheckpoint(Path path, int interval) {
+        if (interval < 1) {
+            throw new IllegalArgumentException("Checkpoint interval must be at least 1");
+        }
+        this.checkpointPath = path;
+        this.checkpointInterval = interval;
+    }
+
+    private void writeCheckpoint(Path path) throws IOException {
+        Checkpoint.save(path, this.currentGameGrid, this.currentGeneration(), this.rule.toString(), this.generations);
+    }
+
+    /**
+     * @return generation of the current grid, the last one in the history {@code int}
+     */
+    private int currentGeneration() {
+        return Math.max(this.generations.size() - 1, 0);
+    }
+
+    private Path pickPath(String prompt, boolean mustExist) {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
+        try {
+            System.out.print(prompt);
+            Path path = Path.of(reader.readLine().trim());
+            if (mustExist && !Files.exists(path)) {
+                System.out.println("Something went wrong. Please try again.\nDetails: File does not exist.");
+                return null;
+            }
+            return path;
+        } catch (IOException | InvalidPathException e) {
+            System.out.println("Something went wrong. Please try again.\nDetails: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private Long pickNumber(String prompt) {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
+        try {
+            System.out.print(prompt);
+            long number = Long.parseLong(reader.readLine().trim());
+            if (number < 0) {
+                System.out.println("Something went wrong. Please try again.\nDetails: Number can't be negative.");
+                return null;
+            }
+            return number;
+        } catch (IOException | NumberFormatException e) {
+            System.out.println("Something went wrong. Please try again.\nDetails: " + e.getMessage());
+            return null;
+        }
     }
 
     private String pickMapFile() {
@@ -166,33 +645,95 @@ public class Conways {
     }
 
     /**
-     * Process's the game next generation.
-     * The meat and potatoes of the game.
-     * It checks for the 4 rules on each cell of the game grid.
-     * After it generates a new game grid with the new generation.
-     */
-    private GameGrid nextGeneration() {
-        GameGrid newGameGrid = new GameGrid();
-
-        for (int y = 0; y < this.currentGameGrid.lengthY(); y++) {
-            for (int x = 0; x < this.currentGameGrid.lengthX(); x++) {
-                // if cell is alive
-                if (this.currentGameGrid.checkCoordinates(y, x)) {
-                    if (checkIfCellIsGoingToDie(y, x)) {
-                        newGameGrid.setCoordinatesValueTo(y, x, false);
-                    }
-                    if (checkIfCellStaysAlive(y, x)) {
-                        newGameGrid.setCoordinatesValueTo(y, x, true);
-                    }
-                    // if cell is dead
-                } else {
-                    if (checkIfCellIsGoingToBirth(y, x)) {
-                        newGameGrid.setCoordinatesValueTo(y, x, true);
-                    }
-                }
-            }
+     * Process's the next generation of a given grid, which becomes the current one.
+     *
+     * @param gameGrid {@code Grid}
+     * @return newGameGrid {@code Grid}
+     */
+    Grid nextGeneration(Grid gameGrid) {
+        this.currentGameGrid = gameGrid;
+        return this.nextGeneration();
+    }
+
+    /**
+     * Process's the next generation of a given grid into {@code spareGrid}, which becomes the current one.
+     * The spare grid comes from {@code newSpareGrid}, or is the grid before {@code gameGrid}, and
+     * is overwritten: stepping back and forth between two grids like this allocates nothing
+     * (bit-packed grids big enough to step in parallel still allocate their stripe tasks).
+     * Keep a grid with {@code GenerationHistory} before it's overwritten, not a reference to it.
+     * Without a spare grid the next generation is a new grid, same as {@code nextGeneration}.
+     *
+     * @param gameGrid  {@code Grid}
+     * @param spareGrid grid to overwrite, or null {@code Grid}
+     * @return newGameGrid, {@code spareGrid} if there is one {@code Grid}
+     */
+    Grid nextGeneration(Grid gameGrid, Grid spareGrid) {
+        if (spareGrid == null) {
+            return this.nextGeneration(gameGrid);
+        }
+        this.currentGameGrid = gameGrid;
+        if (gameGrid instanceof BitGrid bitGrid) {
+            this.parallelStepper.nextGeneration(bitGrid, (BitGrid) spareGrid, this.rule);
+        } else if (gameGrid instanceof HaloGrid haloGrid) {
+            haloGrid.nextGeneration((HaloGrid) spareGrid, this.rule);
+        } else {
+            ((GameGrid) gameGrid).nextGeneration((GameGrid) spareGrid, this.rule);
+        }
+        return spareGrid;
+    }
+
+    /**
+     * A grid to step {@code gameGrid} into with {@code nextGeneration(gameGrid, spareGrid)}.
+     * Null for the backends that can't step into another grid: sparse and tiled grids
+     * build their next generation, off-heap grids are double-buffered on their own.
+     *
+     * @param gameGrid {@code Grid}
+     * @return spareGrid, or null {@code Grid}
+     */
+    Grid newSpareGrid(Grid gameGrid) {
+        if (gameGrid instanceof BitGrid) {
+            return new BitGrid(gameGrid.lengthY(), gameGrid.lengthX());
+        }
+        if (gameGrid instanceof HaloGrid haloGrid) {
+            return new HaloGrid(gameGrid.lengthY(), gameGrid.lengthX(), haloGrid.boundaryMode());
         }
+        if (gameGrid instanceof GameGrid) {
+            return new GameGrid(gameGrid.lengthY(), gameGrid.lengthX());
+        }
+        return null;
+    }
+
+    private Grid nextGeneration() {
+        return nextGeneration(this.currentGameGrid, this.rule, this.parallelStepper);
+    }
 
+    /**
+     * Process's the next generation of a grid into a new one, touching nothing of a {@code Conways},
+     * so it can run on another thread ({@code GenerationStream}).
+     *
+     * @param gameGrid        {@code Grid}
+     * @param rule            {@code Rule}
+     * @param parallelStepper steps bit-packed grids {@code ParallelStepper}
+     * @return newGameGrid {@code Grid}
+     */
+    private static Grid nextGeneration(Grid gameGrid, Rule rule, ParallelStepper parallelStepper) {
+        if (gameGrid instanceof BitGrid bitGrid) {
+            return parallelStepper.nextGeneration(bitGrid, rule);
+        }
+        if (gameGrid instanceof SparseGrid sparseGrid) {
+            return sparseGrid.nextGeneration(rule);
+        }
+        if (gameGrid instanceof TiledGrid tiledGrid) {
+            return tiledGrid.nextGeneration(rule);
+        }
+        if (gameGrid instanceof HaloGrid haloGrid) {
+            return haloGrid.nextGeneration(rule);
+        }
+        if (gameGrid instanceof OffHeapGrid offHeapGrid) {
+            return offHeapGrid.nextGeneration(rule);
+        }
+        GameGrid newGameGrid = new GameGrid(gameGrid.lengthY(), gameGrid.lengthX());
+        ((GameGrid) gameGrid).nextGeneration(newGameGrid, rule);
         return newGameGrid;
     }
 
@@ -200,65 +741,134 @@ public class Conways {
      * Prints the current game grid.
      * If current cell is false, then it's a dead cell.
      * If current cell is true, then it's an alive cell.
+     * Each frame is built by {@code ConsoleRenderer} and written in one go, in the console mode.
      * Note: some characters won't work well on Windows.
      */
-    private void printGrid(GameGrid gameGrid) {
-        for (int y = 0; y < gameGrid.lengthY(); y++) {
-            //System.out.print("|");
-            for (int x = 0; x < gameGrid.lengthX(); x++) {
-                if (gameGrid.checkCoordinates(y, x)) {
-                    System.out.printf("%1s", ALIVE_CHAR);
-                } else {
-                    System.out.printf("%1s", DEAD_CHAR);
-                }
-
-            }
-            System.out.println(" ");
+    void printGrid(Grid gameGrid) {
+        if (this.consoleRenderer == null) {
+            this.consoleRenderer = new ConsoleRenderer(System.out, this.consoleMode);
         }
-        System.out.println(" --- ");
+        this.consoleRenderer.render(gameGrid);
     }
 
     /**
      * Generates a random map grid.
      * It randomizes each time the game is run.
-     * Simple randomness: Gets a number between 0 and {@code gridLengthY} * {@code gridLengthX};
-     * If is an even number, the cell is alive, if not then it's dead.
+     * Each cell is alive with a chance of {@code randomMapDensity}, drawn from a seed
+     * so the world can be rebuilt with {@code SoupSearch.fillSoup}.
      */
     private void generateRandomMapGrid() {
-        // random map grid
-        for (int y = 0; y < this.currentGameGrid.lengthY(); y++) {
-            for (int x = 0; x < this.currentGameGrid.lengthX(); x++) {
-                int chance = (int) Math.floor(Math.random() * (this.currentGameGrid.lengthY() * this.currentGameGrid.lengthX()));
-                if (chance % 2 == 0) {
-                    this.currentGameGrid.setCoordinatesValueTo(y, x, false);
-                } else {
-                    this.currentGameGrid.setCoordinatesValueTo(y, x, true);
-                }
-            }
-        }
+        this.currentGameGrid = this.newGrid();
+        SoupSearch.fillSoup(this.currentGameGrid, this.random.nextLong(), this.randomMapDensity);
+    }
 
-        this.simulateMap();
+    /**
+     * Simulates a world on its own, the way a loaded map is, for checks against the batch engines.
+     * The world is stepped over, pass one that isn't needed afterwards.
+     *
+     * @param world generation 0 {@code Grid}
+     * @return generations simulated, counted like {@code BitSlicedBatch.Result.generations()} {@code int}
+     */
+    int simulate(Grid world) {
+        this.resetGenerations();
+        this.generations.add(world);
+        this.currentGameGrid = world;
+        return this.simulateMap();
     }
 
+    /**
+     * @return detector of the last simulation, with how it ended {@code CycleDetector}
+     */
+    CycleDetector cycleDetector() {
+        return this.cycleDetector;
+    }
+
+    /**
+     * In streaming mode the world is simulated when it's rendered, not here.
+     */
+    private void simulateMapUnlessStreaming() {
+        if (!this.isStreaming()) {
+            this.simulateMap();
+        } else {
+            this.cycleDetector = null;
+        }
+    }
+
+    /**
+     * Simulates the current world until it repeats itself or {@code MAX_SIMULATIONS} is reached.
+     * Steps back and forth between the current grid and a spare one where the backend can,
+     * the history keeps each generation as the cells that changed.
+     * Repeats are found by {@code CycleDetector}: still lifes, oscillators of any period and
+     * spaceships (the whole world repeating somewhere else). A still life is also confirmed
+     * with {@code compareGameGrid}, the only repeat we can check against the current grid.
+     */
     private int simulateMap() {
+        this.cycleDetector = new CycleDetector(this.currentGameGrid);
+        SimulationProbe probe = new SimulationProbe(this.currentGameGrid.getClass().getSimpleName(), this.rule);
+        Grid spareGrid = this.newSpareGrid(this.currentGameGrid);
 
         for (int i = 0; i < MAX_SIMULATIONS; i++) {
-            GameGrid newGameGrid = this.nextGeneration();
-            if (this.compareGameGrid(this.currentGameGrid, newGameGrid)) {
-                //System.out.println("End of simulation found at simulation nº " + i + ": Found equal game grid.");
-                return i;
+            GenerationEvent event = probe.beginStep();
+            Grid newGameGrid = this.nextGeneration(this.currentGameGrid, spareGrid);
+            probe.endStep(event);
+            boolean isRepeat = this.cycleDetector.update(this.currentGameGrid, newGameGrid);
+            probe.recordGeneration(event, i + 1, this.cycleDetector);
+            if (isRepeat) {
+                boolean isStillLife = this.cycleDetector.period() == 1
+                                      && this.cycleDetector.displacementY() == 0
+                                      && this.cycleDetector.displacementX() == 0;
+                if (!isStillLife || compareGameGrid(this.currentGameGrid, newGameGrid)) {
+                    //System.out.println("End of simulation found at simulation nº " + i + ": " + this.cycleDetector.describe());
+                    probe.finish(this.cycleDetector.describe(), this.cycleDetector, i + 1);
+                    return i;
+                }
             }
 
-            // sets the current game grid to the new game grid
+            // sets the current game grid to the new game grid, the old one is stepped into next
+            if (spareGrid != null) {
+                spareGrid = this.currentGameGrid;
+            }
             this.currentGameGrid = newGameGrid;
             this.generations.add(newGameGrid);
+
+            if (this.checkpointPath != null && this.generations.size() % this.checkpointInterval == 0) {
+                try {
+                    this.writeCheckpoint(this.checkpointPath);
+                } catch (IOException e) {
+                    System.out.println("Checkpoint failed: " + e.getMessage());
+                }
+            }
         }
 
         //System.out.println("End of simulation found at simulation nº " + MAX_SIMULATIONS + ": Max simulation times reached.");
+        probe.finish("max generations", this.cycleDetector, MAX_SIMULATIONS);
         return MAX_SIMULATIONS;
     }
 
-    private boolean compareGameGrid(GameGrid gameGrid1, GameGrid gameGrid2) {
+    /**
+     * Compares two grids cell by cell, touching nothing of a {@code Conways} ({@code GenerationStream}).
+     *
+     * @param gameGrid1 {@code Grid}
+     * @param gameGrid2 {@code Grid}
+     * @return true if every cell is the same {@code boolean}
+     */
+    static boolean compareGameGrid(Grid gameGrid1, Grid gameGrid2) {
+        if (gameGrid1 instanceof BitGrid bitGrid1 && gameGrid2 instanceof BitGrid bitGrid2) {
+            return bitGrid1.sameCells(bitGrid2);
+        }
+        if (gameGrid1 instanceof SparseGrid sparseGrid1 && gameGrid2 instanceof SparseGrid sparseGrid2) {
+            return sparseGrid1.sameCells(sparseGrid2);
+        }
+        if (gameGrid1 instanceof TiledGrid tiledGrid1 && gameGrid2 instanceof TiledGrid tiledGrid2) {
+            return tiledGrid1.sameCells(tiledGrid2);
+        }
+        if (gameGrid1 instanceof HaloGrid haloGrid1 && gameGrid2 instanceof HaloGrid haloGrid2) {
+            return haloGrid1.sameCells(haloGrid2);
+        }
+        if (gameGrid1 instanceof OffHeapGrid offHeapGrid1 && gameGrid2 instanceof OffHeapGrid offHeapGrid2) {
+            return offHeapGrid1.sameCells(offHeapGrid2);
+        }
+
         for (int i = 0; i < gameGrid1.lengthY(); i++) {
             for (int j = 0; j < gameGrid1.lengthX(); j++) {
                 if ((gameGrid1.checkCoordinates(i, j) != gameGrid2.checkCoordinates(i, j)))
@@ -270,337 +880,181 @@ public class Conways {
     }
 
     private void printCurrentMap() {
-        Iterator<GameGrid> iterator = this.generations.iterator();
+        this.consoleRenderer = new ConsoleRenderer(System.out, this.consoleMode);
+        FramePacer framePacer = new FramePacer(TARGET_FPS);
+        Iterator<Grid> iterator = this.renderIterator();
+        int generation = this.generations.firstAvailableGeneration();
         while (iterator.hasNext()) {
-            this.printGrid(iterator.next());
-            try {
-                Thread.sleep(RENDER_SPEED_IN_MILLIS);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+            Grid gameGrid = iterator.next();
+            this.broadcast(gameGrid, generation++);
+            if (framePacer.awaitFrame(isAhead(iterator))) {
+                this.printGrid(gameGrid);
             }
         }
+        this.finishRender(iterator);
     }
 
+    /**
+     * Draws the generations at {@code TARGET_FPS}, skipping the ones the terminal can't keep up with.
+     * The status line under the world has the frames per second actually drawn and the bytes
+     * sent to the terminal for the last frame, and the step latency when metrics are on.
+     */
     private void drawCurrentMap() {
-        Tui.init(MAX_GRID_LENGTH_X, MAX_GRID_LENGTH_Y);
-
-        Iterator<GameGrid> iterator = this.generations.iterator();
-        while (iterator.hasNext()) {
-            Tui.drawGrid(iterator.next());
-            try {
-                Thread.sleep(RENDER_SPEED_IN_MILLIS);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+        Tui.init(this.currentGameGrid.lengthX(), this.currentGameGrid.lengthY());
+
+        FramePacer framePacer = new FramePacer(TARGET_FPS);
+        Iterator<Grid> iterator = this.renderIterator();
+        int generation = this.generations.firstAvailableGeneration();
+        while (iterator.hasNext() && !Tui.isQuitRequested()) {
+            Grid gameGrid = iterator.next();
+            this.broadcast(gameGrid, generation);
+            if (framePacer.awaitFrame(isAhead(iterator))) {
+                String status = String.format("generation %d | %.1f fps | %d B/frame | %d skipped",
+                                              generation, framePacer.fps(), Tui.lastFrameBytes(),
+                                              framePacer.skippedFrames());
+                Tui.drawStatus(Metrics.isEnabled() ? status + " | " + Metrics.statusLine() : status);
+                Tui.drawGrid(gameGrid);
             }
+            generation++;
         }
         Tui.close();
+        this.finishRender(iterator);
     }
 
     /**
-     * Check if a cell is going to birth on the next generation.
-     * Rule 4: Any dead cell with exactly three live neighbors becomes a live cell, as if by reproduction.
-     * Counts the neighbors with {@code getCellNeighborsArray}.
-     *
-     * @param gridY {@code int}
-     * @param gridX {@code int}
-     * @return isGoingToBirth  {@code boolean}
-     */
-    private boolean checkIfCellIsGoingToBirth(int gridY, int gridX) {
-        boolean isGoingToBirth = false;
-        boolean[] neighborArray = getCellNeighborsArray(gridY, gridX);
-
-        int countLiveNeighbor = 0;
-        for (int i = 0; i < neighborArray.length; i++) {
-            if (neighborArray[i]) {
-                countLiveNeighbor++;
-            }
-        }
-
-        if (countLiveNeighbor == 3) {
-            isGoingToBirth = true;
+     * Every generation goes to the viewers, the skipped frames too: deltas need them all.
+     */
+    private void broadcast(Grid gameGrid, int generation) {
+        if (this.broadcaster != null) {
+            this.broadcaster.publish(gameGrid, generation);
         }
-
-        return isGoingToBirth;
     }
 
     /**
-     * Check if a cell is going to die on the next generation.
-     * Rule 1: Any live cell with fewer than two live neighbors dies, as if by underpopulation.
-     * Rule 3: Any live cell with more than three live neighbors dies, as if by overpopulation.
-     * Counts the neighbors with {@code getCellNeighborsArray}.
-     *
-     * @param gridY {@code int}
-     * @param gridX {@code int}
-     * @return isGoingToDie    {@code boolean}
-     */
-    private boolean checkIfCellIsGoingToDie(int gridY, int gridX) {
-        boolean isGoingToDie = false;
-        boolean[] neighborArray = getCellNeighborsArray(gridY, gridX);
-
-        int countLiveNeighbor = 0;
-        for (int i = 0; i < neighborArray.length; i++) {
-            if (neighborArray[i]) {
-                countLiveNeighbor++;
-            }
-        }
-
-        if (countLiveNeighbor < 2 || countLiveNeighbor > 3) {
-            isGoingToDie = true;
+     * The generations to render: replayed from the history, or in streaming mode
+     * simulated on a {@code GenerationStream} as they're rendered. Both start at the
+     * history's {@code firstAvailableGeneration()}, which is how they're numbered.
+     */
+    private Iterator<Grid> renderIterator() {
+        if (!this.isStreaming()) {
+            return this.generations.iterator(this.generations.firstAvailableGeneration());
         }
-
-        return isGoingToDie;
+        long maxGenerations = this.streamingMode == StreamingModeEnum.BOUNDED ? MAX_SIMULATIONS : -1;
+        SimulationProbe probe = new SimulationProbe(this.currentGameGrid.getClass().getSimpleName(), this.rule);
+        // the stream's thread gets the rule and stepper of this world, not this Conways, which goes on without it
+        Rule rule = this.rule;
+        ParallelStepper parallelStepper = this.parallelStepper;
+        return new GenerationStream(this.firstGameGrid(), grid -> nextGeneration(grid, rule, parallelStepper),
+                                    maxGenerations, probe);
     }
 
     /**
-     * Check if a cell is going to stay alive on the next generation.
-     * Rule 2: Any live cell with two or three live neighbors lives on to the next generation.
-     * Counts the neighbors with the result of {@code getCellNeighborsArray}.
-     *
-     * @param gridY {@code int}
-     * @param gridX {@code int}
-     * @return isAlive         {@code boolean}
-     */
-    private boolean checkIfCellStaysAlive(int gridY, int gridX) {
-        boolean isAlive = false;
-        boolean[] neighborArray = getCellNeighborsArray(gridY, gridX);
-
-        int countLiveNeighbor = 0;
-        for (int i = 0; i < neighborArray.length; i++) {
-            if (neighborArray[i]) {
-                countLiveNeighbor++;
-            }
-        }
-
-        if (countLiveNeighbor == 2 || countLiveNeighbor == 3) {
-            isAlive = true;
-        }
-
-        return isAlive;
+     * Off-heap grids only keep their last two generations, they can't be queued on a stream.
+     */
+    private boolean isStreaming() {
+        return this.streamingMode != StreamingModeEnum.OFF && !(this.currentGameGrid instanceof OffHeapGrid);
     }
 
     /**
-     * Check for a cell current neighbors.
-     * Each cell has 8 neighbors, which are the adjacent cells.
-     * We check for all of them and returns {@code []boolean}.
-     * If an index of the array is true, then has a neighbor.
-     *
-     * @param gridY {@code int}
-     * @param gridX {@code int}
-     * @return neighborsExistence  {@code []boolean}
-     */
-    private boolean[] getCellNeighborsArray(int gridY, int gridX) {
-        // clockwise check
-        // top          -> y-1, x
-        // top-right    -> y-1, x+1
-        // right        -> y, x+1
-        // down-right   -> y+1, x+1
-        // down         -> y+1, x
-        // down-left    -> y+1, x-1
-        // left         -> y, x-1
-        // top-left     -> y-1, x-1
-
-        // 8 possible neighbors
-        boolean[] neighborsExistence = new boolean[8];
-
-        neighborsExistence[0] = checkNeighborTop(gridY, gridX);
-        neighborsExistence[1] = checkNeighborTopRight(gridY, gridX);
-        neighborsExistence[2] = checkNeighborRight(gridY, gridX);
-        neighborsExistence[3] = checkNeighborDownRight(gridY, gridX);
-        neighborsExistence[4] = checkNeighborDown(gridY, gridX);
-        neighborsExistence[5] = checkNeighborDownLeft(gridY, gridX);
-        neighborsExistence[6] = checkNeighborLeft(gridY, gridX);
-        neighborsExistence[7] = checkNeighborTopLeft(gridY, gridX);
-
-        return neighborsExistence;
-    }
-
-    /**
-     * Check if a cell has a top neighbor.
-     *
-     * @param gridY {@code int}
-     * @param gridX {@code int}
-     * @return hasNeighbor     {@code boolean}
-     */
-    private boolean checkNeighborTop(int gridY, int gridX) {
-        boolean hasNeighbor = false;
-        // top          -> y-1, x
-        // out-of-bounds check
-        if (gridY - 1 >= 0) {
-            if (this.currentGameGrid.checkCoordinates(gridY - 1, gridX)) {
-                hasNeighbor = true;
-            }
-        }
-        return hasNeighbor;
+     * The history is always ahead of the renderer, a stream only when it has generations queued.
+     */
+    private static boolean isAhead(Iterator<Grid> iterator) {
+        return !(iterator instanceof GenerationStream generationStream) || generationStream.hasBufferedGenerations();
     }
 
-    /**
-     * Check if a cell has a top right neighbor.
-     *
-     * @param gridY {@code int}
-     * @param gridX {@code int}
-     * @return hasNeighbor     {@code boolean}
-     */
-    private boolean checkNeighborTopRight(int gridY, int gridX) {
-        boolean hasNeighbor = false;
-        // top-right    -> y-1, x+1
-        // out-of-bounds check
-        if (gridY - 1 >= 0 && gridX + 1 < this.currentGameGrid.lengthX()) {
-            if (this.currentGameGrid.checkCoordinates(gridY - 1, gridX + 1)) {
-                hasNeighbor = true;
-            }
+    private void finishRender(Iterator<Grid> iterator) {
+        if (iterator instanceof GenerationStream generationStream) {
+            // close waits for the stream's thread, its detector and count are final after it
+            generationStream.close();
+            this.cycleDetector = generationStream.cycleDetector();
+            System.out.println("Streamed " + generationStream.producedGenerations() + " generations, "
+                               + this.cycleDetector.describe());
         }
-        return hasNeighbor;
     }
 
-    /**
-     * Check if a cell has a right neighbor.
-     *
-     * @param gridY {@code int}
-     * @param gridX {@code int}
-     * @return hasNeighbor     {@code boolean}
-     */
-    private boolean checkNeighborRight(int gridY, int gridX) {
-        boolean hasNeighbor = false;
-        // right        -> y, x+1
-        // out-of-bounds check
-        if (gridX + 1 < this.currentGameGrid.lengthX()) {
-            if (this.currentGameGrid.checkCoordinates(gridY, gridX + 1)) {
-                hasNeighbor = true;
-            }
-        }
-        return hasNeighbor;
-    }
+    public static class GameGrid implements Grid {
 
-    /**
-     * Check if a cell has a down right neighbor.
-     *
-     * @param gridY {@code int}
-     * @param gridX {@code int}
-     * @return hasNeighbor     {@code boolean}
-     */
-    private boolean checkNeighborDownRight(int gridY, int gridX) {
-        boolean hasNeighbor = false;
-        // down-right   -> y+1, x+1
-        // out-of-bounds check
-        if (gridY + 1 < this.currentGameGrid.lengthY() && gridX + 1 < this.currentGameGrid.lengthX()) {
-            if (this.currentGameGrid.checkCoordinates(gridY + 1, gridX + 1)) {
-                hasNeighbor = true;
-            }
-        }
-        return hasNeighbor;
-    }
+        private int gridLengthY;
+        private int gridLengthX;
+        private Boolean[][] gameGrid;
 
-    /**
-     * Check if a cell has a down neighbor.
-     *
-     * @param gridY {@code int}
-     * @param gridX {@code int}
-     * @return hasNeighbor     {@code boolean}
-     */
-    private boolean checkNeighborDown(int gridY, int gridX) {
-        boolean hasNeighbor = false;
-        // down         -> y+1, x
-        // out-of-bounds check
-        if (gridY + 1 < this.currentGameGrid.lengthY()) {
-            if (this.currentGameGrid.checkCoordinates(gridY + 1, gridX)) {
-                hasNeighbor = true;
-            }
+        public GameGrid() {
+            this(DEFAULT_GRID_LENGTH_Y, DEFAULT_GRID_LENGTH_X);
         }
-        return hasNeighbor;
-    }
 
-    /**
-     * Check if a cell has a down left neighbor.
-     *
-     * @param gridY {@code int}
-     * @param gridX {@code int}
-     * @return hasNeighbor     {@code boolean}
-     */
-    private boolean checkNeighborDownLeft(int gridY, int gridX) {
-        boolean hasNeighbor = false;
-        // down-left    -> y+1, x-1
-        // out-of-bounds check
-        if (gridY + 1 < this.currentGameGrid.lengthY() && gridX - 1 >= 0) {
-            if (this.currentGameGrid.checkCoordinates(gridY + 1, gridX - 1)) {
-                hasNeighbor = true;
-            }
-        }
-        return hasNeighbor;
-    }
+        public GameGrid(int lengthY, int lengthX) {
+            this.gridLengthY = lengthY;
+            this.gridLengthX = lengthX;
+            this.gameGrid = new Boolean[gridLengthY][gridLengthX];
 
-    /**
-     * Check if a cell has a left neighbor.
-     *
-     * @param gridY {@code int}
-     * @param gridX {@code int}
-     * @return hasNeighbor     {@code boolean}
-     */
-    private boolean checkNeighborLeft(int gridY, int gridX) {
-        boolean hasNeighbor = false;
-        // left         -> y, x-1
-        // out-of-bounds check
-        if (gridX - 1 >= 0) {
-            if (this.currentGameGrid.checkCoordinates(gridY, gridX - 1)) {
-                hasNeighbor = true;
-            }
+            this.initGrid();
         }
-        return hasNeighbor;
-    }
 
-    /**
-     * Check if a cell has a top left neighbor.
-     *
-     * @param gridY {@code int}
-     * @param gridX {@code int}
-     * @return hasNeighbor     {@code boolean}
-     */
-    private boolean checkNeighborTopLeft(int gridY, int gridX) {
-        boolean hasNeighbor = false;
-        // top-left     -> y-1, x-1
-        // out-of-bounds check
-        if (gridY - 1 >= 0 && gridX - 1 >= 0) {
-            if (this.currentGameGrid.checkCoordinates(gridY - 1, gridX - 1)) {
-                hasNeighbor = true;
+        /**
+         * Process's the next generation into {@code next}, a grid of the same size.
+         * Neighbors are read straight from the rows around the cell, three cells per row,
+         * and packed into the {@code Rule} neighborhood; nothing is allocated (the booleans
+         * set are the two cached {@code Boolean}s).
+         *
+         * @param next {@code GameGrid}
+         * @param rule {@code Rule}
+         */
+        void nextGeneration(GameGrid next, Rule rule) {
+            if (next.gridLengthY != this.gridLengthY || next.gridLengthX != this.gridLengthX) {
+                throw new IllegalArgumentException("Next grid must have the same size");
+            }
+            for (int y = 0; y < this.gridLengthY; y++) {
+                Boolean[] above = y > 0 ? this.gameGrid[y - 1] : null;
+                Boolean[] row = this.gameGrid[y];
+                Boolean[] below = y + 1 < this.gridLengthY ? this.gameGrid[y + 1] : null;
+                Boolean[] nextRow = next.gameGrid[y];
+                for (int x = 0; x < this.gridLengthX; x++) {
+                    int neighborhood = threeCells(above, x) | threeCells(row, x) << 3 | threeCells(below, x) << 6;
+                    nextRow[x] = rule.nextState(neighborhood);
+                }
             }
         }
-        return hasNeighbor;
-    }
-
-    public static class GameGrid {
 
-        private int gridLengthY;
-        private int gridLengthX;
-        private Boolean[][] gameGrid;
-
-        public GameGrid() {
-            this.gridLengthY = MAX_GRID_LENGTH_Y;
-            this.gridLengthX = MAX_GRID_LENGTH_X;
-            this.gameGrid = new Boolean[gridLengthY][gridLengthX];
-
-            this.initGrid();
+        /**
+         * @return cells {@code x - 1}, {@code x} and {@code x + 1} of a row in bits 0 to 2, dead outside {@code int}
+         */
+        private int threeCells(Boolean[] row, int x) {
+            if (row == null) {
+                return 0;
+            }
+            int cells = row[x] ? 0b010 : 0;
+            if (x > 0 && row[x - 1]) {
+                cells |= 0b001;
+            }
+            if (x + 1 < this.gridLengthX && row[x + 1]) {
+                cells |= 0b100;
+            }
+            return cells;
         }
 
-        int lengthY() {
+        @Override
+        public int lengthY() {
             return this.gameGrid.length;
         }
 
-        int lengthX() {
+        @Override
+        public int lengthX() {
             return this.gameGrid[this.lengthY() - 1].length;
         }
 
-        boolean checkCoordinates(int y, int x) {
+        @Override
+        public boolean checkCoordinates(int y, int x) {
             return this.gameGrid[y][x];
         }
 
-        private void setCoordinatesValueTo(int y, int x, boolean value) {
+        @Override
+        public void setCoordinatesValueTo(int y, int x, boolean value) {
             this.gameGrid[y][x] = value;
         }
 
         private void initGrid() {
-            for (int y = 0; y < this.lengthY(); y++) {
-                for (int x = 0; x < this.lengthX(); x++) {
-                    this.setCoordinatesValueTo(y, x, false);
-                }
+            for (Boolean[] row : this.gameGrid) {
+                Arrays.fill(row, Boolean.FALSE);
             }
         }
     }
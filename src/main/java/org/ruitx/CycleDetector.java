@@ -0,0 +1,330 @@
+package org.ruitx;
+
+import java.util.Arrays;
+
+/**
+ * Detects when a world repeats itself: still lifes, oscillators and spaceships.
+ * Keeps a 64 bit fingerprint of the grid, Zobrist style: every live cell adds a term
+ * to the fingerprint and every change adds or removes one, so updating it only costs
+ * the cells that changed. The term of a cell is {@code ROW_BASE^y * COLUMN_BASE^x}
+ * (mod 2^64), which makes moving the whole world by dy,dx the same as multiplying the
+ * fingerprint by {@code ROW_BASE^dy * COLUMN_BASE^dx}. Dividing by the powers of the
+ * top left corner of the live cells gives a fingerprint that doesn't change when the
+ * world moves, so a glider gets the same one every 4 generations.
+ * Each generation looks up that fingerprint in a fingerprint -> generation index,
+ * the first hit gives the period and how far the world moved.
+ * Two different worlds with the same 64 bit fingerprint would be taken as a repeat;
+ * the odds are negligible for the runs we do.
+ */
+public class CycleDetector {
+
+    private static final long ROW_BASE = 0x9E3779B97F4A7C15L;
+    private static final long COLUMN_BASE = 0xD6E8FEB86659FD93L;
+    private static final long ROW_BASE_INVERSE = inverse(ROW_BASE);
+    private static final long COLUMN_BASE_INVERSE = inverse(COLUMN_BASE);
+
+    private final PowerTable rowPowers;
+    private final PowerTable columnPowers;
+    private final CountLine rowCounts;
+    private final CountLine columnCounts;
+    private final LongIntHashMap firstGenerationByFingerprint;
+
+    private long fingerprint;
+    private int generation;
+    private int[] minYs;
+    private int[] minXs;
+
+    private int population;
+    private int births;
+    private int deaths;
+
+    private int period;
+    private int firstGeneration;
+    private int displacementY;
+    private int displacementX;
+
+    public CycleDetector(Grid firstGrid) {
+        this.rowPowers = new PowerTable(ROW_BASE, ROW_BASE_INVERSE);
+        this.columnPowers = new PowerTable(COLUMN_BASE, COLUMN_BASE_INVERSE);
+        this.rowCounts = new CountLine();
+        this.columnCounts = new CountLine();
+        this.firstGenerationByFingerprint = new LongIntHashMap(256);
+        this.minYs = new int[256];
+        this.minXs = new int[256];
+
+        firstGrid.forEachLiveCell(this::flip);
+        this.record(this.rowCounts.min(), this.columnCounts.min());
+    }
+
+    /**
+     * Updates the fingerprint with the cells that changed between two generations
+     * and checks if the new generation was seen before (possibly somewhere else).
+     *
+     * @param previousGrid {@code Grid}
+     * @param nextGrid     {@code Grid}
+     * @return true if the new generation repeats an earlier one {@code boolean}
+     */
+    public boolean update(Grid previousGrid, Grid nextGrid) {
+        this.beginUpdate();
+        previousGrid.forEachDifference(nextGrid, this::flip);
+        this.generation++;
+        return this.record(this.rowCounts.min(), this.columnCounts.min());
+    }
+
+    /**
+     * Starts an update fed cell by cell with {@code change} and ended with {@code endUpdate},
+     * for engines that find the changed cells and the top left corner of the live cells
+     * themselves ({@code BitSlicedBatch}). Skips the row and column counts of {@code update}.
+     */
+    void beginUpdate() {
+        this.births = 0;
+        this.deaths = 0;
+    }
+
+    /**
+     * @param y       {@code int}
+     * @param x       {@code int}
+     * @param isAlive new state of a cell that changed {@code boolean}
+     */
+    void change(int y, int x, boolean isAlive) {
+        long term = this.rowPowers.power(y) * this.columnPowers.power(x);
+        if (isAlive) {
+            this.fingerprint += term;
+            this.births++;
+            this.population++;
+        } else {
+            this.fingerprint -= term;
+            this.deaths++;
+            this.population--;
+        }
+    }
+
+    /**
+     * @param minY top row with a live cell, 0 if there are none {@code int}
+     * @param minX left column with a live cell, 0 if there are none {@code int}
+     * @return true if the new generation repeats an earlier one {@code boolean}
+     */
+    boolean endUpdate(int minY, int minX) {
+        this.generation++;
+        return this.record(minY, minX);
+    }
+
+    public boolean isCycleFound() {
+        return this.period > 0;
+    }
+
+    public int period() {
+        return this.period;
+    }
+
+    /**
+     * @return generation where the repeating part starts {@code int}
+     */
+    public int firstGeneration() {
+        return this.firstGeneration;
+    }
+
+    public int displacementY() {
+        return this.displacementY;
+    }
+
+    public int displacementX() {
+        return this.displacementX;
+    }
+
+    public int population() {
+        return this.population;
+    }
+
+    /**
+     * @return cells that came alive in the last update {@code int}
+     */
+    public int births() {
+        return this.births;
+    }
+
+    /**
+     * @return cells that died in the last update {@code int}
+     */
+    public int deaths() {
+        return this.deaths;
+    }
+
+    public String describe() {
+        if (!this.isCycleFound()) {
+            return "no repeat found";
+        }
+        if (this.population() == 0) {
+            return "died out";
+        }
+        if (this.displacementY != 0 || this.displacementX != 0) {
+            return "spaceship, period " + this.period
+                   + ", moving " + this.displacementY + "," + this.displacementX;
+        }
+        if (this.period == 1) {
+            return "still life";
+        }
+        return "oscillator, period " + this.period;
+    }
+
+    private void flip(int y, int x, boolean isAlive) {
+        this.change(y, x, isAlive);
+        this.rowCounts.add(y, isAlive ? 1 : -1);
+        this.columnCounts.add(x, isAlive ? 1 : -1);
+    }
+
+    private boolean record(int minY, int minX) {
+        long normalized = mix(this.fingerprint * this.rowPowers.power(-minY) * this.columnPowers.power(-minX));
+
+        int seenAt = this.firstGenerationByFingerprint.get(normalized, -1);
+        if (seenAt >= 0) {
+            this.period = this.generation - seenAt;
+            this.firstGeneration = seenAt;
+            this.displacementY = minY - this.minYs[seenAt];
+            this.displacementX = minX - this.minXs[seenAt];
+            return true;
+        }
+
+        this.firstGenerationByFingerprint.put(normalized, this.generation);
+        if (this.generation == this.minYs.length) {
+            this.minYs = Arrays.copyOf(this.minYs, this.generation << 1);
+            this.minXs = Arrays.copyOf(this.minXs, this.generation << 1);
+        }
+        this.minYs[this.generation] = minY;
+        this.minXs[this.generation] = minX;
+        return false;
+    }
+
+    /**
+     * Spreads the bits, and keeps clear of the hash set empty marker.
+     */
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        return value == LongHashSet.EMPTY ? value + 1 : value;
+    }
+
+    /**
+     * Inverse of an odd number mod 2^64, Newton's iteration (each round doubles the correct bits).
+     */
+    private static long inverse(long value) {
+        long inverse = value;
+        for (int i = 0; i < 5; i++) {
+            inverse *= 2 - value * inverse;
+        }
+        return inverse;
+    }
+
+    /**
+     * Powers of a base, positive and negative exponents, cached as they're asked for.
+     */
+    private static final class PowerTable {
+
+        private static final int MAX_CACHED = 1 << 20;
+
+        private final long base;
+        private final long inverse;
+        private long[] positive;
+        private long[] negative;
+
+        PowerTable(long base, long inverse) {
+            this.base = base;
+            this.inverse = inverse;
+            this.positive = new long[]{1};
+            this.negative = new long[]{1};
+        }
+
+        long power(int exponent) {
+            if (exponent >= 0) {
+                if (exponent < this.positive.length) {
+                    return this.positive[exponent];
+                }
+                if (exponent >= MAX_CACHED) {
+                    return pow(this.base, exponent);
+                }
+                this.positive = grow(this.positive, this.base, exponent);
+                return this.positive[exponent];
+            }
+            int magnitude = -exponent;
+            if (magnitude < this.negative.length) {
+                return this.negative[magnitude];
+            }
+            if (magnitude >= MAX_CACHED) {
+                return pow(this.inverse, magnitude);
+            }
+            this.negative = grow(this.negative, this.inverse, magnitude);
+            return this.negative[magnitude];
+        }
+
+        private static long[] grow(long[] powers, long base, int exponent) {
+            int length = Math.max(powers.length << 1, exponent + 1);
+            long[] grown = Arrays.copyOf(powers, length);
+            for (int i = powers.length; i < length; i++) {
+                grown[i] = grown[i - 1] * base;
+            }
+            return grown;
+        }
+
+        private static long pow(long base, long exponent) {
+            long result = 1;
+            while (exponent != 0) {
+                if ((exponent & 1) != 0) {
+                    result *= base;
+                }
+                base *= base;
+                exponent >>>= 1;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Live cells per row (or column), so the top left corner of the live cells is known
+     * without scanning the grid. Grows in both directions for unbounded grids.
+     */
+    private static final class CountLine {
+
+        private int[] counts;
+        private int origin;
+        private int minIndex;
+        private int total;
+
+        CountLine() {
+            this.counts = new int[64];
+            this.origin = 0;
+            this.minIndex = this.counts.length;
+        }
+
+        void add(int coordinate, int delta) {
+            int index = coordinate - this.origin;
+            if (index < 0) {
+                int shift = Math.max(-index, this.counts.length);
+                int[] grown = new int[this.counts.length + shift];
+                System.arraycopy(this.counts, 0, grown, shift, this.counts.length);
+                this.counts = grown;
+                this.origin -= shift;
+                this.minIndex += shift;
+                index += shift;
+            } else if (index >= this.counts.length) {
+                this.counts = Arrays.copyOf(this.counts, Math.max(index + 1, this.counts.length << 1));
+            }
+
+            this.counts[index] += delta;
+            this.total += delta;
+            if (delta > 0 && index < this.minIndex) {
+                this.minIndex = index;
+            }
+        }
+
+        int min() {
+            if (this.total == 0) {
+                return 0;
+            }
+            while (this.counts[this.minIndex] == 0) {
+                this.minIndex++;
+            }
+            return this.minIndex + this.origin;
+        }
+    }
+}
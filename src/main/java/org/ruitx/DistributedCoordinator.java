@@ -0,0 +1,557 @@
+package org.ruitx;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulates one world on several worker processes ({@code DistributedWorker}), each owning
+ * a band of rows. Every generation the coordinator sends each worker the two halo rows it
+ * needs, the last row of the band above and the first row of the band below (wrapped
+ * around, and mirrored by the worker, for torus and Klein bottle worlds, dead rows for
+ * dead edges), and waits for all of them to answer with their new edge rows: that round
+ * trip is the barrier between generations. The answers also carry each band's population
+ * and whether it changed, so the run stops when the world dies out or stands still, or
+ * after {@code maxGenerations}. Oscillators and spaceships run to the end, there's no
+ * {@code CycleDetector} across bands.
+ * The coordinator only keeps those edge rows, two per band: the world is handed out when
+ * the workers connect and only comes back when {@code gatherWorld} asks for it, so it's
+ * never held in one process while it runs.
+ * Every {@code rebalanceInterval} generations the step times of the workers are compared,
+ * and if the slowest one took more than {@code REBALANCE_TOLERANCE} over the mean the
+ * boundaries between bands move toward a split in proportion to how fast each worker went:
+ * a band gives the rows past its new boundary to its neighbor, relayed a row at a time.
+ * Workers can be spawned as JVMs on this machine or started by hand with {@code --worker}.
+ */
+public class DistributedCoordinator implements AutoCloseable {
+
+    static final double REBALANCE_TOLERANCE = 0.2;
+    private static final long CONNECT_TIMEOUT_MILLIS = 30_000;
+    private static final long EXIT_TIMEOUT_MILLIS = 5_000;
+
+    private final int lengthY;
+    private final int lengthX;
+    private final Rule rule;
+    private final BoundaryModeEnum boundaryMode;
+    private final int workers;
+    private final int rebalanceInterval;
+    private final byte[] deadRow;
+    private final byte[][] firstRows;
+    private final byte[][] lastRows;
+    private final long[] stepNanos;
+    private final List<Process> processes;
+
+    private ServerSocketChannel server;
+    private SocketAddress address;
+    private SocketChannel[] channels;
+    private DataInputStream[] ins;
+    private DataOutputStream[] outs;
+    private int[] bandRows;
+    private Grid seed;
+
+    private long generation;
+    private long population;
+    private boolean isChanged;
+    private String stopReason;
+    private int rebalances;
+    private long startNanos;
+    private long endNanos;
+
+    /**
+     * @param world             generation 0, only read until the workers have it {@code Grid}
+     * @param rule              {@code Rule}
+     * @param boundaryMode      {@code BoundaryModeEnum}
+     * @param workers           bands, at most one per row {@code int}
+     * @param rebalanceInterval generations between load checks, 0 for none {@code int}
+     */
+    public DistributedCoordinator(Grid world, Rule rule, BoundaryModeEnum boundaryMode, int workers,
+                                  int rebalanceInterval) {
+        if (workers < 1 || workers > world.lengthY()) {
+            throw new IllegalArgumentException("Workers must be between 1 and the rows of the world: " + workers);
+        }
+        this.lengthY = world.lengthY();
+        this.lengthX = world.lengthX();
+        this.seed = world;
+        this.rule = rule;
+        this.boundaryMode = boundaryMode;
+        this.workers = workers;
+        this.rebalanceInterval = rebalanceInterval;
+        int rowBytes = DistributedProtocol.rowBytes(world.lengthX());
+        this.deadRow = new byte[rowBytes];
+        this.firstRows = new byte[workers][rowBytes];
+        this.lastRows = new byte[workers][rowBytes];
+        this.stepNanos = new long[workers];
+        this.processes = new ArrayList<>();
+    }
+
+    /**
+     * @param address where workers connect, port 0 for any free one {@code SocketAddress}
+     * @return the address listened on {@code SocketAddress}
+     */
+    public SocketAddress listen(SocketAddress address) throws IOException {
+        this.server = DistributedProtocol.listen(address);
+        this.address = this.server.getLocalAddress();
+        return this.address;
+    }
+
+    /**
+     * Starts the workers as JVMs on this machine, with this classpath, writing to this console.
+     */
+    public void spawnWorkers() throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        if (HaloGrid.VECTOR_LANES > 0) {
+            command.add("--add-modules=jdk.incubator.vector");
+        }
+        command.addAll(List.of("-cp", System.getProperty("java.class.path"), Main.class.getName(),
+                               "--worker", DistributedProtocol.formatAddress(this.address)));
+        for (int i = 0; i < this.workers; i++) {
+            this.processes.add(new ProcessBuilder(command).inheritIO().start());
+        }
+    }
+
+    /**
+     * Waits for every worker to connect and hands out the world in even bands.
+     *
+     * @throws IOException if they don't all connect within {@code CONNECT_TIMEOUT_MILLIS}
+     */
+    public void connectWorkers() throws IOException {
+        this.channels = new SocketChannel[this.workers];
+        this.ins = new DataInputStream[this.workers];
+        this.outs = new DataOutputStream[this.workers];
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CONNECT_TIMEOUT_MILLIS);
+        int connected = 0;
+        this.server.configureBlocking(false);
+        try (Selector selector = Selector.open()) {
+            this.server.register(selector, SelectionKey.OP_ACCEPT);
+            while (connected < this.workers) {
+                long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingMillis <= 0) {
+                    throw new IOException(connected + " of " + this.workers + " workers connected in time");
+                }
+                selector.select(remainingMillis);
+                selector.selectedKeys().clear();
+                SocketChannel channel;
+                while (connected < this.workers && (channel = this.server.accept()) != null) {
+                    this.channels[connected] = DistributedProtocol.configure(channel);
+                    this.ins[connected] = DistributedProtocol.input(channel);
+                    this.outs[connected] = DistributedProtocol.output(channel);
+                    if (this.ins[connected].readInt() != DistributedProtocol.MAGIC
+                        || this.ins[connected].readInt() != DistributedProtocol.VERSION) {
+                        throw new IOException("Not a worker of this version connected from "
+                                              + channel.getRemoteAddress());
+                    }
+                    connected++;
+                }
+                for (Process process : this.processes) {
+                    if (!process.isAlive()) {
+                        throw new IOException("A worker exited with status " + process.exitValue());
+                    }
+                }
+            }
+        }
+        this.load(split(this.lengthY, evenWeights(this.workers)));
+    }
+
+    /**
+     * Steps the world until it dies out, stands still or reaches {@code maxGenerations}.
+     *
+     * @param maxGenerations {@code long}
+     * @return generations stepped {@code long}
+     */
+    public long run(long maxGenerations) throws IOException {
+        this.startNanos = System.nanoTime();
+        this.stopReason = "max generations";
+        while (this.generation < maxGenerations) {
+            this.step();
+            if (this.population == 0) {
+                this.stopReason = "died out";
+                break;
+            }
+            if (!this.isChanged) {
+                this.stopReason = "still life";
+                break;
+            }
+            if (this.rebalanceInterval > 0 && this.generation % this.rebalanceInterval == 0) {
+                this.rebalanceIfUneven();
+            }
+        }
+        this.endNanos = System.nanoTime();
+        return this.generation;
+    }
+
+    /**
+     * Asks every worker for its band, the only time the whole world is in this process.
+     *
+     * @return the current generation {@code Grid}
+     */
+    public Grid gatherWorld() throws IOException {
+        for (DataOutputStream out : this.outs) {
+            out.writeByte(DistributedProtocol.GATHER);
+            out.flush();
+        }
+        Grid world = new BitGrid(this.lengthY, this.lengthX);
+        byte[] row = new byte[this.deadRow.length];
+        int y = 0;
+        for (int i = 0; i < this.workers; i++) {
+            DataInputStream in = this.ins[i];
+            for (int end = y + this.readRowCount(i, this.bandRows[i]); y < end; y++) {
+                in.readFully(row);
+                for (int x = 0; x < this.lengthX; x++) {
+                    if ((row[x >>> 3] >>> (x & 7) & 1) != 0) {
+                        world.setCoordinatesValueTo(y, x, true);
+                    }
+                }
+            }
+        }
+        return world;
+    }
+
+    public long generation() {
+        return this.generation;
+    }
+
+    public long population() {
+        return this.population;
+    }
+
+    public String stopReason() {
+        return this.stopReason;
+    }
+
+    public int rebalances() {
+        return this.rebalances;
+    }
+
+    /**
+     * @return rows of each worker's band, top to bottom {@code int[]}
+     */
+    public int[] bandRows() {
+        return this.bandRows.clone();
+    }
+
+    /**
+     * @return workers, bands, generations per second and how the run ended {@code String}
+     */
+    public String report() {
+        double seconds = (this.endNanos - this.startNanos) / 1e9;
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%dx%d world on %d workers at %s, bands of %s rows%n", this.lengthY,
+                                    this.lengthX, this.workers,
+                                    DistributedProtocol.formatAddress(this.address), Arrays.toString(this.bandRows)));
+        report.append(String.format("%d generations in %.0f ms, %.0f generations/s, rebalanced %d times%n",
+                                    this.generation, seconds * 1000, this.generation / seconds, this.rebalances));
+        report.append(String.format("Stopped: %s, population %d%n", this.stopReason, this.population));
+        return report.toString();
+    }
+
+    /**
+     * Stops the workers and closes the connections.
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.outs != null) {
+            for (DataOutputStream out : this.outs) {
+                if (out == null) {
+                    continue;
+                }
+                try {
+                    out.writeByte(DistributedProtocol.STOP);
+                    out.flush();
+                } catch (IOException e) {
+                    // the worker is gone already
+                }
+            }
+            for (SocketChannel channel : this.channels) {
+                if (channel != null) {
+                    channel.close();
+                }
+            }
+        }
+        if (this.server != null) {
+            this.server.close();
+            DistributedProtocol.unlink(this.address);
+        }
+        for (Process process : this.processes) {
+            try {
+                if (!process.waitFor(EXIT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Moves the boundaries between bands to give them the given rows, each band handing
+     * the rows past its new boundary to its neighbor.
+     *
+     * @param rows rows per worker, adding up to the world's rows, every band keeping at
+     *             least one of its rows ({@code limitShift}) {@code int[]}
+     */
+    void rebalance(int[] rows) throws IOException {
+        int[] from = starts(this.bandRows);
+        int[] to = starts(rows);
+        if (to[this.workers] != this.lengthY) {
+            throw new IllegalArgumentException("Bands must add up to " + this.lengthY + " rows: "
+                                               + Arrays.toString(rows));
+        }
+        for (int i = 1; i < this.workers; i++) {
+            if (to[i] >= to[i + 1] || to[i] <= from[i - 1] || to[i] >= from[i + 1]) {
+                throw new IllegalArgumentException("Rows can only move to a neighbor band: " + Arrays.toString(rows));
+            }
+        }
+        // top to bottom, a band never gives a row it has just taken
+        for (int i = 1; i < this.workers; i++) {
+            if (to[i] > from[i]) {
+                this.moveRows(i, i - 1, to[i] - from[i]);
+            } else if (to[i] < from[i]) {
+                this.moveRows(i - 1, i, from[i] - to[i]);
+            }
+        }
+        this.bandRows = rows.clone();
+        for (DataOutputStream out : this.outs) {
+            out.writeByte(DistributedProtocol.EDGES);
+            out.flush();
+        }
+        for (int i = 0; i < this.workers; i++) {
+            DistributedProtocol.expect(this.ins[i], DistributedProtocol.EDGE_ROWS);
+            this.ins[i].readFully(this.firstRows[i]);
+            this.ins[i].readFully(this.lastRows[i]);
+        }
+        this.rebalances++;
+    }
+
+    /**
+     * Limits a new split to what one rebalance can move: every band keeps at least one of
+     * its rows, so rows only ever move to a neighbor band. A longer move takes a few rebalances.
+     *
+     * @param rows   rows per band now {@code int[]}
+     * @param target rows per band wanted, adding up to the same {@code int[]}
+     * @return rows per band {@code int[]}
+     */
+    static int[] limitShift(int[] rows, int[] target) {
+        int[] from = starts(rows);
+        int[] to = starts(target);
+        for (int i = 1; i < rows.length; i++) {
+            to[i] = Math.max(from[i - 1] + 1, Math.min(to[i], from[i + 1] - 1));
+        }
+        int[] limited = new int[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            limited[i] = to[i + 1] - to[i];
+        }
+        return limited;
+    }
+
+    /**
+     * Splits {@code length} rows in proportion to the weights, at least one each.
+     *
+     * @param length  {@code int}
+     * @param weights one per band, not all 0 {@code double[]}
+     * @return rows per band {@code int[]}
+     */
+    static int[] split(int length, double[] weights) {
+        double total = 0;
+        for (double weight : weights) {
+            total += weight;
+        }
+        int[] parts = new int[weights.length];
+        int assigned = 0;
+        for (int i = 0; i < weights.length; i++) {
+            parts[i] = Math.max(1, (int) (length * weights[i] / total));
+            assigned += parts[i];
+        }
+        // rounding down leaves a few rows over, and at least one each may take a few too many
+        for (int i = 0; assigned < length; i = (i + 1) % parts.length) {
+            parts[i]++;
+            assigned++;
+        }
+        for (int i = 0; assigned > length; i = (i + 1) % parts.length) {
+            if (parts[i] > 1) {
+                parts[i]--;
+                assigned--;
+            }
+        }
+        return parts;
+    }
+
+    /**
+     * @param rows rows per band {@code int[]}
+     * @return first row of each band, then the rows of all of them {@code int[]}
+     */
+    private static int[] starts(int[] rows) {
+        int[] starts = new int[rows.length + 1];
+        for (int i = 0; i < rows.length; i++) {
+            starts[i + 1] = starts[i] + rows[i];
+        }
+        return starts;
+    }
+
+    private static double[] evenWeights(int workers) {
+        double[] weights = new double[workers];
+        Arrays.fill(weights, 1);
+        return weights;
+    }
+
+    private void step() throws IOException {
+        int last = this.workers - 1;
+        boolean isDead = this.boundaryMode == BoundaryModeEnum.DEAD;
+        for (int i = 0; i < this.workers; i++) {
+            DataOutputStream out = this.outs[i];
+            out.writeByte(DistributedProtocol.STEP);
+            out.write(i > 0 ? this.lastRows[i - 1] : isDead ? this.deadRow : this.lastRows[last]);
+            out.write(i < last ? this.firstRows[i + 1] : isDead ? this.deadRow : this.firstRows[0]);
+            out.flush();
+        }
+
+        long population = 0;
+        boolean isChanged = false;
+        for (int i = 0; i < this.workers; i++) {
+            DataInputStream in = this.ins[i];
+            DistributedProtocol.expect(in, DistributedProtocol.STEPPED);
+            population += in.readInt();
+            isChanged |= in.readBoolean();
+            this.stepNanos[i] += in.readLong();
+            in.readFully(this.firstRows[i]);
+            in.readFully(this.lastRows[i]);
+        }
+        this.population = population;
+        this.isChanged = isChanged;
+        this.generation++;
+    }
+
+    /**
+     * Moves rows toward the split in proportion to each worker's speed, rows per nanosecond
+     * of stepping, when the slowest one is too far behind the others.
+     */
+    private void rebalanceIfUneven() throws IOException {
+        long slowest = 0;
+        long total = 0;
+        for (long nanos : this.stepNanos) {
+            slowest = Math.max(slowest, nanos);
+            total += nanos;
+        }
+        double mean = (double) total / this.workers;
+        double[] speeds = new double[this.workers];
+        for (int i = 0; i < this.workers; i++) {
+            speeds[i] = this.bandRows[i] / (double) Math.max(this.stepNanos[i], 1);
+        }
+        Arrays.fill(this.stepNanos, 0);
+
+        if (this.workers > 1 && slowest > mean * (1 + REBALANCE_TOLERANCE)) {
+            // only half way to the split by speed, one noisy window shouldn't move every row
+            int[] target = split(this.lengthY, speeds);
+            double[] halfWay = new double[this.workers];
+            for (int i = 0; i < this.workers; i++) {
+                halfWay[i] = this.bandRows[i] + target[i];
+            }
+            int[] rows = limitShift(this.bandRows, split(this.lengthY, halfWay));
+            if (!Arrays.equals(rows, this.bandRows)) {
+                this.rebalance(rows);
+            }
+        }
+    }
+
+    /**
+     * Hands out the seed in bands of the given rows and lets go of it.
+     */
+    private void load(int[] rows) throws IOException {
+        this.bandRows = rows.clone();
+        byte[] row = new byte[this.deadRow.length];
+        long population = 0;
+        int y = 0;
+        for (int i = 0; i < this.workers; i++) {
+            DataOutputStream out = this.outs[i];
+            out.writeByte(DistributedProtocol.LOAD);
+            out.writeUTF(this.rule.toString());
+            out.writeByte(this.boundaryMode.ordinal());
+            out.writeInt(this.lengthX);
+            out.writeInt(rows[i]);
+            out.writeBoolean(i == 0 && this.boundaryMode == BoundaryModeEnum.KLEIN);
+            out.writeBoolean(i == this.workers - 1 && this.boundaryMode == BoundaryModeEnum.KLEIN);
+            int first = y;
+            for (int end = y + rows[i]; y < end; y++) {
+                this.packSeedRow(y, row);
+                out.write(row);
+                for (byte cells : row) {
+                    population += Integer.bitCount(cells & 0xFF);
+                }
+                if (y == first) {
+                    System.arraycopy(row, 0, this.firstRows[i], 0, row.length);
+                }
+            }
+            System.arraycopy(row, 0, this.lastRows[i], 0, row.length);
+            out.flush();
+        }
+        this.population = population;
+        this.seed = null;
+    }
+
+    /**
+     * Packs a row of the seed like {@code HaloGrid.packRow}.
+     */
+    private void packSeedRow(int y, byte[] packed) {
+        Arrays.fill(packed, (byte) 0);
+        for (int x = 0; x < this.lengthX; x++) {
+            if (this.seed.checkCoordinates(y, x)) {
+                packed[x >>> 3] |= (byte) (1 << (x & 7));
+            }
+        }
+    }
+
+    /**
+     * Relays rows from the edge of one band to the facing edge of its neighbor, a row at a time.
+     *
+     * @param giver {@code int}
+     * @param taker the band above or below the giver {@code int}
+     * @param rows  {@code int}
+     */
+    private void moveRows(int giver, int taker, int rows) throws IOException {
+        boolean isDown = taker > giver;
+        DataOutputStream giverOut = this.outs[giver];
+        giverOut.writeByte(DistributedProtocol.GIVE);
+        giverOut.writeBoolean(!isDown);
+        giverOut.writeInt(rows);
+        giverOut.flush();
+
+        DataOutputStream takerOut = this.outs[taker];
+        takerOut.writeByte(DistributedProtocol.TAKE);
+        takerOut.writeBoolean(isDown);
+        takerOut.writeInt(rows);
+        DataInputStream giverIn = this.ins[giver];
+        byte[] row = new byte[this.deadRow.length];
+        for (int y = this.readRowCount(giver, rows); y > 0; y--) {
+            giverIn.readFully(row);
+            takerOut.write(row);
+        }
+        takerOut.flush();
+    }
+
+    /**
+     * Reads the head of a {@code ROWS} answer, failing if it isn't the rows asked for.
+     *
+     * @return rows that follow {@code int}
+     */
+    private int readRowCount(int worker, int expectedRows) throws IOException {
+        DataInputStream in = this.ins[worker];
+        DistributedProtocol.expect(in, DistributedProtocol.ROWS);
+        int rows = in.readInt();
+        if (rows != expectedRows) {
+            throw new IOException("Worker " + worker + " sent " + rows + " rows, " + expectedRows + " were asked for");
+        }
+        return rows;
+    }
+}
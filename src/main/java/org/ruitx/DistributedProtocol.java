@@ -0,0 +1,151 @@
+package org.ruitx;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+
+/**
+ * Messages between the coordinator and the workers of a distributed run
+ * ({@code DistributedCoordinator}, {@code DistributedWorker}), one stream socket per worker:
+ * TCP for {@code host:port} addresses, a Unix-domain socket for {@code unix:<path>}.
+ * A message is a type byte and its fields, big endian ({@code DataOutputStream}).
+ * Rows are bit-packed, 8 cells a byte, the leftmost cell in the lowest bit, so a halo
+ * row of a 4096 cells wide world is 512 bytes.
+ * <pre>
+ * worker hello   MAGIC, VERSION
+ * LOAD           rule, edges, lengthX, rows, top mirrored, bottom mirrored, the rows
+ * STEP           top halo row, bottom halo row
+ * STEPPED        population, changed, step nanos, first row, last row
+ * GATHER         (asks for every row)
+ * ROWS           rows, the rows
+ * GIVE           from the top, rows (the worker drops them and answers with ROWS)
+ * TAKE           to the top, rows, the rows
+ * EDGES          (asks for the first and last row)
+ * EDGE_ROWS      first row, last row
+ * STOP           (the worker exits)
+ * </pre>
+ */
+final class DistributedProtocol {
+
+    static final int MAGIC = 0x4A4F4E57;
+    static final int VERSION = 2;
+
+    static final byte LOAD = 1;
+    static final byte STEP = 2;
+    static final byte STEPPED = 3;
+    static final byte GATHER = 4;
+    static final byte ROWS = 5;
+    static final byte STOP = 6;
+    static final byte GIVE = 7;
+    static final byte TAKE = 8;
+    static final byte EDGES = 9;
+    static final byte EDGE_ROWS = 10;
+
+    private static final String UNIX_PREFIX = "unix:";
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private DistributedProtocol() {
+    }
+
+    /**
+     * @param address {@code host:port} or {@code unix:<path>} {@code String}
+     * @return {@code SocketAddress}
+     */
+    static SocketAddress parseAddress(String address) {
+        if (address.startsWith(UNIX_PREFIX)) {
+            return UnixDomainSocketAddress.of(address.substring(UNIX_PREFIX.length()));
+        }
+        int colon = address.lastIndexOf(':');
+        if (colon < 0) {
+            throw new IllegalArgumentException("Address must be host:port or unix:<path>: " + address);
+        }
+        return new InetSocketAddress(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)));
+    }
+
+    /**
+     * @param address {@code SocketAddress}
+     * @return the address as {@code parseAddress} takes it {@code String}
+     */
+    static String formatAddress(SocketAddress address) {
+        if (address instanceof UnixDomainSocketAddress) {
+            return UNIX_PREFIX + ((UnixDomainSocketAddress) address).getPath();
+        }
+        InetSocketAddress inetAddress = (InetSocketAddress) address;
+        return inetAddress.getHostString() + ":" + inetAddress.getPort();
+    }
+
+    /**
+     * Listens on an address, replacing a socket file left behind by an earlier run.
+     *
+     * @param address {@code SocketAddress}
+     * @return {@code ServerSocketChannel}
+     */
+    static ServerSocketChannel listen(SocketAddress address) throws IOException {
+        if (address instanceof UnixDomainSocketAddress) {
+            Files.deleteIfExists(((UnixDomainSocketAddress) address).getPath());
+            return ServerSocketChannel.open(StandardProtocolFamily.UNIX).bind(address);
+        }
+        return ServerSocketChannel.open().bind(address);
+    }
+
+    static SocketChannel connect(SocketAddress address) throws IOException {
+        return configure(SocketChannel.open(address));
+    }
+
+    /**
+     * Makes a connected or accepted channel blocking, and sends TCP segments right away:
+     * a step is a short message each way, waiting to fill a segment only adds latency.
+     */
+    static SocketChannel configure(SocketChannel channel) throws IOException {
+        channel.configureBlocking(true);
+        if (channel.getLocalAddress() instanceof InetSocketAddress) {
+            channel.socket().setTcpNoDelay(true);
+        }
+        return channel;
+    }
+
+    /**
+     * Removes the socket file of a Unix-domain address.
+     */
+    static void unlink(SocketAddress address) throws IOException {
+        if (address instanceof UnixDomainSocketAddress) {
+            Files.deleteIfExists(((UnixDomainSocketAddress) address).getPath());
+        }
+    }
+
+    static DataInputStream input(SocketChannel channel) {
+        return new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), BUFFER_BYTES));
+    }
+
+    static DataOutputStream output(SocketChannel channel) {
+        return new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_BYTES));
+    }
+
+    /**
+     * @param lengthX {@code int}
+     * @return bytes of a packed row {@code int}
+     */
+    static int rowBytes(int lengthX) {
+        return (lengthX + 7) >>> 3;
+    }
+
+    /**
+     * Reads a message type, failing if it isn't the expected one.
+     */
+    static void expect(DataInputStream in, byte type) throws IOException {
+        byte read = in.readByte();
+        if (read != type) {
+            throw new IOException("Expected message " + type + ", got " + read);
+        }
+    }
+}
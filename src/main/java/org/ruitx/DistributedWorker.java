@@ -0,0 +1,201 @@
+package org.ruitx;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.channels.SocketChannel;
+
+/**
+ * One process of a distributed run: owns a band of rows of the world and steps it when
+ * the coordinator says so ({@code DistributedCoordinator}, {@code DistributedProtocol}).
+ * The band is a {@code HaloGrid} two rows taller than the band, the extra top and bottom
+ * rows hold the halo rows sent with every step (the neighbor bands' edge rows); the left
+ * and right edges wrap in the grid itself for torus and Klein bottle worlds, where only
+ * the top and bottom edges of the world are mirrored. Stepping goes back and forth between
+ * two grids, the halo rows come out wrong and are overwritten by the next step's.
+ * After each step the worker answers with the band's population, whether it changed, how
+ * long the step took and its new first and last rows, for the coordinator to pass on.
+ * When the coordinator rebalances, the band gives rows off one edge or takes rows onto
+ * one, its neighbor's, and is copied into new grids of its new height.
+ */
+public class DistributedWorker {
+
+    private final SocketAddress coordinatorAddress;
+
+    private Rule rule;
+    private int rows;
+    private boolean isTopMirrored;
+    private boolean isBottomMirrored;
+    private HaloGrid grid;
+    private HaloGrid spareGrid;
+    private byte[] row;
+
+    /**
+     * @param coordinatorAddress {@code SocketAddress}
+     */
+    public DistributedWorker(SocketAddress coordinatorAddress) {
+        this.coordinatorAddress = coordinatorAddress;
+    }
+
+    /**
+     * Connects to the coordinator and works until it says stop.
+     *
+     * @return generations stepped {@code long}
+     * @throws IOException if the connection fails or the coordinator sends something unexpected
+     */
+    public long run() throws IOException {
+        long generations = 0;
+        try (SocketChannel channel = DistributedProtocol.connect(this.coordinatorAddress)) {
+            DataInputStream in = DistributedProtocol.input(channel);
+            DataOutputStream out = DistributedProtocol.output(channel);
+            out.writeInt(DistributedProtocol.MAGIC);
+            out.writeInt(DistributedProtocol.VERSION);
+            out.flush();
+
+            while (true) {
+                byte type = in.readByte();
+                switch (type) {
+                    case DistributedProtocol.LOAD:
+                        this.load(in);
+                        break;
+                    case DistributedProtocol.STEP:
+                        this.step(in, out);
+                        generations++;
+                        break;
+                    case DistributedProtocol.GATHER:
+                        this.writeRows(out, 1, this.rows);
+                        break;
+                    case DistributedProtocol.GIVE:
+                        this.give(in, out);
+                        break;
+                    case DistributedProtocol.TAKE:
+                        this.take(in);
+                        break;
+                    case DistributedProtocol.EDGES:
+                        out.writeByte(DistributedProtocol.EDGE_ROWS);
+                        this.writeEdgeRows(out);
+                        break;
+                    case DistributedProtocol.STOP:
+                        return generations;
+                    default:
+                        throw new IOException("Unknown message " + type);
+                }
+            }
+        }
+    }
+
+    private void load(DataInputStream in) throws IOException {
+        this.rule = Rule.parse(in.readUTF());
+        BoundaryModeEnum boundaryMode = BoundaryModeEnum.values()[in.readByte()];
+        int lengthX = in.readInt();
+        this.rows = in.readInt();
+        this.isTopMirrored = in.readBoolean();
+        this.isBottomMirrored = in.readBoolean();
+
+        // the band only wraps left and right, top and bottom are the halo rows
+        BoundaryModeEnum bandMode = boundaryMode == BoundaryModeEnum.DEAD ? BoundaryModeEnum.DEAD
+                                                                          : BoundaryModeEnum.TORUS;
+        this.grid = new HaloGrid(this.rows + 2, lengthX, bandMode);
+        this.spareGrid = new HaloGrid(this.rows + 2, lengthX, bandMode);
+        this.row = new byte[DistributedProtocol.rowBytes(lengthX)];
+        for (int y = 1; y <= this.rows; y++) {
+            this.readRow(in, y);
+        }
+    }
+
+    private void step(DataInputStream in, DataOutputStream out) throws IOException {
+        in.readFully(this.row);
+        this.grid.unpackRow(0, this.row, this.isTopMirrored);
+        in.readFully(this.row);
+        this.grid.unpackRow(this.rows + 1, this.row, this.isBottomMirrored);
+
+        long start = System.nanoTime();
+        this.grid.nextGeneration(this.spareGrid, this.rule);
+        boolean isChanged = !this.grid.sameCells(this.spareGrid, 1, this.rows + 1);
+        HaloGrid swap = this.grid;
+        this.grid = this.spareGrid;
+        this.spareGrid = swap;
+        int population = this.grid.population(1, this.rows + 1);
+        long nanos = System.nanoTime() - start;
+
+        out.writeByte(DistributedProtocol.STEPPED);
+        out.writeInt(population);
+        out.writeBoolean(isChanged);
+        out.writeLong(nanos);
+        this.writeEdgeRows(out);
+    }
+
+    /**
+     * Sends rows off the top or the bottom of the band and drops them, at least one row stays.
+     */
+    private void give(DataInputStream in, DataOutputStream out) throws IOException {
+        boolean isTop = in.readBoolean();
+        int rows = in.readInt();
+        if (rows < 1 || rows >= this.rows) {
+            throw new IOException("Can't give " + rows + " of a band of " + this.rows + " rows");
+        }
+        int kept = this.rows - rows;
+        if (isTop) {
+            this.writeRows(out, 1, rows);
+            this.resize(kept, rows + 1, kept, 1);
+        } else {
+            this.writeRows(out, kept + 1, rows);
+            this.resize(kept, 1, kept, 1);
+        }
+    }
+
+    /**
+     * Adds rows given by a neighbor band to the top or the bottom of the band.
+     */
+    private void take(DataInputStream in) throws IOException {
+        boolean isTop = in.readBoolean();
+        int rows = in.readInt();
+        if (rows < 1) {
+            throw new IOException("Can't take " + rows + " rows");
+        }
+        int kept = this.rows;
+        this.resize(kept + rows, 1, kept, isTop ? rows + 1 : 1);
+        for (int y = isTop ? 1 : kept + 1, end = y + rows; y < end; y++) {
+            this.readRow(in, y);
+        }
+    }
+
+    /**
+     * Moves the band to new grids of {@code rows} rows, copying {@code kept} rows from row {@code from}
+     * of the old band to row {@code to} of the new one (the first band row is 1).
+     */
+    private void resize(int rows, int from, int kept, int to) {
+        HaloGrid grid = new HaloGrid(rows + 2, this.grid.lengthX(), this.grid.boundaryMode());
+        for (int y = 0; y < kept; y++) {
+            this.grid.packRow(from + y, this.row);
+            grid.unpackRow(to + y, this.row, false);
+        }
+        this.grid = grid;
+        this.spareGrid = new HaloGrid(rows + 2, grid.lengthX(), grid.boundaryMode());
+        this.rows = rows;
+    }
+
+    private void readRow(DataInputStream in, int y) throws IOException {
+        in.readFully(this.row);
+        this.grid.unpackRow(y, this.row, false);
+    }
+
+    private void writeRows(DataOutputStream out, int from, int rows) throws IOException {
+        out.writeByte(DistributedProtocol.ROWS);
+        out.writeInt(rows);
+        for (int y = from; y < from + rows; y++) {
+            this.grid.packRow(y, this.row);
+            out.write(this.row);
+        }
+        out.flush();
+    }
+
+    private void writeEdgeRows(DataOutputStream out) throws IOException {
+        this.grid.packRow(1, this.row);
+        out.write(this.row);
+        this.grid.packRow(this.rows, this.row);
+        out.write(this.row);
+        out.flush();
+    }
+}
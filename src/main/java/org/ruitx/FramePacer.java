@@ -0,0 +1,94 @@
+package org.ruitx;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Paces rendering at a target frame rate.
+ * Frames are due every {@code 1 / targetFps} seconds from the first one, not a fixed
+ * sleep after each frame, so the time spent drawing doesn't slow the animation down.
+ * When a frame is more than one frame late and the next generation is already there
+ * (the simulation is ahead of the terminal), it's skipped: the caller moves on to
+ * the next generation without drawing, until the renderer is back on schedule. If
+ * the generations themselves come in late there's nothing to skip to, the frame is
+ * drawn right away and the schedule starts again from it, same after a long stall.
+ * Also measures the frames actually drawn per second.
+ */
+public class FramePacer {
+
+    private static final long RESYNC_AFTER_NANOS = 1_000_000_000L;
+    private static final long FPS_WINDOW_NANOS = 1_000_000_000L;
+
+    private final long frameNanos;
+
+    private long deadline;
+    private long drawnFrames;
+    private long skippedFrames;
+    private long windowStart;
+    private int windowFrames;
+    private double fps;
+
+    /**
+     * @param targetFps frames per second {@code double}
+     */
+    public FramePacer(double targetFps) {
+        if (targetFps <= 0) {
+            throw new IllegalArgumentException("Target FPS must be positive: " + targetFps);
+        }
+        this.frameNanos = (long) (1e9 / targetFps);
+    }
+
+    /**
+     * Waits until the next frame is due.
+     *
+     * @param canSkip true if the generation after this one is ready, so this one can be skipped {@code boolean}
+     * @return false if the frame is late and should be skipped {@code boolean}
+     */
+    public boolean awaitFrame(boolean canSkip) {
+        long now = System.nanoTime();
+        if (this.deadline == 0 || now - this.deadline > RESYNC_AFTER_NANOS) {
+            this.deadline = now;
+        } else if (now - this.deadline >= this.frameNanos) {
+            if (canSkip) {
+                this.deadline += this.frameNanos;
+                this.skippedFrames++;
+                return false;
+            }
+            this.deadline = now;
+        }
+
+        while ((now = System.nanoTime()) < this.deadline) {
+            LockSupport.parkNanos(this.deadline - now);
+        }
+        this.deadline += this.frameNanos;
+        this.countFrame(now);
+        return true;
+    }
+
+    /**
+     * @return frames drawn per second over the last second or so {@code double}
+     */
+    public double fps() {
+        return this.fps;
+    }
+
+    public long drawnFrames() {
+        return this.drawnFrames;
+    }
+
+    public long skippedFrames() {
+        return this.skippedFrames;
+    }
+
+    private void countFrame(long now) {
+        if (this.drawnFrames++ == 0) {
+            this.windowStart = now;
+            return;
+        }
+        this.windowFrames++;
+        if (now - this.windowStart >= FPS_WINDOW_NANOS) {
+            this.fps = this.windowFrames * 1e9 / (now - this.windowStart);
+            this.windowStart = now;
+            this.windowFrames = 0;
+        }
+    }
+}
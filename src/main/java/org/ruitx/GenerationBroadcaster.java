@@ -0,0 +1,324 @@
+package org.ruitx;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fans generations out to any number of viewers ({@code ViewerServer}).
+ * Each published generation is encoded once, as a delta from the one before (the cells
+ * that flipped) or as a keyframe (every cell), and the same {@code Frame} is queued for
+ * every viewer: its bytes are written to each connection as they are, never copied or
+ * encoded again. Keyframes are only encoded when someone needs one: a viewer that just
+ * connected, a new world, or a viewer whose queue was full.
+ * Every viewer has a queue of {@code QUEUE_FRAMES}. Publishing never waits for a viewer:
+ * when a viewer's queue is full its queued frames are dropped and it gets a keyframe with
+ * the next generation, so a slow viewer skips ahead instead of stalling the simulation.
+ * The broadcaster keeps its own copy of the last generation ({@code BitGrid}), so grids that
+ * are stepped into or reused after publishing are fine.
+ * <pre>
+ * frame    type (0 keyframe, 1 delta), generation long, lengthY int, lengthX int, then
+ * keyframe rows, 8 cells a byte, the leftmost cell in the lowest bit
+ * delta    count int, then y * lengthX + x of each flipped cell, int
+ * </pre>
+ */
+public class GenerationBroadcaster {
+
+    static final byte KEYFRAME = 0;
+    static final byte DELTA = 1;
+    static final int QUEUE_FRAMES = 64;
+    private static final int HEADER_BYTES = 1 + Long.BYTES + 2 * Integer.BYTES;
+
+    private final List<Viewer> viewers;
+    private final AtomicLong nextViewerId;
+    private final AtomicLong frames;
+    private final AtomicLong keyframes;
+    private final AtomicLong encodedBytes;
+
+    private BitGrid world;
+    private long generation;
+    private long population;
+    private Frame keyframe;
+    private int[] flipped;
+
+    public GenerationBroadcaster() {
+        this.viewers = new CopyOnWriteArrayList<>();
+        this.nextViewerId = new AtomicLong();
+        this.frames = new AtomicLong();
+        this.keyframes = new AtomicLong();
+        this.encodedBytes = new AtomicLong();
+        this.flipped = new int[256];
+    }
+
+    /**
+     * Queues a generation for every viewer.
+     * A generation that doesn't follow the last one published (a new world, or a jump)
+     * goes out as a keyframe to everyone.
+     *
+     * @param grid       {@code Grid}
+     * @param generation {@code long}
+     */
+    public synchronized void publish(Grid grid, long generation) {
+        Frame delta = null;
+        if (this.world != null && this.world.lengthY() == grid.lengthY() && this.world.lengthX() == grid.lengthX()
+            && generation == this.generation + 1) {
+            int flippedCells = this.flip(grid);
+            // with nobody watching, only the copy of the world is kept up to date
+            delta = this.viewers.isEmpty() ? null : this.encodeDelta(generation, flippedCells);
+        } else {
+            this.world = new BitGrid(grid.lengthY(), grid.lengthX());
+            this.population = 0;
+            grid.forEachLiveCell((y, x, isAlive) -> {
+                if (y >= 0 && y < this.world.lengthY() && x >= 0 && x < this.world.lengthX()) {
+                    this.world.setCoordinatesValueTo(y, x, true);
+                    this.population++;
+                }
+            });
+        }
+        this.generation = generation;
+        this.keyframe = null;
+        this.frames.incrementAndGet();
+
+        for (Viewer viewer : this.viewers) {
+            if (delta == null || viewer.isKeyframeNeeded) {
+                viewer.offer(this.keyframe());
+            } else {
+                viewer.offer(delta);
+            }
+        }
+    }
+
+    /**
+     * Adds a viewer, that gets a keyframe of the last generation right away if there is one.
+     *
+     * @return {@code Viewer}
+     */
+    public synchronized Viewer subscribe() {
+        Viewer viewer = new Viewer(this.nextViewerId.incrementAndGet());
+        if (this.world != null) {
+            viewer.offer(this.keyframe());
+        }
+        this.viewers.add(viewer);
+        return viewer;
+    }
+
+    public void unsubscribe(Viewer viewer) {
+        this.viewers.remove(viewer);
+    }
+
+    /**
+     * Wakes up every viewer and tells it to end.
+     */
+    public void closeAll() {
+        for (Viewer viewer : this.viewers) {
+            viewer.close();
+        }
+    }
+
+    /**
+     * @return generation, population, frames and viewers, one JSON object {@code String}
+     */
+    public synchronized String statsJson() {
+        StringBuilder json = new StringBuilder();
+        json.append(String.format("{\"generation\":%d,\"lengthY\":%d,\"lengthX\":%d,\"population\":%d,",
+                                  this.generation, this.world == null ? 0 : this.world.lengthY(),
+                                  this.world == null ? 0 : this.world.lengthX(), this.population));
+        json.append(String.format("\"frames\":%d,\"keyframes\":%d,\"encodedBytes\":%d,\"viewers\":[",
+                                  this.frames.get(), this.keyframes.get(), this.encodedBytes.get()));
+        List<String> viewers = new ArrayList<>();
+        for (Viewer viewer : this.viewers) {
+            viewers.add(String.format("{\"id\":%d,\"queued\":%d,\"sentFrames\":%d,\"sentBytes\":%d,"
+                                      + "\"droppedFrames\":%d}", viewer.id, viewer.frames.size(),
+                                      viewer.sentFrames.get(), viewer.sentBytes.get(), viewer.droppedFrames.get()));
+        }
+        json.append(String.join(",", viewers)).append("]}");
+        return json.toString();
+    }
+
+    public int viewerCount() {
+        return this.viewers.size();
+    }
+
+    /**
+     * Flips the cells that changed in the copy of the world, keeping them in {@code flipped}.
+     *
+     * @return cells flipped {@code int}
+     */
+    private int flip(Grid grid) {
+        int[] count = new int[1];
+        int lengthX = this.world.lengthX();
+        this.world.forEachDifference(grid, (y, x, isAlive) -> {
+            if (count[0] == this.flipped.length) {
+                this.flipped = Arrays.copyOf(this.flipped, this.flipped.length << 1);
+            }
+            this.flipped[count[0]++] = y * lengthX + x;
+            this.population += isAlive ? 1 : -1;
+            this.world.setCoordinatesValueTo(y, x, isAlive);
+        });
+        return count[0];
+    }
+
+    private Frame encodeDelta(long generation, int flippedCells) {
+        ByteBuffer buffer = this.header(DELTA, generation, Integer.BYTES + flippedCells * Integer.BYTES);
+        buffer.putInt(flippedCells);
+        for (int i = 0; i < flippedCells; i++) {
+            buffer.putInt(this.flipped[i]);
+        }
+        return this.frame(DELTA, generation, buffer.array());
+    }
+
+    /**
+     * @return keyframe of the last generation, encoded the first time it's asked for {@code Frame}
+     */
+    private Frame keyframe() {
+        if (this.keyframe == null) {
+            int lengthY = this.world.lengthY();
+            int lengthX = this.world.lengthX();
+            int rowBytes = (lengthX + 7) >>> 3;
+            ByteBuffer buffer = this.header(KEYFRAME, this.generation, lengthY * rowBytes);
+            byte[] bytes = buffer.array();
+            this.world.forEachLiveCell((y, x, isAlive) -> bytes[HEADER_BYTES + y * rowBytes + (x >>> 3)] |= 1 << (x & 7));
+            this.keyframe = this.frame(KEYFRAME, this.generation, bytes);
+            this.keyframes.incrementAndGet();
+        }
+        return this.keyframe;
+    }
+
+    private ByteBuffer header(byte type, long generation, int bodyBytes) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + bodyBytes);
+        buffer.put(type);
+        buffer.putLong(generation);
+        buffer.putInt(this.world.lengthY());
+        buffer.putInt(this.world.lengthX());
+        return buffer;
+    }
+
+    private Frame frame(byte type, long generation, byte[] bytes) {
+        Frame frame = new Frame(type, generation, bytes);
+        this.encodedBytes.addAndGet(bytes.length + frame.event().length);
+        return frame;
+    }
+
+    /**
+     * A generation encoded once, shared by every viewer: the binary frame, and the same
+     * frame as a Server-Sent Event with the bytes in base 64.
+     */
+    public static final class Frame {
+
+        private final byte type;
+        private final long generation;
+        private final byte[] bytes;
+        private final byte[] event;
+
+        Frame(byte type, long generation, byte[] bytes) {
+            this.type = type;
+            this.generation = generation;
+            this.bytes = bytes;
+            this.event = ("event: " + (type == KEYFRAME ? "keyframe" : "delta") + "\nid: " + generation
+                          + "\ndata: " + Base64.getEncoder().encodeToString(bytes) + "\n\n")
+                    .getBytes(StandardCharsets.US_ASCII);
+        }
+
+        public boolean isKeyframe() {
+            return this.type == KEYFRAME;
+        }
+
+        public long generation() {
+            return this.generation;
+        }
+
+        /**
+         * @return the binary frame, not to be modified {@code byte[]}
+         */
+        public byte[] bytes() {
+            return this.bytes;
+        }
+
+        /**
+         * @return the Server-Sent Event, not to be modified {@code byte[]}
+         */
+        public byte[] event() {
+            return this.event;
+        }
+    }
+
+    /**
+     * A connection's queue of frames, filled by {@code publish} and drained by the connection.
+     */
+    public static final class Viewer {
+
+        private static final Frame CLOSED = new Frame(KEYFRAME, -1, new byte[0]);
+
+        private final long id;
+        private final BlockingQueue<Frame> frames;
+        private final AtomicLong sentFrames;
+        private final AtomicLong sentBytes;
+        private final AtomicLong droppedFrames;
+        private volatile boolean isKeyframeNeeded;
+        private volatile boolean isClosed;
+
+        Viewer(long id) {
+            this.id = id;
+            this.frames = new ArrayBlockingQueue<>(QUEUE_FRAMES);
+            this.sentFrames = new AtomicLong();
+            this.sentBytes = new AtomicLong();
+            this.droppedFrames = new AtomicLong();
+            this.isKeyframeNeeded = true;
+        }
+
+        public long id() {
+            return this.id;
+        }
+
+        /**
+         * Waits for the next frame.
+         *
+         * @param timeoutMillis {@code long}
+         * @return the frame, or null if none came in time or the viewer was closed {@code Frame}
+         */
+        public Frame take(long timeoutMillis) throws InterruptedException {
+            Frame frame = this.isClosed ? null : this.frames.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+            return frame == CLOSED ? null : frame;
+        }
+
+        /**
+         * @param bytes written for a frame that was taken {@code int}
+         */
+        public void sent(int bytes) {
+            this.sentFrames.incrementAndGet();
+            this.sentBytes.addAndGet(bytes);
+        }
+
+        public boolean isClosed() {
+            return this.isClosed;
+        }
+
+        void close() {
+            this.isClosed = true;
+            this.frames.offer(CLOSED);
+        }
+
+        /**
+         * Queues a frame, or drops everything queued and waits for a keyframe when full.
+         */
+        private void offer(Frame frame) {
+            if (this.frames.offer(frame)) {
+                if (frame.isKeyframe()) {
+                    this.isKeyframeNeeded = false;
+                }
+                return;
+            }
+            this.droppedFrames.addAndGet(this.frames.size() + 1);
+            this.frames.clear();
+            this.isKeyframeNeeded = true;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package org.ruitx;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes every generation of a run to a file, for offline analysis.
+ * Each generation is a plaintext ({@code .cells}) block: a {@code !generation N} comment
+ * line, then one line per row with {@code O} for alive and {@code .} for dead cells, so a
+ * single block cut out of the dump loads back as a pattern.
+ * Generations are encoded straight into a direct buffer that goes to a {@code FileChannel}
+ * only when full, so the dump runs at simulation speed.
+ */
+public class GenerationDump implements AutoCloseable {
+
+    private static final int BUFFER_BYTES = 1 << 20;
+    private static final byte[] GENERATION_PREFIX = {'!', 'g', 'e', 'n', 'e', 'r', 'a', 't', 'i', 'o', 'n', ' '};
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private long generations;
+    private long writtenBytes;
+
+    public GenerationDump(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                                        StandardOpenOption.WRITE);
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    }
+
+    /**
+     * Appends the next generation.
+     *
+     * @param gameGrid {@code Grid}
+     */
+    public void write(Grid gameGrid) throws IOException {
+        this.write(gameGrid, this.generations);
+    }
+
+    /**
+     * Appends a generation with its number, for dumps that don't start at generation 0.
+     *
+     * @param gameGrid   {@code Grid}
+     * @param generation {@code long}
+     */
+    public void write(Grid gameGrid, long generation) throws IOException {
+        this.generations++;
+        this.ensureRemaining(GENERATION_PREFIX.length + 21);
+        this.buffer.put(GENERATION_PREFIX);
+        this.putNumber(generation);
+        this.buffer.put((byte) '\n');
+
+        for (int y = 0; y < gameGrid.lengthY(); y++) {
+            for (int x = 0; x < gameGrid.lengthX(); x++) {
+                if (!this.buffer.hasRemaining()) {
+                    this.drain();
+                }
+                this.buffer.put(gameGrid.checkCoordinates(y, x) ? (byte) 'O' : (byte) '.');
+            }
+            this.ensureRemaining(1);
+            this.buffer.put((byte) '\n');
+        }
+    }
+
+    public long generations() {
+        return this.generations;
+    }
+
+    public long writtenBytes() {
+        return this.writtenBytes + this.buffer.position();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            this.drain();
+        } finally {
+            this.channel.close();
+        }
+    }
+
+    private void putNumber(long number) {
+        int start = this.buffer.position();
+        do {
+            this.buffer.put((byte) ('0' + number % 10));
+            number /= 10;
+        } while (number != 0);
+        // digits went in backwards
+        for (int i = start, j = this.buffer.position() - 1; i < j; i++, j--) {
+            byte digit = this.buffer.get(i);
+            this.buffer.put(i, this.buffer.get(j));
+            this.buffer.put(j, digit);
+        }
+    }
+
+    /**
+     * Writes out the buffer if it can't take {@code bytes} more.
+     */
+    private void ensureRemaining(int bytes) throws IOException {
+        if (this.buffer.remaining() < bytes) {
+            this.drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        this.buffer.flip();
+        while (this.buffer.hasRemaining()) {
+            this.writtenBytes += this.channel.write(this.buffer);
+        }
+        this.buffer.clear();
+    }
+}
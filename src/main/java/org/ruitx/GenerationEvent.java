@@ -0,0 +1,37 @@
+package org.ruitx;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for one generation step, the event duration is the step.
+ * Recorded when running with {@code -XX:StartFlightRecording}, see {@code SimulationProbe}.
+ */
+@Name("org.ruitx.Generation")
+@Label("Generation")
+@Category("Jonways")
+@Description("One generation of a simulated world")
+@StackTrace(false)
+public class GenerationEvent extends jdk.jfr.Event {
+
+    @Label("Generation")
+    long generation;
+
+    @Label("Backend")
+    String backend;
+
+    @Label("Live Cells")
+    long liveCells;
+
+    @Label("Births")
+    long births;
+
+    @Label("Deaths")
+    long deaths;
+
+    @Label("Changed Cells")
+    long changedCells;
+}
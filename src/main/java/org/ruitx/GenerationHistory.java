@@ -0,0 +1,308 @@
+package org.ruitx;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Supplier;
+
+/**
+ * History of the generations of a world.
+ * Instead of a full grid per generation it keeps a keyframe (the live cells) every
+ * {@code keyframeInterval} generations and, for the ones in between, only the cells
+ * that flipped since the generation before. Cells are packed {@code (y, x)} longs,
+ * same as {@code SparseGrid}.
+ * Any generation is rebuilt from the keyframe at or before it plus its deltas, and
+ * replaying in order just applies one delta per generation to a working grid, the same
+ * grid all the way through (cleared and refilled at each keyframe).
+ * When the history goes over its memory budget the oldest keyframe and its deltas are
+ * dropped, so the earliest generations are no longer available.
+ */
+public class GenerationHistory implements Iterable<Grid> {
+
+    private static final int DEFAULT_KEYFRAME_INTERVAL = 64;
+    private static final long DEFAULT_MEMORY_BUDGET_BYTES = 64L * 1024 * 1024;
+    /**
+     * Array header, counted once per stored array.
+     */
+    private static final int ARRAY_OVERHEAD_BYTES = 16;
+
+    private final Supplier<Grid> gridFactory;
+    private final int keyframeInterval;
+    private final long memoryBudgetBytes;
+    private final ArrayList<Segment> segments;
+
+    private Grid lastGrid;
+    private int size;
+    private int firstAvailableGeneration;
+    private long usedBytes;
+
+    /**
+     * @param gridFactory makes the empty grids generations are rebuilt on {@code Supplier<Grid>}
+     */
+    public GenerationHistory(Supplier<Grid> gridFactory) {
+        this(gridFactory, DEFAULT_KEYFRAME_INTERVAL, DEFAULT_MEMORY_BUDGET_BYTES);
+    }
+
+    public GenerationHistory(Supplier<Grid> gridFactory, int keyframeInterval, long memoryBudgetBytes) {
+        if (keyframeInterval < 1) {
+            throw new IllegalArgumentException("Keyframe interval must be at least 1");
+        }
+        this.gridFactory = gridFactory;
+        this.keyframeInterval = keyframeInterval;
+        this.memoryBudgetBytes = memoryBudgetBytes;
+        this.segments = new ArrayList<>();
+    }
+
+    /**
+     * Adds the next generation.
+     * The grid must not be changed afterwards, the next delta is taken against it.
+     *
+     * @param grid {@code Grid}
+     */
+    public void add(Grid grid) {
+        if (this.size % this.keyframeInterval == 0) {
+            long[] liveCells = collect(grid::forEachLiveCell);
+            this.segments.add(new Segment(this.size, liveCells));
+            this.usedBytes += bytesOf(liveCells);
+        } else {
+            long[] flippedCells = collect(action -> this.lastGrid.forEachDifference(grid, action));
+            this.segments.get(this.segments.size() - 1).deltas.add(flippedCells);
+            this.usedBytes += bytesOf(flippedCells);
+        }
+        this.lastGrid = grid;
+        this.size++;
+
+        while (this.usedBytes > this.memoryBudgetBytes && this.segments.size() > 1) {
+            this.evictOldestKeyframe();
+        }
+    }
+
+    /**
+     * @return number of generations added, including evicted ones {@code int}
+     */
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * @return oldest generation that can still be rebuilt {@code int}
+     */
+    public int firstAvailableGeneration() {
+        return this.firstAvailableGeneration;
+    }
+
+    public long usedBytes() {
+        return this.usedBytes;
+    }
+
+    public Grid last() {
+        return this.lastGrid;
+    }
+
+    /**
+     * Rebuilds a generation from the nearest keyframe at or before it, on a grid from the
+     * history's grid factory. The factory may hand out the same grid every time (off-heap
+     * worlds replay on one grid), so the result is only valid until the next rebuild.
+     *
+     * @param generation {@code int}
+     * @return grid with the generation {@code Grid}
+     */
+    public Grid get(int generation) {
+        return this.rebuild(generation, this.gridFactory.get());
+    }
+
+    /**
+     * @param generation {@code int}
+     * @param grid       empty grid to rebuild the generation on {@code Grid}
+     * @return the grid {@code Grid}
+     */
+    private Grid rebuild(int generation, Grid grid) {
+        if (generation < this.firstAvailableGeneration || generation >= this.size) {
+            throw new IndexOutOfBoundsException("Generation " + generation + " is not in the history, available: "
+                                                + this.firstAvailableGeneration + " to " + (this.size - 1));
+        }
+        Segment segment = this.segmentOf(generation);
+        setCells(grid, segment.keyframe);
+        for (int i = 0; i < generation - segment.firstGeneration; i++) {
+            flipCells(grid, segment.deltas.get(i));
+        }
+        return grid;
+    }
+
+    @Override
+    public Iterator<Grid> iterator() {
+        return this.iterator(this.firstAvailableGeneration);
+    }
+
+    /**
+     * Replays the history from a generation on.
+     * The iterator hands out the same working grid every time, with the next delta applied,
+     * so it's only valid until the following {@code next()}.
+     *
+     * @param fromGeneration {@code int}
+     * @return iterator {@code Iterator<Grid>}
+     */
+    public Iterator<Grid> iterator(int fromGeneration) {
+        return new Iterator<>() {
+            private int generation = fromGeneration;
+            private Grid workingGrid;
+
+            @Override
+            public boolean hasNext() {
+                return this.generation < size;
+            }
+
+            @Override
+            public Grid next() {
+                if (!this.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int offset = (this.generation - firstAvailableGeneration) % keyframeInterval;
+                if (this.workingGrid == null) {
+                    this.workingGrid = get(this.generation);
+                } else if (offset == 0) {
+                    this.workingGrid.clear();
+                    setCells(this.workingGrid, segmentOf(this.generation).keyframe);
+                } else {
+                    flipCells(this.workingGrid, segmentOf(this.generation).deltas.get(offset - 1));
+                }
+                this.generation++;
+                return this.workingGrid;
+            }
+        };
+    }
+
+    /**
+     * Writes the stored keyframes and deltas, for a checkpoint.
+     *
+     * @param out {@code DataOutput}
+     */
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(this.keyframeInterval);
+        out.writeInt(this.size);
+        out.writeInt(this.firstAvailableGeneration);
+        out.writeInt(this.segments.size());
+        for (Segment segment : this.segments) {
+            out.writeInt(segment.firstGeneration);
+            writeCells(out, segment.keyframe);
+            out.writeInt(segment.deltas.size());
+            for (long[] delta : segment.deltas) {
+                writeCells(out, delta);
+            }
+        }
+    }
+
+    /**
+     * Reads a history written by {@code writeTo}.
+     *
+     * @param in          {@code DataInput}
+     * @param gridFactory makes the empty grids generations are rebuilt on {@code Supplier<Grid>}
+     * @param lastGrid    empty grid of its own for the last generation, the next delta is taken
+     *                    against it {@code Grid}
+     * @return history {@code GenerationHistory}
+     */
+    static GenerationHistory readFrom(DataInput in, Supplier<Grid> gridFactory, Grid lastGrid) throws IOException {
+        GenerationHistory history = new GenerationHistory(gridFactory, in.readInt(), DEFAULT_MEMORY_BUDGET_BYTES);
+        history.size = in.readInt();
+        history.firstAvailableGeneration = in.readInt();
+        int segmentCount = in.readInt();
+        for (int i = 0; i < segmentCount; i++) {
+            Segment segment = new Segment(in.readInt(), readCells(in));
+            history.usedBytes += bytesOf(segment.keyframe);
+            int deltaCount = in.readInt();
+            for (int j = 0; j < deltaCount; j++) {
+                long[] delta = readCells(in);
+                segment.deltas.add(delta);
+                history.usedBytes += bytesOf(delta);
+            }
+            history.segments.add(segment);
+        }
+        if (history.size > history.firstAvailableGeneration) {
+            history.lastGrid = history.rebuild(history.size - 1, lastGrid);
+        }
+        return history;
+    }
+
+    private Segment segmentOf(int generation) {
+        return this.segments.get((generation - this.firstAvailableGeneration) / this.keyframeInterval);
+    }
+
+    private void evictOldestKeyframe() {
+        Segment oldest = this.segments.remove(0);
+        this.usedBytes -= bytesOf(oldest.keyframe);
+        for (long[] delta : oldest.deltas) {
+            this.usedBytes -= bytesOf(delta);
+        }
+        this.firstAvailableGeneration = this.segments.get(0).firstGeneration;
+    }
+
+    private static long[] collect(CellSource source) {
+        long[][] cells = {new long[16]};
+        int[] count = {0};
+        source.forEach((y, x, isAlive) -> {
+            if (count[0] == cells[0].length) {
+                cells[0] = Arrays.copyOf(cells[0], count[0] << 1);
+            }
+            cells[0][count[0]++] = SparseGrid.key(y, x);
+        });
+        return Arrays.copyOf(cells[0], count[0]);
+    }
+
+    private static void setCells(Grid grid, long[] cells) {
+        for (long cell : cells) {
+            grid.setCoordinatesValueTo(SparseGrid.keyY(cell), SparseGrid.keyX(cell), true);
+        }
+    }
+
+    private static void flipCells(Grid grid, long[] cells) {
+        for (long cell : cells) {
+            int y = SparseGrid.keyY(cell);
+            int x = SparseGrid.keyX(cell);
+            grid.setCoordinatesValueTo(y, x, !grid.checkCoordinates(y, x));
+        }
+    }
+
+    private static void writeCells(DataOutput out, long[] cells) throws IOException {
+        out.writeInt(cells.length);
+        for (long cell : cells) {
+            out.writeLong(cell);
+        }
+    }
+
+    private static long[] readCells(DataInput in) throws IOException {
+        long[] cells = new long[in.readInt()];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = in.readLong();
+        }
+        return cells;
+    }
+
+    private static long bytesOf(long[] cells) {
+        return ARRAY_OVERHEAD_BYTES + (long) cells.length * Long.BYTES;
+    }
+
+    private interface CellSource {
+        void forEach(Grid.CellConsumer action);
+    }
+
+    private static final class Segment {
+
+        private final int firstGeneration;
+        private final long[] keyframe;
+        private final ArrayList<long[]> deltas;
+
+        Segment(int firstGeneration, long[] keyframe) {
+            this.firstGeneration = firstGeneration;
+            this.keyframe = keyframe;
+            this.deltas = new ArrayList<>();
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package org.ruitx;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.UnaryOperator;
+
+/**
+ * Simulates a world on its own thread while the caller renders it.
+ * The simulation pushes each generation through a bounded queue and the renderer takes
+ * them out as an {@code Iterator}. Rendering starts with the first generation, and when
+ * the renderer falls behind the queue fills up and the simulation waits for it
+ * (backpressure), so memory stays at {@code capacity} grids whatever the run length.
+ * The run ends at the first repeat found by {@code CycleDetector} (a still life confirmed
+ * on the grids, like {@code Conways} does), or after {@code maxGenerations} (a negative
+ * value means no limit).
+ * The detector keeps every generation's fingerprint, so an unbounded run starts a new one
+ * every {@code DETECTOR_GENERATIONS} generations: memory stays flat, and only cycles
+ * longer than that go unnoticed.
+ */
+public class GenerationStream implements Iterator<Grid>, AutoCloseable {
+
+    private static final int DEFAULT_CAPACITY = 8;
+    private static final int DETECTOR_GENERATIONS = 1 << 16;
+
+    /**
+     * Marks the end of the run in the queue.
+     */
+    private static final Grid END_OF_RUN = new Conways.GameGrid(1, 1);
+
+    private final BlockingQueue<Grid> queue;
+    private final Thread producer;
+    private final Grid firstGrid;
+    private final UnaryOperator<Grid> stepper;
+    private final long maxGenerations;
+    private final SimulationProbe probe;
+
+    private volatile boolean isClosed;
+    private volatile CycleDetector cycleDetector;
+    private volatile long producedGenerations;
+    private volatile long throttledNanos;
+    private Grid nextGrid;
+    private boolean isFinished;
+
+    public GenerationStream(Grid firstGrid, UnaryOperator<Grid> stepper, long maxGenerations) {
+        this(firstGrid, stepper, maxGenerations, new SimulationProbe(firstGrid.getClass().getSimpleName(), Rule.CONWAY));
+    }
+
+    public GenerationStream(Grid firstGrid, UnaryOperator<Grid> stepper, long maxGenerations, SimulationProbe probe) {
+        this(firstGrid, stepper, maxGenerations, DEFAULT_CAPACITY, probe);
+    }
+
+    /**
+     * @param firstGrid      generation 0 {@code Grid}
+     * @param stepper        makes the next generation of a grid {@code UnaryOperator<Grid>}
+     * @param maxGenerations last generation, negative for an unbounded run {@code long}
+     * @param capacity       generations the simulation can be ahead of the renderer {@code int}
+     * @param probe          measures the run, used on the simulation thread {@code SimulationProbe}
+     */
+    public GenerationStream(Grid firstGrid, UnaryOperator<Grid> stepper, long maxGenerations, int capacity,
+                            SimulationProbe probe) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.firstGrid = firstGrid;
+        this.stepper = stepper;
+        this.maxGenerations = maxGenerations;
+        this.probe = probe;
+        this.producer = new Thread(this::simulate, "generation-stream");
+        this.producer.setDaemon(true);
+        this.producer.start();
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (this.nextGrid == null && !this.isFinished) {
+            try {
+                this.nextGrid = this.queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                this.close();
+            }
+            if (this.nextGrid == END_OF_RUN || this.nextGrid == null) {
+                this.nextGrid = null;
+                this.isFinished = true;
+            }
+        }
+        return this.nextGrid != null;
+    }
+
+    @Override
+    public Grid next() {
+        if (!this.hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Grid grid = this.nextGrid;
+        this.nextGrid = null;
+        return grid;
+    }
+
+    /**
+     * Stops the simulation and waits for its thread to end, the renderer can stop reading at any time.
+     * A step that is running is finished first, nothing else is simulated after this returns.
+     */
+    @Override
+    public void close() {
+        this.isFinished = true;
+        this.isClosed = true;
+        this.producer.interrupt();
+        boolean isInterrupted = false;
+        while (true) {
+            try {
+                this.producer.join();
+                break;
+            } catch (InterruptedException e) {
+                isInterrupted = true;
+            }
+        }
+        if (isInterrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return detector of the run, has the ending once the stream is closed or over {@code CycleDetector}
+     */
+    public CycleDetector cycleDetector() {
+        return this.cycleDetector;
+    }
+
+    /**
+     * @return true if the simulation is ahead, the next generation can be taken without waiting {@code boolean}
+     */
+    public boolean hasBufferedGenerations() {
+        return !this.queue.isEmpty();
+    }
+
+    public long producedGenerations() {
+        return this.producedGenerations;
+    }
+
+    /**
+     * @return time the simulation spent waiting for the renderer {@code long}
+     */
+    public long throttledNanos() {
+        return this.throttledNanos;
+    }
+
+    private void simulate() {
+        long generation = 0;
+        String stopReason = "max generations";
+        try {
+            Grid grid = this.firstGrid;
+            this.cycleDetector = new CycleDetector(grid);
+            this.publish(grid);
+
+            for (; this.maxGenerations < 0 || generation < this.maxGenerations; generation++) {
+                if (this.maxGenerations < 0 && generation > 0 && generation % DETECTOR_GENERATIONS == 0) {
+                    this.cycleDetector = new CycleDetector(grid);
+                }
+                GenerationEvent event = this.probe.beginStep();
+                Grid newGrid = this.stepper.apply(grid);
+                this.probe.endStep(event);
+                boolean isRepeat = this.cycleDetector.update(grid, newGrid);
+                if (isRepeat && this.cycleDetector.period() == 1
+                    && this.cycleDetector.displacementY() == 0 && this.cycleDetector.displacementX() == 0) {
+                    // a still life is confirmed by comparing the grids, like Conways does
+                    isRepeat = Conways.compareGameGrid(grid, newGrid);
+                }
+                this.probe.recordGeneration(event, generation + 1, this.cycleDetector);
+                if (isRepeat) {
+                    stopReason = this.cycleDetector.describe();
+                    generation++;
+                    break;
+                }
+                this.publish(newGrid);
+                grid = newGrid;
+            }
+            this.queue.put(END_OF_RUN);
+        } catch (InterruptedException e) {
+            // the renderer closed the stream
+            stopReason = "closed";
+            Thread.currentThread().interrupt();
+        }
+        this.probe.finish(stopReason, this.cycleDetector, generation);
+    }
+
+    private void publish(Grid grid) throws InterruptedException {
+        // offer doesn't look at the interrupt, a closed stream would otherwise go on while there's room
+        if (this.isClosed) {
+            throw new InterruptedException();
+        }
+        if (!this.queue.offer(grid)) {
+            long start = System.nanoTime();
+            this.queue.put(grid);
+            this.throttledNanos += System.nanoTime() - start;
+        }
+        this.producedGenerations++;
+    }
+}
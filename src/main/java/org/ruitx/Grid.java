@@ -0,0 +1,97 @@
+package org.ruitx;
+
+/**
+ * A game grid backend.
+ * Every backend exposes the same cell view so the simulation, the comparison
+ * and both renderers can work with any of them.
+ * The grid starts at 0,0 and goes to {@code lengthY() - 1}, {@code lengthX() - 1}.
+ */
+public interface Grid {
+
+    /**
+     * @return number of rows {@code int}
+     */
+    int lengthY();
+
+    /**
+     * @return number of columns {@code int}
+     */
+    int lengthX();
+
+    /**
+     * Check if a cell is alive.
+     *
+     * @param y {@code int}
+     * @param x {@code int}
+     * @return isAlive {@code boolean}
+     */
+    boolean checkCoordinates(int y, int x);
+
+    /**
+     * Sets a cell to alive or dead.
+     *
+     * @param y     {@code int}
+     * @param x     {@code int}
+     * @param value {@code boolean}
+     */
+    void setCoordinatesValueTo(int y, int x, boolean value);
+
+    /**
+     * A bounded grid only holds cells inside {@code lengthY()} x {@code lengthX()}.
+     * An unbounded one takes any coordinate and uses the lengths as its viewport.
+     *
+     * @return isBounded {@code boolean}
+     */
+    default boolean isBounded() {
+        return true;
+    }
+
+    /**
+     * Kills every cell, an unbounded grid on the whole plane.
+     */
+    default void clear() {
+        for (int y = 0; y < this.lengthY(); y++) {
+            for (int x = 0; x < this.lengthX(); x++) {
+                this.setCoordinatesValueTo(y, x, false);
+            }
+        }
+    }
+
+    /**
+     * Walks every live cell.
+     * An unbounded grid walks the whole plane, not only its viewport.
+     *
+     * @param action {@code CellConsumer}
+     */
+    default void forEachLiveCell(CellConsumer action) {
+        for (int y = 0; y < this.lengthY(); y++) {
+            for (int x = 0; x < this.lengthX(); x++) {
+                if (this.checkCoordinates(y, x)) {
+                    action.accept(y, x, true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Walks every cell that has a different state in {@code other}, a grid of the same size.
+     * The consumer gets the state of the cell in {@code other}.
+     *
+     * @param other  {@code Grid}
+     * @param action {@code CellConsumer}
+     */
+    default void forEachDifference(Grid other, CellConsumer action) {
+        for (int y = 0; y < this.lengthY(); y++) {
+            for (int x = 0; x < this.lengthX(); x++) {
+                boolean isAlive = other.checkCoordinates(y, x);
+                if (this.checkCoordinates(y, x) != isAlive) {
+                    action.accept(y, x, isAlive);
+                }
+            }
+        }
+    }
+
+    interface CellConsumer {
+        void accept(int y, int x, boolean isAlive);
+    }
+}
@@ -0,0 +1,66 @@
+package org.ruitx;
+
+public enum GridBackendEnum {
+    BOXED(1, "Boxed Boolean[][] grid"),
+    BITPACKED(2, "Bit-packed long[] grid"),
+    SPARSE(3, "Sparse unbounded plane"),
+    TILED(4, "Bit-packed tiles that sleep when settled"),
+    HALO(5, "Byte grid with a halo, branch-free stepping"),
+    OFFHEAP(6, "Off-heap bit-packed grid, double-buffered");
+
+    private int id;
+    private String desc;
+
+    GridBackendEnum(int id, String desc) {
+        this.id = id;
+        this.desc = desc;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getDesc() {
+        return desc;
+    }
+
+    /**
+     * @return false for the backend that simulates the unbounded plane {@code boolean}
+     */
+    public boolean isBounded() {
+        return this != SPARSE;
+    }
+
+    /**
+     * Makes a new empty grid for this backend.
+     *
+     * @param lengthY {@code int}
+     * @param lengthX {@code int}
+     * @return grid {@code Grid}
+     */
+    public Grid newGrid(int lengthY, int lengthX) {
+        if (this == BITPACKED) {
+            return new BitGrid(lengthY, lengthX);
+        }
+        if (this == SPARSE) {
+            return new SparseGrid(lengthY, lengthX);
+        }
+        if (this == TILED) {
+            return new TiledGrid(lengthY, lengthX);
+        }
+        if (this == OFFHEAP) {
+            return new OffHeapGrid(lengthY, lengthX);
+        }
+        if (this == HALO) {
+            return new HaloGrid(lengthY, lengthX, BoundaryModeEnum.DEAD);
+        }
+        return new Conways.GameGrid(lengthY, lengthX);
+    }
+
+    /**
+     * @return the backend after this one, wrapping around at the end {@code GridBackendEnum}
+     */
+    public GridBackendEnum next() {
+        return values()[(this.ordinal() + 1) % values().length];
+    }
+}
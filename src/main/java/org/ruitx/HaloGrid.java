@@ -0,0 +1,250 @@
+package org.ruitx;
+
+import java.util.Arrays;
+
+/**
+ * Grid with a one cell halo around the world, one byte per cell.
+ * The halo is a ghost border that's filled from the world before each generation,
+ * according to the boundary mode: left dead for dead edges, copied from the opposite
+ * side for a torus, and for a Klein bottle copied from the opposite side with the top
+ * and bottom rows mirrored. With the halo in place every cell of the world has all 8
+ * neighbors in the array, so stepping has no bounds checks and no branches: the 3x3
+ * neighborhood is slid along the row three cells (one column) at a time, and the next
+ * state is one lookup in the {@code Rule} table.
+ * When the JVM runs with {@code --add-modules jdk.incubator.vector} the world is stepped
+ * on SIMD lanes instead ({@code VectorKernel}), otherwise with the scalar loop.
+ */
+public class HaloGrid implements Grid {
+
+    /**
+     * Cells per vector for {@code VectorKernel}, 0 when the Vector API module isn't enabled.
+     */
+    static final int VECTOR_LANES = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()
+                                    ? VectorKernel.lanes() : 0;
+
+    private final int lengthY;
+    private final int lengthX;
+    private final int stride;
+    private final BoundaryModeEnum boundaryMode;
+    private final byte[] cells;
+
+    public HaloGrid(int lengthY, int lengthX, BoundaryModeEnum boundaryMode) {
+        if (lengthY < 1 || lengthX < 1) {
+            throw new IllegalArgumentException("Grid must be at least 1x1: " + lengthY + "x" + lengthX);
+        }
+        if ((long) (lengthY + 2) * (lengthX + 2) > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Grid too large for a halo grid: " + lengthY + "x" + lengthX);
+        }
+        this.lengthY = lengthY;
+        this.lengthX = lengthX;
+        this.stride = lengthX + 2;
+        this.boundaryMode = boundaryMode;
+        this.cells = new byte[(lengthY + 2) * this.stride];
+    }
+
+    @Override
+    public int lengthY() {
+        return this.lengthY;
+    }
+
+    @Override
+    public int lengthX() {
+        return this.lengthX;
+    }
+
+    public BoundaryModeEnum boundaryMode() {
+        return this.boundaryMode;
+    }
+
+    @Override
+    public boolean checkCoordinates(int y, int x) {
+        return this.cells[(y + 1) * this.stride + x + 1] != 0;
+    }
+
+    @Override
+    public void setCoordinatesValueTo(int y, int x, boolean value) {
+        this.cells[(y + 1) * this.stride + x + 1] = (byte) (value ? 1 : 0);
+    }
+
+    /**
+     * Steps the world one generation.
+     *
+     * @return newGameGrid {@code HaloGrid}
+     */
+    public HaloGrid nextGeneration() {
+        return this.nextGeneration(Rule.CONWAY);
+    }
+
+    /**
+     * Steps the world one generation, with any rule, on the vector kernel if it's enabled.
+     *
+     * @param rule {@code Rule}
+     * @return newGameGrid {@code HaloGrid}
+     */
+    public HaloGrid nextGeneration(Rule rule) {
+        return this.nextGeneration(rule, VECTOR_LANES > 0);
+    }
+
+    /**
+     * @param rule         {@code Rule}
+     * @param isVectorized step on {@code VectorKernel}, only when {@code VECTOR_LANES > 0} {@code boolean}
+     * @return newGameGrid {@code HaloGrid}
+     */
+    HaloGrid nextGeneration(Rule rule, boolean isVectorized) {
+        HaloGrid next = new HaloGrid(this.lengthY, this.lengthX, this.boundaryMode);
+        this.nextGeneration(next, rule, isVectorized);
+        return next;
+    }
+
+    /**
+     * Steps the world one generation into {@code next}, a grid of the same size and edges
+     * that's free to be overwritten; stepping back and forth between two grids allocates nothing.
+     *
+     * @param next {@code HaloGrid}
+     * @param rule {@code Rule}
+     */
+    public void nextGeneration(HaloGrid next, Rule rule) {
+        this.nextGeneration(next, rule, VECTOR_LANES > 0);
+    }
+
+    void nextGeneration(HaloGrid next, Rule rule, boolean isVectorized) {
+        if (next.lengthY != this.lengthY || next.lengthX != this.lengthX || next.boundaryMode != this.boundaryMode) {
+            throw new IllegalArgumentException("Next grid must have the same size and edges");
+        }
+        this.refreshHalo();
+        if (isVectorized) {
+            VectorKernel.nextGeneration(this.cells, next.cells, this.stride, this.lengthY, this.lengthX, rule);
+        } else {
+            this.nextGenerationScalar(next, rule);
+        }
+    }
+
+    /**
+     * @return how this grid steps, for the menu {@code String}
+     */
+    static String kernelDescription() {
+        return VECTOR_LANES > 0 ? "vector kernel, " + VECTOR_LANES + " cells per vector"
+                                : "scalar kernel, run with --add-modules jdk.incubator.vector for the vector one";
+    }
+
+    /**
+     * The neighborhood goes in a column at a time, so it's transposed compared to the
+     * {@code Rule} table: same count and same center bit, which is all a rule looks at.
+     */
+    private void nextGenerationScalar(HaloGrid next, Rule rule) {
+        byte[] cells = this.cells;
+        byte[] nextCells = next.cells;
+        int stride = this.stride;
+
+        for (int row = stride; row <= this.lengthY * stride; row += stride) {
+            // 3 bits per column, top to bottom, west column lowest
+            int neighborhood = (cells[row - stride] | cells[row] << 1 | cells[row + stride] << 2) << 3
+                               | cells[row + 1 - stride] << 6 | cells[row + 1] << 7 | cells[row + 1 + stride] << 8;
+            for (int i = row + 1; i <= row + this.lengthX; i++) {
+                neighborhood = neighborhood >>> 3
+                               | cells[i + 1 - stride] << 6 | cells[i + 1] << 7 | cells[i + 1 + stride] << 8;
+                nextCells[i] = (byte) (rule.nextState(neighborhood) ? 1 : 0);
+            }
+        }
+    }
+
+    /**
+     * @param other grid of the same size {@code HaloGrid}
+     * @return true if both grids have the same live cells {@code boolean}
+     */
+    public boolean sameCells(HaloGrid other) {
+        return this.sameCells(other, 0, this.lengthY);
+    }
+
+    /**
+     * @param other grid of the same width {@code HaloGrid}
+     * @param fromY first row compared {@code int}
+     * @param toY   row after the last one compared {@code int}
+     * @return true if both grids have the same live cells in those rows {@code boolean}
+     */
+    boolean sameCells(HaloGrid other, int fromY, int toY) {
+        // the halos may be refreshed on one and not the other, only compare the world
+        for (int row = (fromY + 1) * this.stride; row <= toY * this.stride; row += this.stride) {
+            if (!Arrays.equals(this.cells, row + 1, row + this.lengthX + 1,
+                               other.cells, row + 1, row + this.lengthX + 1)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param fromY first row counted {@code int}
+     * @param toY   row after the last one counted {@code int}
+     * @return live cells in those rows {@code int}
+     */
+    int population(int fromY, int toY) {
+        int population = 0;
+        for (int row = (fromY + 1) * this.stride; row <= toY * this.stride; row += this.stride) {
+            for (int i = row + 1; i <= row + this.lengthX; i++) {
+                population += this.cells[i];
+            }
+        }
+        return population;
+    }
+
+    /**
+     * Copies a row into {@code packed}, 8 cells a byte, the leftmost cell in the lowest bit.
+     *
+     * @param y      {@code int}
+     * @param packed at least {@code (lengthX + 7) / 8} bytes {@code byte[]}
+     */
+    void packRow(int y, byte[] packed) {
+        int row = (y + 1) * this.stride + 1;
+        Arrays.fill(packed, 0, (this.lengthX + 7) >>> 3, (byte) 0);
+        for (int x = 0; x < this.lengthX; x++) {
+            packed[x >>> 3] |= (byte) (this.cells[row + x] << (x & 7));
+        }
+    }
+
+    /**
+     * Sets a row from a row packed by {@code packRow}.
+     *
+     * @param y          {@code int}
+     * @param packed     {@code byte[]}
+     * @param isMirrored the leftmost cell of the packed row goes on the right {@code boolean}
+     */
+    void unpackRow(int y, byte[] packed, boolean isMirrored) {
+        int row = (y + 1) * this.stride + 1;
+        for (int x = 0; x < this.lengthX; x++) {
+            int source = isMirrored ? this.lengthX - 1 - x : x;
+            this.cells[row + x] = (byte) (packed[source >>> 3] >>> (source & 7) & 1);
+        }
+    }
+
+    /**
+     * Fills the halo from the world for the boundary mode.
+     * The left and right columns go first, so the top and bottom rows copied after
+     * them also get the corners right.
+     */
+    private void refreshHalo() {
+        if (this.boundaryMode == BoundaryModeEnum.DEAD) {
+            // nothing is ever written to the halo, it stays dead
+            return;
+        }
+        int stride = this.stride;
+        for (int row = stride; row <= this.lengthY * stride; row += stride) {
+            this.cells[row] = this.cells[row + this.lengthX];
+            this.cells[row + this.lengthX + 1] = this.cells[row + 1];
+        }
+
+        int topHalo = 0;
+        int bottomHalo = (this.lengthY + 1) * stride;
+        int firstRow = stride;
+        int lastRow = this.lengthY * stride;
+        if (this.boundaryMode == BoundaryModeEnum.TORUS) {
+            System.arraycopy(this.cells, lastRow, this.cells, topHalo, stride);
+            System.arraycopy(this.cells, firstRow, this.cells, bottomHalo, stride);
+        } else {
+            for (int x = 0; x < stride; x++) {
+                this.cells[topHalo + x] = this.cells[lastRow + stride - 1 - x];
+                this.cells[bottomHalo + x] = this.cells[firstRow + stride - 1 - x];
+            }
+        }
+    }
+}
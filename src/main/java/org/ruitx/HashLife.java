@@ -0,0 +1,501 @@
+package org.ruitx;
+
+/**
+ * HashLife engine.
+ * The world is an unbounded plane stored as a quadtree: a node of level {@code L}
+ * is a square of 2^L x 2^L cells made of four level {@code L - 1} children, and the
+ * leaves (level 0) are single cells.
+ * Nodes are hash-consed, so two equal squares anywhere in the world (or in time) are
+ * the same node, and each node memoises its result: the center half of the square
+ * advanced {@code 2^step} generations. Repetitive patterns (guns, breeders, ash)
+ * reuse results and the engine can jump 2^k generations in a single call.
+ * The node cache is bounded by a memory budget; when it goes over it, every node not
+ * reachable from the current world is dropped (garbage collected) together with all
+ * the memoised results.
+ * The root is centered at 0,0 and covers -2^(L-1) to 2^(L-1) - 1 on both axis.
+ */
+public class HashLife {
+
+    /**
+     * Rough size of a node on the heap: header, 5 references, hash, level, step and population.
+     */
+    private static final int NODE_BYTES = 64;
+    private static final long DEFAULT_MEMORY_BUDGET_BYTES = 256L * 1024 * 1024;
+    private static final int MIN_ROOT_LEVEL = 3;
+    private static final int MAX_ROOT_LEVEL = 62;
+
+    private final Rule rule;
+    private final Node deadCell;
+    private final Node aliveCell;
+    private final long maxNodes;
+
+    private Node[] buckets;
+    private long nodeCount;
+    private Node[] emptyNodes;
+    private Node root;
+    private long generation;
+    private int collections;
+
+    public HashLife() {
+        this(DEFAULT_MEMORY_BUDGET_BYTES, Rule.CONWAY);
+    }
+
+    public HashLife(Rule rule) {
+        this(DEFAULT_MEMORY_BUDGET_BYTES, rule);
+    }
+
+    public HashLife(long memoryBudgetBytes) {
+        this(memoryBudgetBytes, Rule.CONWAY);
+    }
+
+    public HashLife(long memoryBudgetBytes, Rule rule) {
+        this.rule = rule;
+        this.maxNodes = Math.max(memoryBudgetBytes / NODE_BYTES, 1024);
+        this.buckets = new Node[1 << 16];
+        this.deadCell = new Node(0, 0);
+        this.aliveCell = new Node(1, 1);
+        this.emptyNodes = new Node[MAX_ROOT_LEVEL + 1];
+        this.emptyNodes[0] = this.deadCell;
+        this.root = this.emptyNode(MIN_ROOT_LEVEL);
+        this.generation = 0;
+    }
+
+    /**
+     * Loads every live cell of a grid, with the grid 0,0 at the plane 0,0.
+     * An unbounded grid's cells outside its viewport are loaded too.
+     *
+     * @param grid {@code Grid}
+     */
+    public void loadGrid(Grid grid) {
+        grid.forEachLiveCell((y, x, isAlive) -> this.setCell(y, x, true));
+    }
+
+    /**
+     * Copies a window of the plane into a grid.
+     * Only the nodes that overlap the window are visited, so this is cheap even when
+     * the world is huge. For an unbounded grid the window is every {@code int} coordinate,
+     * not only its viewport.
+     *
+     * @param grid    {@code Grid}
+     * @param originY plane coordinate of the grid 0,0 {@code long}
+     * @param originX plane coordinate of the grid 0,0 {@code long}
+     */
+    public void copyInto(Grid grid, long originY, long originX) {
+        long half = 1L << (this.root.level - 1);
+        if (grid.isBounded()) {
+            this.copyNode(this.root, -half, -half, grid, originY, originX, originY, originX,
+                          grid.lengthY(), grid.lengthX());
+        } else {
+            long intRange = 1L << Integer.SIZE;
+            this.copyNode(this.root, -half, -half, grid, originY, originX, originY + Integer.MIN_VALUE,
+                          originX + Integer.MIN_VALUE, intRange, intRange);
+        }
+    }
+
+    public long generation() {
+        return this.generation;
+    }
+
+    public long population() {
+        return this.root.population;
+    }
+
+    public long nodeCount() {
+        return this.nodeCount;
+    }
+
+    public int collections() {
+        return this.collections;
+    }
+
+    public boolean checkCell(long y, long x) {
+        Node node = this.root;
+        if (!this.covers(node, y, x)) {
+            return false;
+        }
+        while (node.level > 0) {
+            long quarter = node.level >= 2 ? 1L << (node.level - 2) : 0;
+            if (y < 0) {
+                y += quarter;
+                if (x < 0) {
+                    x += quarter;
+                    node = node.nw;
+                } else {
+                    x -= quarter;
+                    node = node.ne;
+                }
+            } else {
+                y -= quarter;
+                if (x < 0) {
+                    x += quarter;
+                    node = node.sw;
+                } else {
+                    x -= quarter;
+                    node = node.se;
+                }
+            }
+        }
+        return node == this.aliveCell;
+    }
+
+    public void setCell(long y, long x, boolean value) {
+        while (!this.covers(this.root, y, x)) {
+            this.root = this.expand(this.root);
+        }
+        this.root = this.setCell(this.root, y, x, value);
+    }
+
+    /**
+     * Advances the world a number of generations.
+     * The number is split in powers of two and each one is a single memoised step,
+     * so the cost grows with the log of {@code generations}, not with it.
+     *
+     * @param generations {@code long}
+     */
+    public void advance(long generations) {
+        if (generations < 0) {
+            throw new IllegalArgumentException("Can't go back in time: " + generations);
+        }
+        long remaining = generations;
+        int step = 0;
+        while (remaining != 0) {
+            if ((remaining & 1) != 0) {
+                this.step(step);
+            }
+            remaining >>>= 1;
+            step++;
+        }
+    }
+
+    /**
+     * Advances the world 2^step generations.
+     * First the root is padded with empty space until the whole pattern sits in its
+     * center quarter and it is at least {@code step + 3} levels high. Then the pattern
+     * can't grow out of the root result, even at the speed of light.
+     */
+    private void step(int step) {
+        if (this.root.population == 0) {
+            this.generation += 1L << step;
+            return;
+        }
+        while (this.root.level < step + MIN_ROOT_LEVEL || !this.isPadded(this.root)) {
+            if (this.root.level >= MAX_ROOT_LEVEL) {
+                throw new IllegalStateException("Pattern grew past the edge of the plane");
+            }
+            this.root = this.expand(this.root);
+        }
+        this.root = this.successor(this.root, step);
+        this.generation += 1L << step;
+
+        if (this.nodeCount > this.maxNodes) {
+            this.collectGarbage();
+        }
+    }
+
+    /**
+     * The result of a node: its center half advanced 2^step generations, with
+     * {@code step <= level - 2}. At {@code step == level - 2} the node goes at full speed,
+     * two rounds of results of its nine overlapping sub-squares. At smaller steps the
+     * sub-squares are just re-centered and only the second round advances.
+     */
+    private Node successor(Node node, int step) {
+        if (node.population == 0) {
+            return this.emptyNode(node.level - 1);
+        }
+        if (node.result != null && node.resultStep == step) {
+            return node.result;
+        }
+
+        Node result;
+        if (node.level == 2) {
+            result = this.baseSuccessor(node);
+        } else {
+            Node n00 = node.nw;
+            Node n01 = this.centeredHorizontal(node.nw, node.ne);
+            Node n02 = node.ne;
+            Node n10 = this.centeredVertical(node.nw, node.sw);
+            Node n11 = this.centeredSub(node);
+            Node n12 = this.centeredVertical(node.ne, node.se);
+            Node n20 = node.sw;
+            Node n21 = this.centeredHorizontal(node.sw, node.se);
+            Node n22 = node.se;
+
+            int innerStep = step;
+            if (step == node.level - 2) {
+                innerStep = step - 1;
+                n00 = this.successor(n00, innerStep);
+                n01 = this.successor(n01, innerStep);
+                n02 = this.successor(n02, innerStep);
+                n10 = this.successor(n10, innerStep);
+                n11 = this.successor(n11, innerStep);
+                n12 = this.successor(n12, innerStep);
+                n20 = this.successor(n20, innerStep);
+                n21 = this.successor(n21, innerStep);
+                n22 = this.successor(n22, innerStep);
+            } else {
+                n00 = this.centeredSub(n00);
+                n01 = this.centeredSub(n01);
+                n02 = this.centeredSub(n02);
+                n10 = this.centeredSub(n10);
+                n11 = this.centeredSub(n11);
+                n12 = this.centeredSub(n12);
+                n20 = this.centeredSub(n20);
+                n21 = this.centeredSub(n21);
+                n22 = this.centeredSub(n22);
+            }
+
+            result = this.join(
+                    this.successor(this.join(n00, n01, n10, n11), innerStep),
+                    this.successor(this.join(n01, n02, n11, n12), innerStep),
+                    this.successor(this.join(n10, n11, n20, n21), innerStep),
+                    this.successor(this.join(n11, n12, n21, n22), innerStep));
+        }
+
+        node.result = result;
+        node.resultStep = step;
+        return result;
+    }
+
+    /**
+     * Level 2 node (4x4 cells): the center 2x2 comes from the 4x4 block table of the rule.
+     */
+    private Node baseSuccessor(Node node) {
+        int cells = 0;
+        for (int y = 0; y < 4; y++) {
+            for (int x = 0; x < 4; x++) {
+                Node quadrant = y < 2 ? (x < 2 ? node.nw : node.ne) : (x < 2 ? node.sw : node.se);
+                Node cell = (y & 1) == 0 ? ((x & 1) == 0 ? quadrant.nw : quadrant.ne)
+                                         : ((x & 1) == 0 ? quadrant.sw : quadrant.se);
+                if (cell == this.aliveCell) {
+                    cells |= 1 << (y * 4 + x);
+                }
+            }
+        }
+        int center = this.rule.nextBlock(cells);
+        return this.join(
+                this.cell(center & 1),
+                this.cell(center & 2),
+                this.cell(center & 4),
+                this.cell(center & 8));
+    }
+
+    private Node cell(int bit) {
+        return bit != 0 ? this.aliveCell : this.deadCell;
+    }
+
+    private Node centeredSub(Node node) {
+        return this.join(node.nw.se, node.ne.sw, node.sw.ne, node.se.nw);
+    }
+
+    private Node centeredHorizontal(Node west, Node east) {
+        return this.join(west.ne, east.nw, west.se, east.sw);
+    }
+
+    private Node centeredVertical(Node north, Node south) {
+        return this.join(north.sw, north.se, south.nw, south.ne);
+    }
+
+    /**
+     * Checks that all live cells are in the center quarter of the node.
+     */
+    private boolean isPadded(Node node) {
+        return node.population == node.nw.se.se.population
+                                  + node.ne.sw.sw.population
+                                  + node.sw.ne.ne.population
+                                  + node.se.nw.nw.population;
+    }
+
+    /**
+     * Puts the node in the center of a node one level up, surrounded by empty space.
+     */
+    private Node expand(Node node) {
+        Node empty = this.emptyNode(node.level - 1);
+        return this.join(
+                this.join(empty, empty, empty, node.nw),
+                this.join(empty, empty, node.ne, empty),
+                this.join(empty, node.sw, empty, empty),
+                this.join(node.se, empty, empty, empty));
+    }
+
+    private boolean covers(Node node, long y, long x) {
+        long half = 1L << (node.level - 1);
+        return y >= -half && y < half && x >= -half && x < half;
+    }
+
+    private Node setCell(Node node, long y, long x, boolean value) {
+        if (node.level == 0) {
+            return value ? this.aliveCell : this.deadCell;
+        }
+        long quarter = node.level >= 2 ? 1L << (node.level - 2) : 0;
+        if (y < 0) {
+            if (x < 0) {
+                return this.join(this.setCell(node.nw, y + quarter, x + quarter, value), node.ne, node.sw, node.se);
+            }
+            return this.join(node.nw, this.setCell(node.ne, y + quarter, x - quarter, value), node.sw, node.se);
+        }
+        if (x < 0) {
+            return this.join(node.nw, node.ne, this.setCell(node.sw, y - quarter, x + quarter, value), node.se);
+        }
+        return this.join(node.nw, node.ne, node.sw, this.setCell(node.se, y - quarter, x - quarter, value));
+    }
+
+    /**
+     * @param windowTop    plane coordinate of the first row copied {@code long}
+     * @param windowLeft   plane coordinate of the first column copied {@code long}
+     * @param windowHeight {@code long}
+     * @param windowWidth  {@code long}
+     */
+    private void copyNode(Node node, long top, long left, Grid grid, long originY, long originX,
+                          long windowTop, long windowLeft, long windowHeight, long windowWidth) {
+        long size = 1L << node.level;
+        if (node.population == 0
+                || top >= windowTop + windowHeight || top + size <= windowTop
+                || left >= windowLeft + windowWidth || left + size <= windowLeft) {
+            return;
+        }
+        if (node.level == 0) {
+            grid.setCoordinatesValueTo((int) (top - originY), (int) (left - originX), true);
+            return;
+        }
+        long half = size >>> 1;
+        this.copyNode(node.nw, top, left, grid, originY, originX, windowTop, windowLeft, windowHeight, windowWidth);
+        this.copyNode(node.ne, top, left + half, grid, originY, originX, windowTop, windowLeft, windowHeight,
+                      windowWidth);
+        this.copyNode(node.sw, top + half, left, grid, originY, originX, windowTop, windowLeft, windowHeight,
+                      windowWidth);
+        this.copyNode(node.se, top + half, left + half, grid, originY, originX, windowTop, windowLeft,
+                      windowHeight, windowWidth);
+    }
+
+    private Node emptyNode(int level) {
+        if (this.emptyNodes[level] == null) {
+            Node child = this.emptyNode(level - 1);
+            this.emptyNodes[level] = this.join(child, child, child, child);
+        }
+        return this.emptyNodes[level];
+    }
+
+    /**
+     * Returns the canonical node for four children, making it if it's not in the cache yet.
+     */
+    private Node join(Node nw, Node ne, Node sw, Node se) {
+        int hash = hash(nw, ne, sw, se);
+        int bucket = hash & (this.buckets.length - 1);
+        for (Node node = this.buckets[bucket]; node != null; node = node.next) {
+            if (node.nw == nw && node.ne == ne && node.sw == sw && node.se == se) {
+                return node;
+            }
+        }
+
+        Node node = new Node(nw, ne, sw, se, hash);
+        node.next = this.buckets[bucket];
+        this.buckets[bucket] = node;
+        this.nodeCount++;
+        if (this.nodeCount > this.buckets.length - (this.buckets.length >>> 2) && this.buckets.length < 1 << 30) {
+            this.resize(this.buckets.length << 1);
+        }
+        return node;
+    }
+
+    private void resize(int capacity) {
+        Node[] oldBuckets = this.buckets;
+        this.buckets = new Node[capacity];
+        for (Node chain : oldBuckets) {
+            while (chain != null) {
+                Node next = chain.next;
+                int bucket = chain.hash & (capacity - 1);
+                chain.next = this.buckets[bucket];
+                this.buckets[bucket] = chain;
+                chain = next;
+            }
+        }
+    }
+
+    /**
+     * Drops every node that is not part of the current world or an empty node,
+     * and forgets all memoised results since they may point to dropped nodes.
+     */
+    private void collectGarbage() {
+        int mark = ++this.collections;
+        this.mark(this.root, mark);
+        for (Node empty : this.emptyNodes) {
+            if (empty != null) {
+                this.mark(empty, mark);
+            }
+        }
+
+        this.nodeCount = 0;
+        for (int i = 0; i < this.buckets.length; i++) {
+            Node kept = null;
+            for (Node node = this.buckets[i]; node != null; ) {
+                Node next = node.next;
+                if (node.mark == mark) {
+                    node.result = null;
+                    node.next = kept;
+                    kept = node;
+                    this.nodeCount++;
+                }
+                node = next;
+            }
+            this.buckets[i] = kept;
+        }
+    }
+
+    private void mark(Node node, int mark) {
+        if (node.level == 0 || node.mark == mark) {
+            return;
+        }
+        node.mark = mark;
+        this.mark(node.nw, mark);
+        this.mark(node.ne, mark);
+        this.mark(node.sw, mark);
+        this.mark(node.se, mark);
+    }
+
+    private static int hash(Node nw, Node ne, Node sw, Node se) {
+        int hash = nw.hash;
+        hash = hash * 0x9E3779B1 + ne.hash;
+        hash = hash * 0x9E3779B1 + sw.hash;
+        hash = hash * 0x9E3779B1 + se.hash;
+        return hash ^ (hash >>> 16);
+    }
+
+    static final class Node {
+
+        final Node nw;
+        final Node ne;
+        final Node sw;
+        final Node se;
+        final int level;
+        final long population;
+        final int hash;
+
+        Node next;
+        Node result;
+        int resultStep;
+        int mark;
+
+        /**
+         * Leaf, a single cell.
+         */
+        Node(int population, int hash) {
+            this.nw = null;
+            this.ne = null;
+            this.sw = null;
+            this.se = null;
+            this.level = 0;
+            this.population = population;
+            this.hash = hash;
+        }
+
+        Node(Node nw, Node ne, Node sw, Node se, int hash) {
+            this.nw = nw;
+            this.ne = ne;
+            this.sw = sw;
+            this.se = se;
+            this.level = nw.level + 1;
+            this.population = nw.population + ne.population + sw.population + se.population;
+            this.hash = hash;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package org.ruitx;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Open addressing hash set of primitive {@code long} keys.
+ * No boxing, no entry objects: keys are kept in a single {@code long[]} with linear probing.
+ * {@code Long.MIN_VALUE} marks an empty slot, so it can't be stored as a key.
+ */
+public class LongHashSet {
+
+    static final long EMPTY = Long.MIN_VALUE;
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private int size;
+    private int mask;
+
+    public LongHashSet() {
+        this(16);
+    }
+
+    public LongHashSet(int expectedSize) {
+        int capacity = tableSizeFor((int) Math.ceil(Math.max(expectedSize, 4) / LOAD_FACTOR));
+        this.keys = new long[capacity];
+        this.mask = capacity - 1;
+        Arrays.fill(this.keys, EMPTY);
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * Removes every key, keeping the table.
+     */
+    public void clear() {
+        Arrays.fill(this.keys, EMPTY);
+        this.size = 0;
+    }
+
+    /**
+     * @param key {@code long}
+     * @return true if the key was not in the set yet {@code boolean}
+     */
+    public boolean add(long key) {
+        int slot = hash(key) & this.mask;
+        while (this.keys[slot] != EMPTY) {
+            if (this.keys[slot] == key) {
+                return false;
+            }
+            slot = (slot + 1) & this.mask;
+        }
+        this.keys[slot] = key;
+        this.size++;
+        if (this.size > this.keys.length * LOAD_FACTOR) {
+            this.rehash(this.keys.length << 1);
+        }
+        return true;
+    }
+
+    /**
+     * Removes a key, shifting back the keys probed after it so lookups never hit a hole.
+     *
+     * @param key {@code long}
+     * @return true if the key was in the set {@code boolean}
+     */
+    public boolean remove(long key) {
+        int slot = hash(key) & this.mask;
+        while (this.keys[slot] != key) {
+            if (this.keys[slot] == EMPTY) {
+                return false;
+            }
+            slot = (slot + 1) & this.mask;
+        }
+
+        int hole = slot;
+        int next = (hole + 1) & this.mask;
+        while (this.keys[next] != EMPTY) {
+            int home = hash(this.keys[next]) & this.mask;
+            // move the key back if its home slot is not between the hole and where it sits
+            if (((next - home) & this.mask) >= ((next - hole) & this.mask)) {
+                this.keys[hole] = this.keys[next];
+                hole = next;
+            }
+            next = (next + 1) & this.mask;
+        }
+        this.keys[hole] = EMPTY;
+        this.size--;
+        return true;
+    }
+
+    public boolean contains(long key) {
+        int slot = hash(key) & this.mask;
+        long current;
+        while ((current = this.keys[slot]) != EMPTY) {
+            if (current == key) {
+                return true;
+            }
+            slot = (slot + 1) & this.mask;
+        }
+        return false;
+    }
+
+    public void forEach(LongConsumer action) {
+        for (long key : this.keys) {
+            if (key != EMPTY) {
+                action.accept(key);
+            }
+        }
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldKeys = this.keys;
+        this.keys = new long[newCapacity];
+        this.mask = newCapacity - 1;
+        Arrays.fill(this.keys, EMPTY);
+        for (long key : oldKeys) {
+            if (key != EMPTY) {
+                int slot = hash(key) & this.mask;
+                while (this.keys[slot] != EMPTY) {
+                    slot = (slot + 1) & this.mask;
+                }
+                this.keys[slot] = key;
+            }
+        }
+    }
+
+    /**
+     * Mixes all 64 bits of the key into the low bits used for the slot (murmur3 finalizer).
+     */
+    static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    static int tableSizeFor(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        return size < 0 ? 1 << 30 : size;
+    }
+}
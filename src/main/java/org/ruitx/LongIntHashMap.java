@@ -0,0 +1,119 @@
+package org.ruitx;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map from primitive {@code long} keys to {@code int} values.
+ * Same layout as {@code LongHashSet}, with a parallel {@code int[]} for the values.
+ * Only what the engines need: get, put, increment a counter and walk the entries.
+ */
+public class LongIntHashMap {
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+    private int mask;
+
+    public LongIntHashMap(int expectedSize) {
+        int capacity = LongHashSet.tableSizeFor((int) Math.ceil(Math.max(expectedSize, 4) / LOAD_FACTOR));
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+        this.mask = capacity - 1;
+        Arrays.fill(this.keys, LongHashSet.EMPTY);
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * @param key          {@code long}
+     * @param missingValue returned when the key is not in the map {@code int}
+     * @return value {@code int}
+     */
+    public int get(long key, int missingValue) {
+        int slot = LongHashSet.hash(key) & this.mask;
+        long current;
+        while ((current = this.keys[slot]) != LongHashSet.EMPTY) {
+            if (current == key) {
+                return this.values[slot];
+            }
+            slot = (slot + 1) & this.mask;
+        }
+        return missingValue;
+    }
+
+    public void put(long key, int value) {
+        int slot = LongHashSet.hash(key) & this.mask;
+        long current;
+        while ((current = this.keys[slot]) != LongHashSet.EMPTY) {
+            if (current == key) {
+                this.values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & this.mask;
+        }
+        this.keys[slot] = key;
+        this.values[slot] = value;
+        this.size++;
+        if (this.size > this.keys.length * LOAD_FACTOR) {
+            this.rehash(this.keys.length << 1);
+        }
+    }
+
+    /**
+     * Adds one to the value of a key, starting from 0 if absent.
+     *
+     * @param key {@code long}
+     */
+    public void increment(long key) {
+        int slot = LongHashSet.hash(key) & this.mask;
+        long current;
+        while ((current = this.keys[slot]) != LongHashSet.EMPTY) {
+            if (current == key) {
+                this.values[slot]++;
+                return;
+            }
+            slot = (slot + 1) & this.mask;
+        }
+        this.keys[slot] = key;
+        this.values[slot] = 1;
+        this.size++;
+        if (this.size > this.keys.length * LOAD_FACTOR) {
+            this.rehash(this.keys.length << 1);
+        }
+    }
+
+    public void forEach(EntryConsumer action) {
+        for (int i = 0; i < this.keys.length; i++) {
+            if (this.keys[i] != LongHashSet.EMPTY) {
+                action.accept(this.keys[i], this.values[i]);
+            }
+        }
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldKeys = this.keys;
+        int[] oldValues = this.values;
+        this.keys = new long[newCapacity];
+        this.values = new int[newCapacity];
+        this.mask = newCapacity - 1;
+        Arrays.fill(this.keys, LongHashSet.EMPTY);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != LongHashSet.EMPTY) {
+                int slot = LongHashSet.hash(oldKeys[i]) & this.mask;
+                while (this.keys[slot] != LongHashSet.EMPTY) {
+                    slot = (slot + 1) & this.mask;
+                }
+                this.keys[slot] = oldKeys[i];
+                this.values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    public interface EntryConsumer {
+        void accept(long key, int value);
+    }
+}
@@ -1,15 +1,111 @@
 package org.ruitx;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 public class Main {
+
+    private static final String USAGE = "Usage: [--size RxC] [--edges dead|torus|klein]"
+                                        + " [--backend boxed|bitpacked|sparse|tiled|halo|offheap] [--rule B/S]"
+                                        + " [--grid-dir dir] [--checkpoint file [n]] [--metrics [file]]"
+                                        + " [--viewers [port]]";
+
     public static void main(String[] args) {
 
+        if (args.length > 0 && args[0].equals("--scaling")) {
+            printScalingReport(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--batch")) {
+            System.exit(runBatch(args));
+        }
+        if (args.length > 0 && args[0].equals("--distributed")) {
+            System.exit(runDistributed(args));
+        }
+        if (args.length > 1 && args[0].equals("--worker")) {
+            System.exit(runWorker(args[1]));
+        }
+        if (args.length > 0 && args[0].equals("--serve")) {
+            System.exit(runServer(args));
+        }
+
         printTitle();
 
         Conways game = new Conways();
+        Path metricsPath = null;
+        ViewerServer viewerServer = null;
+        String option = null;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                option = args[i];
+                switch (option) {
+                    case "--checkpoint":
+                        Path checkpointPath = Path.of(args[++i]);
+                        int interval = i + 1 < args.length && args[i + 1].matches("\\d+") ? Integer.parseInt(args[++i])
+                                                                                          : 100;
+                        game.setAutoCheckpoint(checkpointPath, interval);
+                        break;
+                    case "--size":
+                        String[] lengths = args[++i].toLowerCase().split("x");
+                        if (lengths.length != 2) {
+                            throw new IllegalArgumentException("size must be RxC: " + args[i]);
+                        }
+                        game.setGridSize(Integer.parseInt(lengths[0]), Integer.parseInt(lengths[1]));
+                        break;
+                    case "--edges":
+                        game.setBoundaryMode(BoundaryModeEnum.valueOf(args[++i].toUpperCase()));
+                        break;
+                    case "--backend":
+                        game.setGridBackend(GridBackendEnum.valueOf(args[++i].toUpperCase()));
+                        break;
+                    case "--grid-dir":
+                        game.setGridDirectory(Path.of(args[++i]));
+                        break;
+                    case "--rule":
+                        game.setRule(Rule.parse(args[++i]));
+                        break;
+                    case "--metrics":
+                        Metrics.setEnabled(true);
+                        if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                            metricsPath = Path.of(args[++i]);
+                        }
+                        break;
+                    case "--viewers":
+                        int port = i + 1 < args.length && args[i + 1].matches("\\d+") ? Integer.parseInt(args[++i])
+                                                                                      : 8080;
+                        try {
+                            viewerServer = startViewerServer(port);
+                            game.setBroadcaster(viewerServer.broadcaster());
+                        } catch (IOException e) {
+                            System.out.println("Something went wrong. Please try again.\nDetails: " + e.getMessage());
+                        }
+                        break;
+                    default:
+                        System.out.println("Unknown option " + option);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            System.err.println("Something went wrong. Please try again.\nDetails: " + option + " needs a value");
+            System.err.println(USAGE);
+            System.exit(2);
+        } catch (RuntimeException e) {
+            System.err.println("Something went wrong. Please try again.\nDetails: bad " + option + ", "
+                               + e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+        }
 
         BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
         String input = null;
@@ -19,6 +115,7 @@ public class Main {
                 if (mapPath != null && !mapPath.isEmpty()) {
                     System.out.println();
                     System.out.println("Map '" + mapPath + "' selected");
+                    System.out.println(game.simulationSummary());
                 }
                 printMainMenu();
                 System.out.print("[option]> ");
@@ -40,7 +137,55 @@ public class Main {
                     case RANDOM:
                         mapPath = game.generateRandomMap();
                         break;
+                    case JUMP:
+                        mapPath = game.jumpGenerations();
+                        break;
+                    case SAVE:
+                        String saved = game.saveCheckpoint();
+                        if (saved != null) {
+                            System.out.println(saved);
+                        }
+                        break;
+                    case RESUME:
+                        mapPath = game.resumeCheckpoint();
+                        break;
+                    case SOUPS:
+                        System.out.print(game.searchSoups());
+                        break;
+                    case CONSOLE:
+                        System.out.println(game.switchConsoleMode());
+                        break;
+                    case DUMP:
+                        String dumped = game.dumpGenerations();
+                        if (dumped != null) {
+                            System.out.println(dumped);
+                        }
+                        break;
+                    case STREAM:
+                        System.out.println(game.switchStreamingMode());
+                        break;
+                    case BACKEND:
+                        System.out.println(game.switchGridBackend());
+                        break;
+                    case EDGES:
+                        System.out.println(game.switchBoundaryMode());
+                        break;
+                    case RULE:
+                        String rule = game.changeRule();
+                        if (rule != null) {
+                            System.out.println(rule);
+                        }
+                        break;
+                    case METRICS:
+                        System.out.print(Metrics.isEnabled() ? Metrics.dump() : "Metrics are off, start with --metrics\n");
+                        break;
                     case EXIT:
+                        if (Metrics.isEnabled()) {
+                            writeMetrics(metricsPath);
+                        }
+                        if (viewerServer != null) {
+                            viewerServer.stop();
+                        }
                         return;
 
                     default:
@@ -52,6 +197,33 @@ public class Main {
         }
     }
 
+    /**
+     * Writes the metrics to a file, or prints them when there's none.
+     *
+     * @param metricsPath {@code Path}
+     */
+    private static void writeMetrics(Path metricsPath) throws IOException {
+        if (metricsPath == null) {
+            System.out.print(Metrics.dump());
+        } else {
+            Files.writeString(metricsPath, Metrics.dump());
+            System.out.println("Metrics written to " + metricsPath);
+        }
+    }
+
+    /**
+     * Starts a {@code ViewerServer} on this machine only.
+     *
+     * @param port 0 for any free one {@code int}
+     * @return {@code ViewerServer}
+     */
+    private static ViewerServer startViewerServer(int port) throws IOException {
+        ViewerServer viewerServer = new ViewerServer(new GenerationBroadcaster());
+        InetSocketAddress address = viewerServer.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        System.out.println("Viewers at http://" + address.getHostString() + ":" + address.getPort() + "/");
+        return viewerServer;
+    }
+
     public static MainMenuEnum checkChoice(String choice) {
         for (int i = 0; i < MainMenuEnum.values().length; i++) {
             if (choice.equals(MainMenuEnum.values()[i].getOption())) {
@@ -69,6 +241,298 @@ public class Main {
         System.out.println();
     }
 
+    /**
+     * Prints the parallel stepping throughput at 1, 2, 4, ... cores.
+     * Usage: {@code --scaling [lengthY] [lengthX] [generations]}
+     */
+    public static void printScalingReport(String[] args) {
+        int lengthY = args.length > 1 ? Integer.parseInt(args[1]) : 2048;
+        int lengthX = args.length > 2 ? Integer.parseInt(args[2]) : 2048;
+        int generations = args.length > 3 ? Integer.parseInt(args[3]) : 200;
+        System.out.print(ParallelStepper.scalingReport(lengthY, lengthX, generations));
+    }
+
+    /**
+     * Simulates pattern files without the menu, see {@code BatchRun}.
+     * Usage: {@code --batch [--generations n] [--backend name] [--edges mode] [--rule B/S] [--size RxC]
+     * [--threads n] [--format csv|json] [--out file] [--snapshots dir] [--metrics] file|glob...}
+     * Records go to stdout or {@code --out}, the summary and errors to stderr.
+     *
+     * @return exit status: 0 if every file was simulated, 1 if some failed, 2 for bad usage {@code int}
+     */
+    public static int runBatch(String[] args) {
+        long maxGenerations = 500;
+        GridBackendEnum gridBackend = GridBackendEnum.BITPACKED;
+        BoundaryModeEnum boundaryMode = BoundaryModeEnum.DEAD;
+        Rule rule = Rule.CONWAY;
+        int lengthY = 0;
+        int lengthX = 0;
+        int threads = Runtime.getRuntime().availableProcessors();
+        BatchFormatEnum format = BatchFormatEnum.CSV;
+        Path outPath = null;
+        Path snapshotDirectory = null;
+        List<Path> files = new ArrayList<>();
+
+        try {
+            for (int i = 1; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--generations":
+                        maxGenerations = Long.parseLong(args[++i]);
+                        break;
+                    case "--backend":
+                        gridBackend = GridBackendEnum.valueOf(args[++i].toUpperCase());
+                        break;
+                    case "--edges":
+                        boundaryMode = BoundaryModeEnum.valueOf(args[++i].toUpperCase());
+                        break;
+                    case "--rule":
+                        rule = Rule.parse(args[++i]);
+                        break;
+                    case "--size":
+                        String[] lengths = args[++i].toLowerCase().split("x");
+                        lengthY = Integer.parseInt(lengths[0]);
+                        lengthX = Integer.parseInt(lengths[1]);
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    case "--format":
+                        format = BatchFormatEnum.valueOf(args[++i].toUpperCase());
+                        break;
+                    case "--out":
+                        outPath = Path.of(args[++i]);
+                        break;
+                    case "--snapshots":
+                        snapshotDirectory = Files.createDirectories(Path.of(args[++i]));
+                        break;
+                    case "--metrics":
+                        Metrics.setEnabled(true);
+                        break;
+                    default:
+                        files.addAll(BatchRun.expand(args[i]));
+                }
+            }
+            if (files.isEmpty()) {
+                throw new IllegalArgumentException("No pattern files given");
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Something went wrong. Please try again.\nDetails: " + e.getMessage());
+            return 2;
+        }
+
+        BatchRun batchRun = new BatchRun(files, maxGenerations, gridBackend, boundaryMode, rule, lengthY, lengthX,
+                                         threads, format, snapshotDirectory);
+        try (Writer out = outPath == null
+                          ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+                          : Files.newBufferedWriter(outPath)) {
+            int failedFiles = batchRun.run(out);
+            System.err.print(batchRun.report());
+            if (Metrics.isEnabled()) {
+                System.err.print(Metrics.dump());
+            }
+            return failedFiles == 0 ? 0 : 1;
+        } catch (IOException | InterruptedException e) {
+            System.err.println("Something went wrong. Please try again.\nDetails: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    /**
+     * Simulates one pattern file on several worker processes, see {@code DistributedCoordinator}.
+     * Usage: {@code --distributed [--workers n] [--generations n] [--edges mode] [--rule B/S] [--size RxC]
+     * [--listen host:port|unix:path] [--no-spawn] [--rebalance n] [--out file] file}
+     * Workers are spawned on this machine unless {@code --no-spawn} is given, then they're
+     * started by hand with {@code --worker address}, on this machine or others.
+     *
+     * @return exit status: 0 if the run ended, 1 if it failed, 2 for bad usage {@code int}
+     */
+    public static int runDistributed(String[] args) {
+        int workers = 2;
+        long maxGenerations = 500;
+        BoundaryModeEnum boundaryMode = BoundaryModeEnum.DEAD;
+        Rule rule = Rule.CONWAY;
+        int lengthY = 0;
+        int lengthX = 0;
+        String listenAddress = "127.0.0.1:0";
+        boolean isSpawningWorkers = true;
+        int rebalanceInterval = 64;
+        Path outPath = null;
+        Path file = null;
+
+        try {
+            for (int i = 1; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--workers":
+                        workers = Integer.parseInt(args[++i]);
+                        break;
+                    case "--generations":
+                        maxGenerations = Long.parseLong(args[++i]);
+                        break;
+                    case "--edges":
+                        boundaryMode = BoundaryModeEnum.valueOf(args[++i].toUpperCase());
+                        break;
+                    case "--rule":
+                        rule = Rule.parse(args[++i]);
+                        break;
+                    case "--size":
+                        String[] lengths = args[++i].toLowerCase().split("x");
+                        lengthY = Integer.parseInt(lengths[0]);
+                        lengthX = Integer.parseInt(lengths[1]);
+                        break;
+                    case "--listen":
+                        listenAddress = args[++i];
+                        break;
+                    case "--no-spawn":
+                        isSpawningWorkers = false;
+                        break;
+                    case "--rebalance":
+                        rebalanceInterval = Integer.parseInt(args[++i]);
+                        break;
+                    case "--out":
+                        outPath = Path.of(args[++i]);
+                        break;
+                    default:
+                        file = Path.of(args[i]);
+                }
+            }
+            if (file == null) {
+                throw new IllegalArgumentException("No pattern file given");
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Something went wrong. Please try again.\nDetails: " + e.getMessage());
+            return 2;
+        }
+
+        // the pattern is only read here, packed, the edges are the workers' business
+        Conways game = new Conways();
+        game.setGridBackend(GridBackendEnum.BITPACKED);
+        game.setRule(rule);
+        if (lengthY > 0) {
+            game.setGridSize(lengthY, lengthX);
+        }
+        try (DistributedCoordinator coordinator = new DistributedCoordinator(game.readPattern(file), game.rule(),
+                                                                             boundaryMode, workers,
+                                                                             rebalanceInterval)) {
+            SocketAddress address = coordinator.listen(DistributedProtocol.parseAddress(listenAddress));
+            if (isSpawningWorkers) {
+                coordinator.spawnWorkers();
+            } else {
+                System.err.println("Waiting for " + workers + " workers, start each with --worker "
+                                   + DistributedProtocol.formatAddress(address));
+            }
+            coordinator.connectWorkers();
+            coordinator.run(maxGenerations);
+            System.out.print(coordinator.report());
+            if (outPath != null) {
+                try (GenerationDump generationDump = new GenerationDump(outPath)) {
+                    generationDump.write(coordinator.gatherWorld(), coordinator.generation());
+                }
+            }
+            return 0;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Something went wrong. Please try again.\nDetails: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    /**
+     * Works for a distributed run until the coordinator stops it, see {@code DistributedWorker}.
+     * Usage: {@code --worker host:port|unix:path}
+     *
+     * @return exit status: 0 when stopped by the coordinator, 1 if the connection failed {@code int}
+     */
+    public static int runWorker(String address) {
+        try {
+            new DistributedWorker(DistributedProtocol.parseAddress(address)).run();
+            return 0;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Something went wrong. Please try again.\nDetails: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    /**
+     * Simulates one pattern file at a steady pace for viewers only, see {@code ViewerServer}.
+     * Usage: {@code --serve [--port n] [--fps n] [--generations n] [--backend name] [--edges mode] [--rule B/S]
+     * [--size RxC] file}
+     * Runs until {@code --generations}, or until stopped when there's none.
+     *
+     * @return exit status: 0 if the run ended, 1 if it failed, 2 for bad usage {@code int}
+     */
+    public static int runServer(String[] args) {
+        int port = 8080;
+        double fps = 10;
+        long maxGenerations = -1;
+        Conways game = new Conways();
+        game.setGridBackend(GridBackendEnum.BITPACKED);
+        Path file = null;
+
+        try {
+            for (int i = 1; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--port":
+                        port = Integer.parseInt(args[++i]);
+                        break;
+                    case "--fps":
+                        fps = Double.parseDouble(args[++i]);
+                        break;
+                    case "--generations":
+                        maxGenerations = Long.parseLong(args[++i]);
+                        break;
+                    case "--backend":
+                        game.setGridBackend(GridBackendEnum.valueOf(args[++i].toUpperCase()));
+                        break;
+                    case "--edges":
+                        game.setBoundaryMode(BoundaryModeEnum.valueOf(args[++i].toUpperCase()));
+                        break;
+                    case "--rule":
+                        game.setRule(Rule.parse(args[++i]));
+                        break;
+                    case "--size":
+                        String[] lengths = args[++i].toLowerCase().split("x");
+                        game.setGridSize(Integer.parseInt(lengths[0]), Integer.parseInt(lengths[1]));
+                        break;
+                    default:
+                        file = Path.of(args[i]);
+                }
+            }
+            if (file == null) {
+                throw new IllegalArgumentException("No pattern file given");
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Something went wrong. Please try again.\nDetails: " + e.getMessage());
+            return 2;
+        }
+
+        ViewerServer viewerServer = null;
+        try {
+            Grid grid = game.readPattern(file);
+            viewerServer = startViewerServer(port);
+            GenerationBroadcaster broadcaster = viewerServer.broadcaster();
+            FramePacer framePacer = new FramePacer(fps);
+            Grid spareGrid = game.newSpareGrid(grid);
+            for (long generation = 0; maxGenerations < 0 || generation <= maxGenerations; generation++) {
+                if (generation > 0) {
+                    Grid newGrid = game.nextGeneration(grid, spareGrid);
+                    if (spareGrid != null) {
+                        spareGrid = grid;
+                    }
+                    grid = newGrid;
+                }
+                framePacer.awaitFrame(false);
+                broadcaster.publish(grid, generation);
+            }
+            return 0;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Something went wrong. Please try again.\nDetails: " + e.getMessage());
+            return 1;
+        } finally {
+            if (viewerServer != null) {
+                viewerServer.stop();
+            }
+        }
+    }
+
     public static void printTitle() {
         System.out.println();
         System.out.println("Conway's Game of Life");
@@ -4,6 +4,17 @@ public enum MainMenuEnum {
     LOAD(1, "1", "Load world from file"),
     RNDSTABLE(2, "2", "Generate random world that is stable"),
     RANDOM(3, "3", "Generate random world"),
+    BACKEND(4, "4", "Switch grid backend"),
+    EDGES(14, "E", "Switch world edges: dead, torus or Klein bottle"),
+    RULE(15, "B", "Set the rule in B/S notation, like B3/S23 or B36/S23"),
+    JUMP(5, "5", "Jump current world forward n generations (HashLife, dead edges only)"),
+    STREAM(6, "6", "Switch streaming mode"),
+    SOUPS(7, "7", "Search random soups and report"),
+    SAVE(10, "S", "Save a checkpoint of the current world"),
+    RESUME(11, "R", "Resume a world from a checkpoint"),
+    CONSOLE(12, "C", "Switch console output mode"),
+    DUMP(13, "D", "Dump every generation of the current world to a file"),
+    METRICS(16, "M", "Show simulation metrics"),
     PRINT(8, "8", "Print to console the current selected world"),
     DRAW(9, "9", "Draw current selected world"),
     EXIT(0, "0", "Exit");
@@ -0,0 +1,176 @@
+package org.ruitx;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process registry of counters and histograms, read by the TUI status line and
+ * the {@code --metrics} dump.
+ * Off by default: while disabled nothing records into it, the simulation only pays
+ * for checking {@code isEnabled()}. Counters are {@code LongAdder}s and histograms
+ * have power of two buckets, so recording is a few atomic adds with no locking and
+ * no allocation, from any thread.
+ */
+public final class Metrics {
+
+    public static final String SIMULATIONS = "simulations";
+    public static final String GENERATIONS = "generations";
+    public static final String BIRTHS = "births";
+    public static final String DEATHS = "deaths";
+    public static final String STEP_NANOS = "step.nanos";
+    public static final String STEP_ALLOCATED_BYTES = "step.allocated.bytes";
+    public static final String SIMULATION_NANOS = "simulation.nanos";
+    public static final String STOPS = "stops.";
+
+    private static final Map<String, Counter> COUNTERS = new ConcurrentSkipListMap<>();
+    private static final Map<String, Histogram> HISTOGRAMS = new ConcurrentSkipListMap<>();
+
+    private static volatile boolean isEnabled;
+
+    private Metrics() {
+    }
+
+    public static boolean isEnabled() {
+        return isEnabled;
+    }
+
+    public static void setEnabled(boolean isEnabled) {
+        Metrics.isEnabled = isEnabled;
+    }
+
+    /**
+     * @param name {@code String}
+     * @return the counter with that name, made on first use {@code Counter}
+     */
+    public static Counter counter(String name) {
+        return COUNTERS.computeIfAbsent(name, key -> new Counter());
+    }
+
+    /**
+     * @param name {@code String}
+     * @return the histogram with that name, made on first use {@code Histogram}
+     */
+    public static Histogram histogram(String name) {
+        return HISTOGRAMS.computeIfAbsent(name, key -> new Histogram());
+    }
+
+    /**
+     * Short summary for the TUI status line.
+     *
+     * @return status {@code String}
+     */
+    public static String statusLine() {
+        Histogram steps = histogram(STEP_NANOS);
+        return String.format("step p50 %s p99 %s", formatNanos(steps.percentile(0.5)),
+                             formatNanos(steps.percentile(0.99)));
+    }
+
+    /**
+     * Every counter and histogram, one per line.
+     *
+     * @return report {@code String}
+     */
+    public static String dump() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%-24s %14s%n", "counter", "value"));
+        COUNTERS.forEach((name, counter) -> report.append(String.format("%-24s %14d%n", name, counter.sum())));
+        report.append(String.format("%-24s %10s %12s %12s %12s %12s%n", "histogram", "count", "mean", "p50", "p99", "max"));
+        HISTOGRAMS.forEach((name, histogram) -> report.append(String.format(
+                "%-24s %10d %12.0f %12d %12d %12d%n", name, histogram.count(), histogram.mean(),
+                histogram.percentile(0.5), histogram.percentile(0.99), histogram.max())));
+        return report.toString();
+    }
+
+    /**
+     * Clears every counter and histogram.
+     */
+    public static void reset() {
+        COUNTERS.clear();
+        HISTOGRAMS.clear();
+    }
+
+    private static String formatNanos(long nanos) {
+        if (nanos < 10_000) {
+            return nanos + "ns";
+        }
+        if (nanos < 10_000_000) {
+            return nanos / 1_000 + "us";
+        }
+        return nanos / 1_000_000 + "ms";
+    }
+
+    public static final class Counter {
+
+        private final LongAdder value = new LongAdder();
+
+        public void add(long amount) {
+            this.value.add(amount);
+        }
+
+        public void increment() {
+            this.value.increment();
+        }
+
+        public long sum() {
+            return this.value.sum();
+        }
+    }
+
+    /**
+     * Histogram of non-negative values, like latencies in nanoseconds.
+     * Bucket {@code b} counts values of {@code 2^(b-1)} up to {@code 2^b - 1} (bucket 0 is
+     * only 0), so a percentile is known to within a factor of two, with 64 buckets for
+     * any {@code long}.
+     */
+    public static final class Histogram {
+
+        private final AtomicLongArray buckets = new AtomicLongArray(Long.SIZE + 1);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        public void record(long value) {
+            this.buckets.incrementAndGet(Long.SIZE - Long.numberOfLeadingZeros(Math.max(value, 0)));
+            this.count.increment();
+            this.sum.add(value);
+            this.max.accumulateAndGet(value, Math::max);
+        }
+
+        public long count() {
+            return this.count.sum();
+        }
+
+        public double mean() {
+            long count = this.count();
+            return count == 0 ? 0 : (double) this.sum.sum() / count;
+        }
+
+        public long max() {
+            return this.max.get();
+        }
+
+        /**
+         * @param fraction 0 to 1 {@code double}
+         * @return upper bound of the bucket the percentile falls in, at most the max {@code long}
+         */
+        public long percentile(double fraction) {
+            long count = this.count();
+            if (count == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(fraction * count);
+            long seen = 0;
+            for (int b = 0; b < this.buckets.length(); b++) {
+                seen += this.buckets.get(b);
+                if (seen >= rank) {
+                    long upperBound = b == 0 ? 0 : b >= Long.SIZE - 1 ? Long.MAX_VALUE : (1L << b) - 1;
+                    return Math.min(upperBound, this.max());
+                }
+            }
+            return this.max();
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package org.ruitx;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Bit-packed game grid outside the Java heap, for worlds larger than the heap.
+ * Same packing as {@code BitGrid}, one bit per cell in rows of {@code long} words, but the
+ * words live in direct {@code ByteBuffer}s, or in a memory-mapped file so the OS page
+ * cache decides what stays in memory. A plane is split in buffers of whole rows of up
+ * to {@code SEGMENT_BYTES}, a 100k x 100k world is 1.25GB per plane.
+ * Stepping is double-buffered: there are two planes, the next generation is computed
+ * from one into the other, and the grid returned by {@code nextGeneration} is the same
+ * memory with the planes swapped: the planes are never allocated again, a step only makes
+ * the small object of the new grid. So only the newest grid and the one before it can be
+ * read, older ones have been overwritten and throw if used.
+ * Direct buffers count against {@code -XX:MaxDirectMemorySize}, mapped ones don't.
+ * Cells outside the grid are dead, same as the other bounded grids.
+ */
+public class OffHeapGrid implements Grid {
+
+    private static final long SEGMENT_BYTES = 1L << 30;
+
+    private final int gridLengthY;
+    private final int gridLengthX;
+    private final int wordsPerRow;
+    private final long lastWordMask;
+    private final int rowsPerSegment;
+    private final ByteBuffer[][] planes;
+    /**
+     * Generation held by each plane, shared by every grid on the same planes.
+     */
+    private final long[] planeGenerations;
+    private final int plane;
+    private final long generation;
+
+    /**
+     * A grid in direct memory.
+     *
+     * @param lengthY {@code int}
+     * @param lengthX {@code int}
+     */
+    public OffHeapGrid(int lengthY, int lengthX) {
+        this(lengthY, lengthX, null);
+    }
+
+    private OffHeapGrid(int lengthY, int lengthX, FileChannel channel) {
+        if (lengthY < 1 || lengthX < 1) {
+            throw new IllegalArgumentException("Grid must be at least 1x1: " + lengthY + "x" + lengthX);
+        }
+        this.gridLengthY = lengthY;
+        this.gridLengthX = lengthX;
+        this.wordsPerRow = (lengthX + 63) >>> 6;
+        this.lastWordMask = (lengthX & 63) == 0 ? -1L : (1L << (lengthX & 63)) - 1;
+        long rowBytes = (long) this.wordsPerRow * Long.BYTES;
+        if (rowBytes > SEGMENT_BYTES) {
+            throw new IllegalArgumentException("Grid too wide for an off-heap grid: " + lengthX);
+        }
+        this.rowsPerSegment = (int) Math.min(SEGMENT_BYTES / rowBytes, lengthY);
+        this.planes = new ByteBuffer[][]{this.allocatePlane(channel, 0), this.allocatePlane(channel, 1)};
+        this.planeGenerations = new long[2];
+        this.plane = 0;
+        this.generation = 0;
+    }
+
+    /**
+     * Next generation on the other plane of {@code previous}.
+     */
+    private OffHeapGrid(OffHeapGrid previous) {
+        this.gridLengthY = previous.gridLengthY;
+        this.gridLengthX = previous.gridLengthX;
+        this.wordsPerRow = previous.wordsPerRow;
+        this.lastWordMask = previous.lastWordMask;
+        this.rowsPerSegment = previous.rowsPerSegment;
+        this.planes = previous.planes;
+        this.planeGenerations = previous.planeGenerations;
+        this.plane = previous.plane ^ 1;
+        this.generation = previous.generation + 1;
+    }
+
+    /**
+     * A grid in a memory-mapped temporary file in {@code directory}.
+     * The file is deleted right after it's mapped, the mapping keeps it until the grid
+     * is collected (where the OS doesn't allow that, it's deleted on exit).
+     *
+     * @param lengthY   {@code int}
+     * @param lengthX   {@code int}
+     * @param directory {@code Path}
+     * @return grid {@code OffHeapGrid}
+     */
+    public static OffHeapGrid mapped(int lengthY, int lengthX, Path directory) throws IOException {
+        Path file = Files.createTempFile(directory, "jonways-", ".grid");
+        OffHeapGrid grid;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            grid = new OffHeapGrid(lengthY, lengthX, channel);
+        } catch (UncheckedIOException e) {
+            Files.deleteIfExists(file);
+            throw e.getCause();
+        }
+        try {
+            Files.delete(file);
+        } catch (IOException e) {
+            file.toFile().deleteOnExit();
+        }
+        return grid;
+    }
+
+    @Override
+    public int lengthY() {
+        return this.gridLengthY;
+    }
+
+    @Override
+    public int lengthX() {
+        return this.gridLengthX;
+    }
+
+    @Override
+    public boolean checkCoordinates(int y, int x) {
+        return (this.word(this.plane(), y, x >>> 6) & (1L << x)) != 0;
+    }
+
+    @Override
+    public void setCoordinatesValueTo(int y, int x, boolean value) {
+        ByteBuffer[] plane = this.plane();
+        long word = this.word(plane, y, x >>> 6);
+        word = value ? word | (1L << x) : word & ~(1L << x);
+        plane[y / this.rowsPerSegment].putLong(this.offset(y, x >>> 6), word);
+    }
+
+    @Override
+    public void clear() {
+        for (ByteBuffer segment : this.plane()) {
+            for (int i = 0; i < segment.capacity(); i += Long.BYTES) {
+                segment.putLong(i, 0L);
+            }
+        }
+    }
+
+    @Override
+    public void forEachLiveCell(CellConsumer action) {
+        ByteBuffer[] plane = this.plane();
+        for (int y = 0; y < this.gridLengthY; y++) {
+            for (int w = 0; w < this.wordsPerRow; w++) {
+                for (long word = this.word(plane, y, w); word != 0; word &= word - 1) {
+                    action.accept(y, (w << 6) + Long.numberOfTrailingZeros(word), true);
+                }
+            }
+        }
+    }
+
+    /**
+     * XORs the rows a word at a time, so only changed cells are visited one by one.
+     */
+    @Override
+    public void forEachDifference(Grid other, CellConsumer action) {
+        if (!(other instanceof OffHeapGrid otherGrid)) {
+            Grid.super.forEachDifference(other, action);
+            return;
+        }
+        ByteBuffer[] plane = this.plane();
+        ByteBuffer[] otherPlane = otherGrid.plane();
+        for (int y = 0; y < this.gridLengthY; y++) {
+            for (int w = 0; w < this.wordsPerRow; w++) {
+                long otherWord = otherGrid.word(otherPlane, y, w);
+                for (long changed = this.word(plane, y, w) ^ otherWord; changed != 0; changed &= changed - 1) {
+                    int bit = Long.numberOfTrailingZeros(changed);
+                    action.accept(y, (w << 6) + bit, (otherWord & (1L << bit)) != 0);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param other {@code OffHeapGrid}
+     * @return isEqual {@code boolean}
+     */
+    public boolean sameCells(OffHeapGrid other) {
+        if (this.gridLengthY != other.gridLengthY || this.gridLengthX != other.gridLengthX) {
+            return false;
+        }
+        ByteBuffer[] plane = this.plane();
+        ByteBuffer[] otherPlane = other.plane();
+        for (int y = 0; y < this.gridLengthY; y++) {
+            for (int w = 0; w < this.wordsPerRow; w++) {
+                if (this.word(plane, y, w) != other.word(otherPlane, y, w)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    public OffHeapGrid nextGeneration() {
+        return this.nextGeneration(Rule.CONWAY);
+    }
+
+    /**
+     * Process's the next generation into the other plane, which becomes the new grid.
+     * This grid stays readable until the new one is stepped.
+     * Each row slides a window of three words per row (west, center, east) along the
+     * rows above, itself and below, so every word is read once per row that needs it.
+     *
+     * @param rule {@code Rule}
+     * @return newGrid {@code OffHeapGrid}
+     */
+    public OffHeapGrid nextGeneration(Rule rule) {
+        ByteBuffer[] plane = this.plane();
+        OffHeapGrid next = new OffHeapGrid(this);
+        ByteBuffer[] nextPlane = this.planes[next.plane];
+
+        for (int y = 0; y < this.gridLengthY; y++) {
+            ByteBuffer nextSegment = nextPlane[y / this.rowsPerSegment];
+            long above = this.wordOrDead(plane, y - 1, 0);
+            long current = this.wordOrDead(plane, y, 0);
+            long below = this.wordOrDead(plane, y + 1, 0);
+            long aboveWest = 0L;
+            long currentWest = 0L;
+            long belowWest = 0L;
+
+            for (int w = 0; w < this.wordsPerRow; w++) {
+                long aboveEast = this.wordOrDead(plane, y - 1, w + 1);
+                long currentEast = this.wordOrDead(plane, y, w + 1);
+                long belowEast = this.wordOrDead(plane, y + 1, w + 1);
+
+                long word = BitKernel.next(
+                        rule,
+                        BitKernel.west(above, aboveWest), above, BitKernel.east(above, aboveEast),
+                        BitKernel.west(current, currentWest), current, BitKernel.east(current, currentEast),
+                        BitKernel.west(below, belowWest), below, BitKernel.east(below, belowEast));
+                if (w == this.wordsPerRow - 1) {
+                    word &= this.lastWordMask;
+                }
+                nextSegment.putLong(this.offset(y, w), word);
+
+                aboveWest = above;
+                above = aboveEast;
+                currentWest = current;
+                current = currentEast;
+                belowWest = below;
+                below = belowEast;
+            }
+        }
+
+        this.planeGenerations[next.plane] = next.generation;
+        return next;
+    }
+
+    /**
+     * The plane of this grid, if it still holds this generation.
+     */
+    private ByteBuffer[] plane() {
+        if (this.planeGenerations[this.plane] != this.generation) {
+            throw new IllegalStateException("Generation " + this.generation + " of an off-heap grid was overwritten");
+        }
+        return this.planes[this.plane];
+    }
+
+    private long word(ByteBuffer[] plane, int y, int w) {
+        return plane[y / this.rowsPerSegment].getLong(this.offset(y, w));
+    }
+
+    private long wordOrDead(ByteBuffer[] plane, int y, int w) {
+        if (y < 0 || y >= this.gridLengthY || w >= this.wordsPerRow) {
+            return 0L;
+        }
+        return this.word(plane, y, w);
+    }
+
+    /**
+     * @return byte offset of word {@code w} of row {@code y} in its segment {@code int}
+     */
+    private int offset(int y, int w) {
+        return ((y % this.rowsPerSegment) * this.wordsPerRow + w) << 3;
+    }
+
+    private ByteBuffer[] allocatePlane(FileChannel channel, int planeIndex) {
+        int segments = (this.gridLengthY + this.rowsPerSegment - 1) / this.rowsPerSegment;
+        long segmentBytes = (long) this.rowsPerSegment * this.wordsPerRow * Long.BYTES;
+        long planeBytes = (long) this.gridLengthY * this.wordsPerRow * Long.BYTES;
+        ByteBuffer[] plane = new ByteBuffer[segments];
+        for (int s = 0; s < segments; s++) {
+            long bytes = Math.min(segmentBytes, planeBytes - s * segmentBytes);
+            try {
+                plane[s] = channel == null
+                           ? ByteBuffer.allocateDirect((int) bytes)
+                           : channel.map(FileChannel.MapMode.READ_WRITE, planeIndex * planeBytes + s * segmentBytes, bytes);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            plane[s].order(ByteOrder.nativeOrder());
+        }
+        return plane;
+    }
+}
@@ -0,0 +1,214 @@
+package org.ruitx;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Multi-core stepping for the bit-packed grid.
+ * The grid is split in horizontal stripes of {@code stripeRows} rows and each stripe is
+ * computed on a {@code ForkJoinPool}. Stripes only read the previous generation (the rows
+ * at their borders are shared, read-only) and each one writes its own rows of a
+ * preallocated output grid, so there is no locking.
+ * Grids with fewer cells than {@code sequentialThreshold} are stepped on the calling
+ * thread, the fork/join overhead isn't worth it for them.
+ * Every {@code Conways} that isn't given a stepper shares {@code shared()}, so there is one
+ * pool for all of them; steppers made with the constructors own their pool and are shut down
+ * by whoever made them.
+ */
+public class ParallelStepper {
+
+    private static final int DEFAULT_STRIPE_ROWS = 64;
+    private static final int DEFAULT_SEQUENTIAL_THRESHOLD = 256 * 256;
+
+    private final ForkJoinPool pool;
+    private final int stripeRows;
+    private final int sequentialThreshold;
+    private final boolean isShared;
+
+    public ParallelStepper() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_STRIPE_ROWS, DEFAULT_SEQUENTIAL_THRESHOLD);
+    }
+
+    /**
+     * @param parallelism         number of worker threads {@code int}
+     * @param stripeRows          rows per stripe {@code int}
+     * @param sequentialThreshold grids with fewer cells are stepped sequentially {@code int}
+     */
+    public ParallelStepper(int parallelism, int stripeRows, int sequentialThreshold) {
+        this(parallelism, stripeRows, sequentialThreshold, false);
+    }
+
+    private ParallelStepper(int parallelism, int stripeRows, int sequentialThreshold, boolean isShared) {
+        if (parallelism < 1 || stripeRows < 1) {
+            throw new IllegalArgumentException("Parallelism and stripe rows must be at least 1");
+        }
+        this.pool = new ForkJoinPool(parallelism);
+        this.stripeRows = stripeRows;
+        this.sequentialThreshold = sequentialThreshold;
+        this.isShared = isShared;
+    }
+
+    /**
+     * @return the stepper on all cores shared by every {@code Conways}, never shut down {@code ParallelStepper}
+     */
+    public static ParallelStepper shared() {
+        return Shared.STEPPER;
+    }
+
+    public int parallelism() {
+        return this.pool.getParallelism();
+    }
+
+    /**
+     * Process's the next generation into a new grid.
+     *
+     * @param current {@code BitGrid}
+     * @return newGrid {@code BitGrid}
+     */
+    public BitGrid nextGeneration(BitGrid current) {
+        return this.nextGeneration(current, Rule.CONWAY);
+    }
+
+    /**
+     * Process's the next generation into a new grid, with any rule.
+     *
+     * @param current {@code BitGrid}
+     * @param rule    {@code Rule}
+     * @return newGrid {@code BitGrid}
+     */
+    public BitGrid nextGeneration(BitGrid current, Rule rule) {
+        BitGrid next = new BitGrid(current.lengthY(), current.lengthX());
+        this.nextGeneration(current, next, rule);
+        return next;
+    }
+
+    /**
+     * Process's the next generation of {@code current} into the preallocated {@code next}.
+     *
+     * @param current {@code BitGrid}
+     * @param next    {@code BitGrid}
+     */
+    public void nextGeneration(BitGrid current, BitGrid next) {
+        this.nextGeneration(current, next, Rule.CONWAY);
+    }
+
+    /**
+     * Process's the next generation of {@code current} into the preallocated {@code next}, with any rule.
+     *
+     * @param current {@code BitGrid}
+     * @param next    {@code BitGrid}
+     * @param rule    {@code Rule}
+     */
+    public void nextGeneration(BitGrid current, BitGrid next, Rule rule) {
+        if ((long) current.lengthY() * current.lengthX() < this.sequentialThreshold
+                || current.lengthY() <= this.stripeRows) {
+            current.nextRows(next, 0, current.lengthY(), rule);
+            return;
+        }
+        this.pool.invoke(new StripeTask(current, next, 0, current.lengthY(), rule));
+    }
+
+    /**
+     * Stops the pool, except for the shared stepper, which lives as long as the program
+     * (its pool threads are daemons).
+     */
+    public void shutdown() {
+        if (!this.isShared) {
+            this.pool.shutdown();
+        }
+    }
+
+    /**
+     * Measures stepping throughput on a random grid at 1, 2, 4, ... up to all available cores.
+     *
+     * @param lengthY     {@code int}
+     * @param lengthX     {@code int}
+     * @param generations generations timed per run {@code int}
+     * @return report, one line per parallelism {@code String}
+     */
+    public static String scalingReport(int lengthY, int lengthX, int generations) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        BitGrid seed = new BitGrid(lengthY, lengthX);
+        Random random = new Random(42);
+        for (int y = 0; y < lengthY; y++) {
+            for (int x = 0; x < lengthX; x++) {
+                seed.setCoordinatesValueTo(y, x, random.nextBoolean());
+            }
+        }
+
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("Grid %dx%d, %d generations, %d cores%n", lengthY, lengthX, generations, cores));
+        report.append(String.format("%8s %18s %8s%n", "threads", "cell-gens/s", "speedup"));
+
+        double baseline = 0;
+        for (int parallelism = 1; ; parallelism = Math.min(parallelism * 2, cores)) {
+            ParallelStepper stepper = new ParallelStepper(parallelism, DEFAULT_STRIPE_ROWS, 0);
+            // warm up, then time
+            runGenerations(stepper, seed, Math.max(generations / 10, 1));
+            long start = System.nanoTime();
+            runGenerations(stepper, seed, generations);
+            long elapsed = System.nanoTime() - start;
+            stepper.shutdown();
+
+            double throughput = (double) lengthY * lengthX * generations / (elapsed / 1e9);
+            if (parallelism == 1) {
+                baseline = throughput;
+            }
+            report.append(String.format("%8d %18.0f %7.2fx%n", parallelism, throughput, throughput / baseline));
+
+            if (parallelism == cores) {
+                break;
+            }
+        }
+        return report.toString();
+    }
+
+    private static void runGenerations(ParallelStepper stepper, BitGrid seed, int generations) {
+        // the seed is never written, the two buffers take turns
+        BitGrid[] buffers = {new BitGrid(seed.lengthY(), seed.lengthX()), new BitGrid(seed.lengthY(), seed.lengthX())};
+        BitGrid current = seed;
+        for (int i = 0; i < generations; i++) {
+            BitGrid next = buffers[i & 1];
+            stepper.nextGeneration(current, next);
+            current = next;
+        }
+    }
+
+    private static final class Shared {
+
+        private static final ParallelStepper STEPPER = new ParallelStepper(Runtime.getRuntime().availableProcessors(),
+                                                                           DEFAULT_STRIPE_ROWS,
+                                                                           DEFAULT_SEQUENTIAL_THRESHOLD, true);
+    }
+
+    private final class StripeTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final BitGrid current;
+        private final BitGrid next;
+        private final int fromY;
+        private final int toY;
+        private final Rule rule;
+
+        StripeTask(BitGrid current, BitGrid next, int fromY, int toY, Rule rule) {
+            this.current = current;
+            this.next = next;
+            this.fromY = fromY;
+            this.toY = toY;
+            this.rule = rule;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.toY - this.fromY <= stripeRows) {
+                this.current.nextRows(this.next, this.fromY, this.toY, this.rule);
+                return;
+            }
+            int middleY = this.fromY + (this.toY - this.fromY) / 2;
+            invokeAll(new StripeTask(this.current, this.next, this.fromY, middleY, this.rule),
+                      new StripeTask(this.current, this.next, middleY, this.toY, this.rule));
+        }
+    }
+}
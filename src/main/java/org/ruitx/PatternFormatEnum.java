@@ -0,0 +1,63 @@
+package org.ruitx;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+public enum PatternFormatEnum {
+    PLAINTEXT(1, "Plaintext, one line per row (.cells and the maps folder)"),
+    RLE(2, "Run length encoded (.rle)"),
+    LIFE_106(3, "Life 1.06, one live cell per line (.lif, .life)"),
+    MACROCELL(4, "Macrocell quadtree (.mc)");
+
+    private int id;
+    private String desc;
+
+    PatternFormatEnum(int id, String desc) {
+        this.id = id;
+        this.desc = desc;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getDesc() {
+        return desc;
+    }
+
+    /**
+     * Picks the format of a pattern file from its extension, or from its first line
+     * if the extension isn't a known one.
+     *
+     * @param path      {@code Path}
+     * @param firstLine start of the file {@code String}
+     * @return format {@code PatternFormatEnum}
+     */
+    public static PatternFormatEnum detect(Path path, String firstLine) {
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".rle")) {
+            return RLE;
+        }
+        if (name.endsWith(".mc")) {
+            return MACROCELL;
+        }
+        if (name.endsWith(".lif") || name.endsWith(".life")) {
+            return LIFE_106;
+        }
+        if (name.endsWith(".cells")) {
+            return PLAINTEXT;
+        }
+
+        if (firstLine.startsWith("[M2]")) {
+            return MACROCELL;
+        }
+        if (firstLine.startsWith("#Life 1.06")) {
+            return LIFE_106;
+        }
+        if (firstLine.startsWith("x ") || firstLine.startsWith("x=") || firstLine.startsWith("#N")
+                || firstLine.startsWith("#C") || firstLine.startsWith("#O")) {
+            return RLE;
+        }
+        return PLAINTEXT;
+    }
+}
@@ -0,0 +1,548 @@
+package org.ruitx;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Loads pattern files: plaintext ({@code .cells} and the maps folder), RLE, Life 1.06
+ * and Macrocell, see {@code PatternFormatEnum}.
+ * Files are streamed through a {@code FileChannel}, big ones memory mapped a window at a
+ * time, and decoded a byte at a time straight into the grid: no lines, no strings per
+ * cell. Only the pattern header is turned into a string.
+ * The grid is made once the size of the pattern is known, by {@code GridFactory}; live
+ * cells that fall outside a bounded grid smaller than the pattern are dropped and counted.
+ */
+public class PatternReader {
+
+    private static final long MAP_THRESHOLD_BYTES = 16L * 1024 * 1024;
+    private static final long MAP_WINDOW_BYTES = 256L * 1024 * 1024;
+    private static final int READ_BUFFER_BYTES = 64 * 1024;
+    private static final int MAX_HEADER_LENGTH = 4096;
+    private static final int MAX_MACROCELL_LEVEL = 62;
+
+    private final Path path;
+
+    private PatternFormatEnum format;
+    private String rule;
+    private long liveCells;
+    private long droppedCells;
+
+    public PatternReader(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Reads the pattern.
+     *
+     * @param gridFactory makes the grid once the size of the pattern is known {@code GridFactory}
+     * @return grid with the pattern, its top left corner at 0,0 {@code Grid}
+     * @throws IOException if the file can't be read or isn't a pattern in its format
+     */
+    public Grid read(GridFactory gridFactory) throws IOException {
+        try (ByteInput input = new ByteInput(this.path)) {
+            this.format = PatternFormatEnum.detect(this.path, input.firstLine());
+            switch (this.format) {
+                case RLE:
+                    return this.readRle(input, gridFactory);
+                case LIFE_106:
+                    return this.readLife106(input, gridFactory);
+                case MACROCELL:
+                    return this.readMacrocell(input, gridFactory);
+                default:
+                    return this.readPlaintext(input, gridFactory);
+            }
+        }
+    }
+
+    public PatternFormatEnum format() {
+        return this.format;
+    }
+
+    /**
+     * @return rule given in the file, null if it has none {@code String}
+     */
+    public String rule() {
+        return this.rule;
+    }
+
+    public long liveCells() {
+        return this.liveCells;
+    }
+
+    /**
+     * @return live cells outside the grid, not loaded {@code long}
+     */
+    public long droppedCells() {
+        return this.droppedCells;
+    }
+
+    /**
+     * Lines starting with {@code !} are comments, {@code O} or {@code *} is a live cell and
+     * anything else a dead one. The first pass measures the pattern, the second fills it in.
+     */
+    private Grid readPlaintext(ByteInput input, GridFactory gridFactory) throws IOException {
+        int lengthY = 0;
+        int lengthX = 0;
+        for (int b = input.read(); b != -1; b = input.read()) {
+            if (b == '!') {
+                input.skipLine();
+                continue;
+            }
+            int width = 0;
+            for (; b != '\n' && b != -1; b = input.read()) {
+                if (b != '\r') {
+                    width++;
+                }
+            }
+            lengthX = Math.max(lengthX, width);
+            lengthY++;
+        }
+
+        Grid grid = gridFactory.newGrid(Math.max(lengthY, 1), Math.max(lengthX, 1));
+        input.rewind();
+        int y = 0;
+        int x = 0;
+        for (int b = input.read(); b != -1; b = input.read()) {
+            if (x == 0 && b == '!') {
+                input.skipLine();
+            } else if (b == '\n') {
+                y++;
+                x = 0;
+            } else if (b != '\r') {
+                if (b == 'O' || b == '*') {
+                    this.setAlive(grid, y, x);
+                }
+                x++;
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * {@code #} lines are comments, then a {@code x = width, y = height, rule = B3/S23} header
+     * and the runs: a count (1 if missing) and {@code b} for dead cells, {@code o} (or any
+     * other state letter) for live ones, {@code $} for the end of a row, {@code !} for the end.
+     */
+    private Grid readRle(ByteInput input, GridFactory gridFactory) throws IOException {
+        int b = input.read();
+        while (b == '#') {
+            input.skipLine();
+            b = input.read();
+        }
+        String header = (char) b + input.readLine();
+        int lengthX = -1;
+        int lengthY = -1;
+        for (String field : header.split(",")) {
+            String[] keyValue = field.split("=", 2);
+            if (keyValue.length != 2) {
+                continue;
+            }
+            String key = keyValue[0].trim();
+            String value = keyValue[1].trim();
+            try {
+                if (key.equals("x")) {
+                    lengthX = Integer.parseInt(value);
+                } else if (key.equals("y")) {
+                    lengthY = Integer.parseInt(value);
+                } else if (key.equals("rule")) {
+                    this.rule = value;
+                }
+            } catch (NumberFormatException e) {
+                throw new IOException("Bad RLE header: " + header);
+            }
+        }
+        if (lengthX < 0 || lengthY < 0) {
+            throw new IOException("RLE header has no size: " + header);
+        }
+
+        Grid grid = gridFactory.newGrid(Math.max(lengthY, 1), Math.max(lengthX, 1));
+        int y = 0;
+        int x = 0;
+        int count = 0;
+        for (b = input.read(); b != -1 && b != '!'; b = input.read()) {
+            if (b >= '0' && b <= '9') {
+                count = count * 10 + (b - '0');
+                continue;
+            }
+            int run = Math.max(count, 1);
+            if (b == 'b' || b == '.') {
+                x += run;
+            } else if (b == '$') {
+                y += run;
+                x = 0;
+            } else if (b == 'o' || (b >= 'A' && b <= 'X')) {
+                for (int i = 0; i < run; i++) {
+                    this.setAlive(grid, y, x++);
+                }
+            } else if (b >= 'p' && b <= 'y') {
+                // prefix of a multi-state letter, the letter after it says alive or dead
+                continue;
+            } else if (b > ' ') {
+                throw new IOException("Bad RLE character '" + (char) b + "' at row " + y);
+            }
+            count = 0;
+        }
+        return grid;
+    }
+
+    /**
+     * {@code #} lines are comments, every other line is the {@code x y} of a live cell.
+     * Cells can be anywhere, negative too, so they're collected first and moved so the
+     * top left one ends at 0,0.
+     */
+    private Grid readLife106(ByteInput input, GridFactory gridFactory) throws IOException {
+        long[] cells = new long[1024];
+        int count = 0;
+        int minY = Integer.MAX_VALUE;
+        int minX = Integer.MAX_VALUE;
+        int maxY = Integer.MIN_VALUE;
+        int maxX = Integer.MIN_VALUE;
+
+        for (int b = input.skipSpaces(); b != -1; b = input.skipSpaces()) {
+            if (b == '#' || b == '\n' || b == '\r') {
+                input.skipLine();
+                continue;
+            }
+            int x = input.readInt();
+            input.skipSpaces();
+            int y = input.readInt();
+            input.skipLine();
+
+            if (count == cells.length) {
+                cells = Arrays.copyOf(cells, count << 1);
+            }
+            cells[count++] = SparseGrid.key(y, x);
+            minY = Math.min(minY, y);
+            minX = Math.min(minX, x);
+            maxY = Math.max(maxY, y);
+            maxX = Math.max(maxX, x);
+        }
+
+        if (count == 0) {
+            return gridFactory.newGrid(1, 1);
+        }
+        Grid grid = gridFactory.newGrid(checkedLength((long) maxY - minY + 1), checkedLength((long) maxX - minX + 1));
+        for (int i = 0; i < count; i++) {
+            this.setAlive(grid, SparseGrid.keyY(cells[i]) - minY, SparseGrid.keyX(cells[i]) - minX);
+        }
+        return grid;
+    }
+
+    /**
+     * A {@code [M2]} line, {@code #} comment lines ({@code #R} has the rule), then one node per
+     * line, numbered from 1. A node is either an 8x8 leaf, rows of {@code .} and {@code *}
+     * ended by {@code $}, or {@code level nw ne sw se} with the numbers of its four children
+     * (0 for empty). The last node is the root.
+     * The tree is expanded straight into the grid, skipping empty nodes, so the cost follows
+     * the live cells and not the area.
+     */
+    private Grid readMacrocell(ByteInput input, GridFactory gridFactory) throws IOException {
+        MacrocellTree tree = new MacrocellTree();
+        input.skipLine();
+        for (int b = input.read(); b != -1; b = input.read()) {
+            if (b == '#') {
+                String comment = input.readLine();
+                if (comment.startsWith("R")) {
+                    this.rule = comment.substring(1).trim();
+                }
+            } else if (b == '.' || b == '*' || b == '$') {
+                tree.addLeaf(input, b);
+            } else if (b >= '0' && b <= '9') {
+                input.unread();
+                tree.addNode(input.readInt(), input.readInt(), input.readInt(), input.readInt(), input.readInt());
+                input.skipLine();
+            } else if (b > ' ') {
+                throw new IOException("Bad Macrocell line starting with '" + (char) b + "'");
+            }
+        }
+
+        int root = tree.size;
+        if (root == 0 || tree.population[root] == 0) {
+            return gridFactory.newGrid(1, 1);
+        }
+        Grid grid = gridFactory.newGrid(checkedLength(tree.maxY[root] - tree.minY[root] + 1),
+                                        checkedLength(tree.maxX[root] - tree.minX[root] + 1));
+        this.expand(grid, tree, root, -tree.minY[root], -tree.minX[root]);
+        return grid;
+    }
+
+    private void expand(Grid grid, MacrocellTree tree, int node, long originY, long originX) {
+        if (node == 0 || tree.population[node] == 0) {
+            return;
+        }
+        // nothing of it on a bounded grid
+        if (grid.isBounded() && (originY + tree.minY[node] >= grid.lengthY() || originY + tree.maxY[node] < 0
+                                 || originX + tree.minX[node] >= grid.lengthX() || originX + tree.maxX[node] < 0)) {
+            this.droppedCells += tree.population[node];
+            return;
+        }
+        if (tree.level[node] == 3) {
+            long leaf = tree.leaf[node];
+            for (; leaf != 0; leaf &= leaf - 1) {
+                int bit = Long.numberOfTrailingZeros(leaf);
+                this.setAlive(grid, (int) (originY + (bit >>> 3)), (int) (originX + (bit & 7)));
+            }
+            return;
+        }
+        long half = 1L << (tree.level[node] - 1);
+        int children = node << 2;
+        this.expand(grid, tree, tree.children[children], originY, originX);
+        this.expand(grid, tree, tree.children[children + 1], originY, originX + half);
+        this.expand(grid, tree, tree.children[children + 2], originY + half, originX);
+        this.expand(grid, tree, tree.children[children + 3], originY + half, originX + half);
+    }
+
+    private void setAlive(Grid grid, int y, int x) {
+        if (grid.isBounded() && (y >= grid.lengthY() || x >= grid.lengthX())) {
+            this.droppedCells++;
+            return;
+        }
+        grid.setCoordinatesValueTo(y, x, true);
+        this.liveCells++;
+    }
+
+    private static int checkedLength(long length) throws IOException {
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Pattern is too large: " + length + " cells across");
+        }
+        return (int) length;
+    }
+
+    /**
+     * Makes the grid a pattern is loaded into.
+     */
+    public interface GridFactory {
+        Grid newGrid(int lengthY, int lengthX);
+    }
+
+    /**
+     * Nodes of a Macrocell file, in parallel arrays indexed by node number, each with the
+     * live cell bounds inside it so the root bounds are known before expanding.
+     */
+    private static final class MacrocellTree {
+
+        private int size;
+        private int[] level = new int[1024];
+        private int[] children = new int[1024 << 2];
+        private long[] leaf = new long[1024];
+        private long[] population = new long[1024];
+        private long[] minY = new long[1024];
+        private long[] minX = new long[1024];
+        private long[] maxY = new long[1024];
+        private long[] maxX = new long[1024];
+
+        void addLeaf(ByteInput input, int b) throws IOException {
+            long bits = 0;
+            int row = 0;
+            int column = 0;
+            for (; b != '\n' && b != -1; b = input.read()) {
+                if (b == '$') {
+                    row++;
+                    column = 0;
+                } else if (b == '*' || b == '.') {
+                    if (row > 7 || column > 7) {
+                        throw new IOException("Macrocell leaf larger than 8x8 at node " + (this.size + 1));
+                    }
+                    if (b == '*') {
+                        bits |= 1L << (row << 3 | column);
+                    }
+                    column++;
+                }
+            }
+
+            int node = this.newNode(3);
+            this.leaf[node] = bits;
+            this.population[node] = Long.bitCount(bits);
+            for (long live = bits; live != 0; live &= live - 1) {
+                int bit = Long.numberOfTrailingZeros(live);
+                this.include(node, bit >>> 3, bit & 7, bit >>> 3, bit & 7);
+            }
+        }
+
+        void addNode(int nodeLevel, int nw, int ne, int sw, int se) throws IOException {
+            if (nodeLevel < 4 || nodeLevel > MAX_MACROCELL_LEVEL) {
+                throw new IOException("Unsupported Macrocell node level " + nodeLevel + " at node " + (this.size + 1));
+            }
+            int node = this.newNode(nodeLevel);
+            long half = 1L << (nodeLevel - 1);
+            int[] quadrants = {nw, ne, sw, se};
+            for (int q = 0; q < 4; q++) {
+                int child = quadrants[q];
+                if (child < 0 || child >= node || child != 0 && this.level[child] != nodeLevel - 1) {
+                    throw new IOException("Bad child " + child + " of Macrocell node " + node);
+                }
+                this.children[(node << 2) + q] = child;
+                if (child == 0 || this.population[child] == 0) {
+                    continue;
+                }
+                long offsetY = q >= 2 ? half : 0;
+                long offsetX = (q & 1) != 0 ? half : 0;
+                this.population[node] += this.population[child];
+                this.include(node, offsetY + this.minY[child], offsetX + this.minX[child],
+                             offsetY + this.maxY[child], offsetX + this.maxX[child]);
+            }
+        }
+
+        private int newNode(int nodeLevel) {
+            int node = ++this.size;
+            if (node == this.level.length) {
+                int length = node << 1;
+                this.level = Arrays.copyOf(this.level, length);
+                this.children = Arrays.copyOf(this.children, length << 2);
+                this.leaf = Arrays.copyOf(this.leaf, length);
+                this.population = Arrays.copyOf(this.population, length);
+                this.minY = Arrays.copyOf(this.minY, length);
+                this.minX = Arrays.copyOf(this.minX, length);
+                this.maxY = Arrays.copyOf(this.maxY, length);
+                this.maxX = Arrays.copyOf(this.maxX, length);
+            }
+            this.level[node] = nodeLevel;
+            this.minY[node] = Long.MAX_VALUE;
+            this.minX[node] = Long.MAX_VALUE;
+            this.maxY[node] = Long.MIN_VALUE;
+            this.maxX[node] = Long.MIN_VALUE;
+            return node;
+        }
+
+        private void include(int node, long fromY, long fromX, long toY, long toX) {
+            this.minY[node] = Math.min(this.minY[node], fromY);
+            this.minX[node] = Math.min(this.minX[node], fromX);
+            this.maxY[node] = Math.max(this.maxY[node], toY);
+            this.maxX[node] = Math.max(this.maxX[node], toX);
+        }
+    }
+
+    /**
+     * Bytes of a file, read through a small buffer, or memory mapped a window at a time
+     * for files of {@code MAP_THRESHOLD_BYTES} and up.
+     */
+    private static final class ByteInput implements AutoCloseable {
+
+        private final FileChannel channel;
+        private final long size;
+        private final boolean isMapped;
+        private ByteBuffer buffer;
+        private long bufferStart;
+
+        ByteInput(Path path) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+            this.size = this.channel.size();
+            this.isMapped = this.size >= MAP_THRESHOLD_BYTES;
+            if (!this.isMapped) {
+                this.buffer = ByteBuffer.allocate(READ_BUFFER_BYTES);
+            }
+            this.rewind();
+        }
+
+        /**
+         * @return first line of the file, without moving the input {@code String}
+         */
+        String firstLine() throws IOException {
+            String line = this.readLine();
+            this.rewind();
+            return line;
+        }
+
+        void rewind() throws IOException {
+            this.bufferStart = 0;
+            this.fill(0);
+        }
+
+        int read() throws IOException {
+            if (!this.buffer.hasRemaining()) {
+                long position = this.bufferStart + this.buffer.limit();
+                if (position >= this.size || !this.fill(position)) {
+                    return -1;
+                }
+            }
+            return this.buffer.get() & 0xff;
+        }
+
+        /**
+         * Goes back one byte, only valid right after {@code read()} returned one.
+         */
+        void unread() {
+            this.buffer.position(this.buffer.position() - 1);
+        }
+
+        void skipLine() throws IOException {
+            for (int b = this.read(); b != '\n' && b != -1; b = this.read()) {
+                // skip
+            }
+        }
+
+        /**
+         * @return rest of the line, without the line break {@code String}
+         */
+        String readLine() throws IOException {
+            StringBuilder line = new StringBuilder();
+            for (int b = this.read(); b != '\n' && b != -1; b = this.read()) {
+                if (b != '\r' && line.length() < MAX_HEADER_LENGTH) {
+                    line.append((char) b);
+                }
+            }
+            return line.toString();
+        }
+
+        /**
+         * Skips spaces and tabs.
+         *
+         * @return next byte, left unread, or -1 at the end {@code int}
+         */
+        int skipSpaces() throws IOException {
+            int b = this.read();
+            while (b == ' ' || b == '\t') {
+                b = this.read();
+            }
+            if (b != -1) {
+                this.unread();
+            }
+            return b;
+        }
+
+        int readInt() throws IOException {
+            int b = this.skipSpaces();
+            this.read();
+            boolean isNegative = b == '-';
+            if (isNegative || b == '+') {
+                b = this.read();
+            }
+            if (b < '0' || b > '9') {
+                throw new IOException("Expected a number, found " + (b == -1 ? "end of file" : "'" + (char) b + "'"));
+            }
+            long value = 0;
+            for (; b >= '0' && b <= '9'; b = this.read()) {
+                value = value * 10 + (b - '0');
+                if (value > Integer.MAX_VALUE + 1L) {
+                    throw new IOException("Number out of range");
+                }
+            }
+            if (b != -1) {
+                this.unread();
+            }
+            return (int) (isNegative ? -value : value);
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.channel.close();
+        }
+
+        private boolean fill(long position) throws IOException {
+            this.bufferStart = position;
+            if (this.isMapped) {
+                this.buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, position,
+                                               Math.min(MAP_WINDOW_BYTES, this.size - position));
+                return this.buffer.hasRemaining();
+            }
+            this.buffer.clear();
+            int read = this.channel.read(this.buffer, position);
+            this.buffer.flip();
+            return read > 0;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package org.ruitx;
+
+/**
+ * A Life-like rule, in B/S notation: the neighbor counts that make a dead cell
+ * come alive (birth) and the ones that keep a live cell alive (survival).
+ * Conway's rule is {@code B3/S23}, some others are HighLife {@code B36/S23},
+ * Seeds {@code B2/S} and Day &amp; Night {@code B3678/S34678}. The old S/B notation
+ * ({@code 23/3}) is read too.
+ * A rule is compiled into lookup tables, so engines never count neighbors against it:
+ * <ul>
+ *     <li>by 3x3 neighborhood, 9 bits with bit {@code dy * 3 + dx} set when the cell at
+ *     {@code dy - 1}, {@code dx - 1} is alive (the cell itself is bit 4)</li>
+ *     <li>by 4x4 block, 16 bits with bit {@code y * 4 + x}, giving the center 2x2 at once:
+ *     bit 0 is 1,1, bit 1 is 1,2, bit 2 is 2,1 and bit 3 is 2,2</li>
+ *     <li>by cell state and neighbor count, for engines that count anyway</li>
+ * </ul>
+ * Rules with B0 aren't supported: the empty plane around every world would come
+ * alive, which none of the engines (bounded edges, sparse plane, HashLife) can hold.
+ */
+public final class Rule {
+
+    public static final Rule CONWAY = parse("B3/S23");
+
+    private final int birthMask;
+    private final int survivalMask;
+    private final String notation;
+    private final byte[] birthCounts;
+    private final byte[] survivalCounts;
+    private final byte[] neighborhoods;
+    private final byte[] blocks;
+
+    private Rule(int birthMask, int survivalMask) {
+        this.birthMask = birthMask;
+        this.survivalMask = survivalMask;
+        this.notation = "B" + counts(birthMask) + "/S" + counts(survivalMask);
+        this.birthCounts = countArray(birthMask);
+        this.survivalCounts = countArray(survivalMask);
+
+        this.neighborhoods = new byte[1 << 9];
+        for (int neighborhood = 0; neighborhood < this.neighborhoods.length; neighborhood++) {
+            boolean isAlive = (neighborhood & 1 << 4) != 0;
+            int neighbors = Integer.bitCount(neighborhood & ~(1 << 4));
+            this.neighborhoods[neighborhood] = (byte) (this.nextState(isAlive, neighbors) ? 1 : 0);
+        }
+
+        this.blocks = new byte[1 << 16];
+        for (int block = 0; block < this.blocks.length; block++) {
+            this.blocks[block] = (byte) (this.neighborhoods[neighborhoodInBlock(block, 1, 1)]
+                                         | this.neighborhoods[neighborhoodInBlock(block, 1, 2)] << 1
+                                         | this.neighborhoods[neighborhoodInBlock(block, 2, 1)] << 2
+                                         | this.neighborhoods[neighborhoodInBlock(block, 2, 2)] << 3);
+        }
+    }
+
+    /**
+     * Reads a rule in B/S notation ({@code B36/S23}, any case, either part first) or
+     * S/B notation ({@code 23/36}).
+     *
+     * @param notation {@code String}
+     * @return rule {@code Rule}
+     * @throws IllegalArgumentException if it isn't a rule, or it has B0
+     */
+    public static Rule parse(String notation) {
+        String[] parts = notation.trim().toUpperCase().split("/", -1);
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Not a B/S rule: " + notation);
+        }
+
+        int birthMask;
+        int survivalMask;
+        if (parts[0].startsWith("B") && parts[1].startsWith("S")) {
+            birthMask = countMask(parts[0].substring(1), notation);
+            survivalMask = countMask(parts[1].substring(1), notation);
+        } else if (parts[0].startsWith("S") && parts[1].startsWith("B")) {
+            survivalMask = countMask(parts[0].substring(1), notation);
+            birthMask = countMask(parts[1].substring(1), notation);
+        } else {
+            survivalMask = countMask(parts[0], notation);
+            birthMask = countMask(parts[1], notation);
+        }
+
+        if ((birthMask & 1) != 0) {
+            throw new IllegalArgumentException("B0 rules aren't supported: " + notation);
+        }
+        return new Rule(birthMask, survivalMask);
+    }
+
+    /**
+     * @return true if this is Conway's B3/S23 {@code boolean}
+     */
+    public boolean isConway() {
+        return this.birthMask == CONWAY.birthMask && this.survivalMask == CONWAY.survivalMask;
+    }
+
+    /**
+     * @param isAlive   {@code boolean}
+     * @param neighbors live neighbors, 0 to 8 {@code int}
+     * @return isAlive on the next generation {@code boolean}
+     */
+    public boolean nextState(boolean isAlive, int neighbors) {
+        return ((isAlive ? this.survivalMask : this.birthMask) >>> neighbors & 1) != 0;
+    }
+
+    /**
+     * @param neighborhood 3x3 cells around and including the cell {@code int}
+     * @return isAlive on the next generation {@code boolean}
+     */
+    public boolean nextState(int neighborhood) {
+        return this.neighborhoods[neighborhood] != 0;
+    }
+
+    /**
+     * @param block 4x4 cells {@code int}
+     * @return center 2x2 cells on the next generation {@code int}
+     */
+    public int nextBlock(int block) {
+        return this.blocks[block];
+    }
+
+    /**
+     * @return bit {@code n} set if a dead cell with {@code n} neighbors is born {@code int}
+     */
+    int birthMask() {
+        return this.birthMask;
+    }
+
+    /**
+     * @return bit {@code n} set if a live cell with {@code n} neighbors survives {@code int}
+     */
+    int survivalMask() {
+        return this.survivalMask;
+    }
+
+    /**
+     * @return the neighbor counts a dead cell is born with, not to be changed {@code byte[]}
+     */
+    byte[] birthCounts() {
+        return this.birthCounts;
+    }
+
+    /**
+     * @return the neighbor counts a live cell survives with, not to be changed {@code byte[]}
+     */
+    byte[] survivalCounts() {
+        return this.survivalCounts;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Rule rule && rule.birthMask == this.birthMask && rule.survivalMask == this.survivalMask;
+    }
+
+    @Override
+    public int hashCode() {
+        return this.birthMask << 9 | this.survivalMask;
+    }
+
+    /**
+     * @return the rule in B/S notation {@code String}
+     */
+    @Override
+    public String toString() {
+        return this.notation;
+    }
+
+    private static int countMask(String counts, String notation) {
+        int mask = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            int count = counts.charAt(i) - '0';
+            if (count < 0 || count > 8) {
+                throw new IllegalArgumentException("Not a B/S rule: " + notation);
+            }
+            mask |= 1 << count;
+        }
+        return mask;
+    }
+
+    private static String counts(int mask) {
+        StringBuilder counts = new StringBuilder();
+        for (int count = 0; count <= 8; count++) {
+            if ((mask >>> count & 1) != 0) {
+                counts.append(count);
+            }
+        }
+        return counts.toString();
+    }
+
+    private static byte[] countArray(int mask) {
+        byte[] counts = new byte[Integer.bitCount(mask)];
+        for (int count = 0, i = 0; count <= 8; count++) {
+            if ((mask >>> count & 1) != 0) {
+                counts[i++] = (byte) count;
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * The 3x3 neighborhood of cell {@code cellY}, {@code cellX} of a 4x4 block.
+     */
+    private static int neighborhoodInBlock(int block, int cellY, int cellX) {
+        int neighborhood = 0;
+        for (int dy = 0; dy < 3; dy++) {
+            neighborhood |= (block >>> ((cellY - 1 + dy) * 4 + cellX - 1) & 0b111) << dy * 3;
+        }
+        return neighborhood;
+    }
+}
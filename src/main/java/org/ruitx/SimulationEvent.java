@@ -0,0 +1,37 @@
+package org.ruitx;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for a whole simulation run, the event duration is the run.
+ * Recorded when running with {@code -XX:StartFlightRecording}, see {@code SimulationProbe}.
+ */
+@Name("org.ruitx.Simulation")
+@Label("Simulation")
+@Category("Jonways")
+@Description("A world simulated until it repeats, reaches the max generations or is stopped")
+@StackTrace(false)
+public class SimulationEvent extends jdk.jfr.Event {
+
+    @Label("Backend")
+    String backend;
+
+    @Label("Rule")
+    String rule;
+
+    @Label("Generations")
+    long generations;
+
+    @Label("Stop Reason")
+    String stopReason;
+
+    @Label("Period")
+    int period;
+
+    @Label("Final Live Cells")
+    long liveCells;
+}
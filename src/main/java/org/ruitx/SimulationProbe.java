@@ -0,0 +1,142 @@
+package org.ruitx;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures one simulation run: a Flight Recorder event per generation and per run
+ * ({@code GenerationEvent}, {@code SimulationEvent}) and, when {@code Metrics} is enabled,
+ * counters and step latency/allocation histograms.
+ * With no recording running and metrics off, each step is one unused event object that
+ * the JIT removes and a check of a volatile flag. The loop around a step is
+ * <pre>
+ *     GenerationEvent event = probe.beginStep();
+ *     Grid next = step(grid);
+ *     probe.endStep(event);
+ *     cycleDetector.update(grid, next);
+ *     probe.recordGeneration(event, generation, cycleDetector);
+ * </pre>
+ * A probe is used by a single simulation thread.
+ */
+public class SimulationProbe {
+
+    private final String backend;
+    private final String rule;
+    private final SimulationEvent simulationEvent;
+    private final boolean isMetricsEnabled;
+    private final long startNanos;
+    private long stepStartNanos;
+    private long stepStartBytes;
+
+    /**
+     * Starts measuring a run.
+     *
+     * @param backend grid the run steps {@code String}
+     * @param rule    {@code Rule}
+     */
+    public SimulationProbe(String backend, Rule rule) {
+        this.backend = backend;
+        this.rule = rule.toString();
+        this.isMetricsEnabled = Metrics.isEnabled();
+        this.startNanos = this.isMetricsEnabled ? System.nanoTime() : 0;
+        this.simulationEvent = new SimulationEvent();
+        this.simulationEvent.begin();
+    }
+
+    /**
+     * @return event to pass to {@code endStep} and {@code recordGeneration} {@code GenerationEvent}
+     */
+    public GenerationEvent beginStep() {
+        GenerationEvent event = new GenerationEvent();
+        event.begin();
+        if (this.isMetricsEnabled) {
+            this.stepStartBytes = allocatedBytes();
+            this.stepStartNanos = System.nanoTime();
+        }
+        return event;
+    }
+
+    /**
+     * @param event from {@code beginStep} {@code GenerationEvent}
+     */
+    public void endStep(GenerationEvent event) {
+        event.end();
+        if (this.isMetricsEnabled) {
+            Metrics.histogram(Metrics.STEP_NANOS).record(System.nanoTime() - this.stepStartNanos);
+            if (AllocationCounter.THREADS != null) {
+                Metrics.histogram(Metrics.STEP_ALLOCATED_BYTES).record(allocatedBytes() - this.stepStartBytes);
+            }
+        }
+    }
+
+    /**
+     * Records the generation just stepped, once {@code cycleDetector} is updated with it.
+     *
+     * @param event         from {@code beginStep} {@code GenerationEvent}
+     * @param generation    {@code long}
+     * @param cycleDetector {@code CycleDetector}
+     */
+    public void recordGeneration(GenerationEvent event, long generation, CycleDetector cycleDetector) {
+        if (event.shouldCommit()) {
+            event.generation = generation;
+            event.backend = this.backend;
+            event.liveCells = cycleDetector.population();
+            event.births = cycleDetector.births();
+            event.deaths = cycleDetector.deaths();
+            event.changedCells = event.births + event.deaths;
+            event.commit();
+        }
+        if (this.isMetricsEnabled) {
+            Metrics.counter(Metrics.GENERATIONS).increment();
+            Metrics.counter(Metrics.BIRTHS).add(cycleDetector.births());
+            Metrics.counter(Metrics.DEATHS).add(cycleDetector.deaths());
+        }
+    }
+
+    /**
+     * Ends the run.
+     *
+     * @param stopReason    why it stopped, like {@code "max generations"} {@code String}
+     * @param cycleDetector {@code CycleDetector}
+     * @param generations   generations stepped {@code long}
+     */
+    public void finish(String stopReason, CycleDetector cycleDetector, long generations) {
+        this.simulationEvent.end();
+        if (this.simulationEvent.shouldCommit()) {
+            this.simulationEvent.backend = this.backend;
+            this.simulationEvent.rule = this.rule;
+            this.simulationEvent.generations = generations;
+            this.simulationEvent.stopReason = stopReason;
+            this.simulationEvent.period = cycleDetector.period();
+            this.simulationEvent.liveCells = cycleDetector.population();
+            this.simulationEvent.commit();
+        }
+        if (this.isMetricsEnabled) {
+            Metrics.counter(Metrics.SIMULATIONS).increment();
+            Metrics.counter(Metrics.STOPS + (cycleDetector.isCycleFound() ? "cycle" : stopReason.replace(' ', '_')))
+                   .increment();
+            Metrics.histogram(Metrics.SIMULATION_NANOS).record(System.nanoTime() - this.startNanos);
+        }
+    }
+
+    private static long allocatedBytes() {
+        return AllocationCounter.THREADS == null ? 0 : AllocationCounter.THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    /**
+     * HotSpot's thread bean, which can tell the bytes a thread allocated.
+     * In its own class so the management beans are only loaded once metrics are on.
+     */
+    private static final class AllocationCounter {
+
+        private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+        private static com.sun.management.ThreadMXBean threads() {
+            if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemorySupported()) {
+                threads.setThreadAllocatedMemoryEnabled(true);
+                return threads;
+            }
+            return null;
+        }
+    }
+}
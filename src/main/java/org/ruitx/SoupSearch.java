@@ -0,0 +1,335 @@
+package org.ruitx;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Searches random worlds (soups) that settle, on all cores.
+ * Every worker has its own {@code SplittableRandom}, split from the search seed, and draws
+ * one seed per soup; the soup is filled from that seed alone, so any result can be
+ * rebuilt with {@code fillSoup(grid, seed, density)}. Soups are simulated 64 at a time,
+ * bit-sliced on a {@code BitSlicedBatch} (one at a time on the sparse grid for unbounded
+ * worlds, and on the halo grid for wrapping edges), until {@code CycleDetector} finds a
+ * repeat or {@code maxGenerations} is reached.
+ * Settled soups go to a result queue (up to {@code RESULT_CAPACITY} not taken yet,
+ * later ones are only counted). The search ends after {@code maxSoups}, or
+ * earlier with {@code stop()}, and keeps the soups per second and how many
+ * generations each soup took to settle. The ash of every settled soup goes to an
+ * {@code AshCensus} shared by the workers, reported with the rest.
+ */
+public class SoupSearch {
+
+    private static final int HISTOGRAM_BUCKETS = 10;
+    private static final int RESULT_CAPACITY = 1024;
+    private static final int REPORTED_OBJECTS = 20;
+
+    private final int lengthY;
+    private final int lengthX;
+    private final double density;
+    private final int maxGenerations;
+    private final int threads;
+    private final boolean isBounded;
+    private final BoundaryModeEnum boundaryMode;
+    private final Rule rule;
+    private final long seed;
+
+    private final BlockingQueue<Result> results;
+    private final AtomicBoolean stopped;
+    private final AtomicLong claimedSoups;
+    private final LongAdder triedSoups;
+    private final AtomicLongArray settledAt;
+    private final AshCensus census;
+
+    private ExecutorService executor;
+    private long startNanos;
+    private long endNanos;
+
+    /**
+     * @param lengthY        {@code int}
+     * @param lengthX        {@code int}
+     * @param density        chance of a cell starting alive, 0 to 1 {@code double}
+     * @param maxGenerations soups still changing after this are not settled {@code int}
+     * @param threads        {@code int}
+     * @param isBounded      false to simulate soups on the unbounded plane {@code boolean}
+     * @param boundaryMode   edges of bounded soups {@code BoundaryModeEnum}
+     * @param rule           {@code Rule}
+     * @param seed           seed of the whole search {@code long}
+     */
+    public SoupSearch(int lengthY, int lengthX, double density, int maxGenerations,
+                      int threads, boolean isBounded, BoundaryModeEnum boundaryMode, Rule rule, long seed) {
+        if (density < 0 || density > 1) {
+            throw new IllegalArgumentException("Density must be between 0 and 1: " + density);
+        }
+        if (!isBounded && boundaryMode != BoundaryModeEnum.DEAD) {
+            throw new IllegalArgumentException("The unbounded plane has no edges to wrap: " + boundaryMode);
+        }
+        this.lengthY = lengthY;
+        this.lengthX = lengthX;
+        this.density = density;
+        this.maxGenerations = maxGenerations;
+        this.threads = threads;
+        this.isBounded = isBounded;
+        this.boundaryMode = boundaryMode;
+        this.rule = rule;
+        this.seed = seed;
+        this.results = new LinkedBlockingQueue<>(RESULT_CAPACITY);
+        this.stopped = new AtomicBoolean();
+        this.claimedSoups = new AtomicLong();
+        this.triedSoups = new LongAdder();
+        this.settledAt = new AtomicLongArray(maxGenerations);
+        this.census = new AshCensus(rule);
+    }
+
+    /**
+     * Fills a soup, every cell alive with chance {@code density}.
+     * The same seed and density always give the same soup.
+     *
+     * @param grid    {@code Grid}
+     * @param seed    {@code long}
+     * @param density {@code double}
+     */
+    public static void fillSoup(Grid grid, long seed, double density) {
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int y = 0; y < grid.lengthY(); y++) {
+            for (int x = 0; x < grid.lengthX(); x++) {
+                grid.setCoordinatesValueTo(y, x, random.nextDouble() < density);
+            }
+        }
+    }
+
+    /**
+     * Starts the workers.
+     *
+     * @param maxSoups soups to try, negative to go on until {@code stop()} {@code long}
+     */
+    public void start(long maxSoups) {
+        this.startNanos = System.nanoTime();
+        this.executor = Executors.newFixedThreadPool(this.threads, runnable -> {
+            Thread thread = new Thread(runnable, "soup-search");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        SplittableRandom searchRandom = new SplittableRandom(this.seed);
+        for (int i = 0; i < this.threads; i++) {
+            SplittableRandom workerRandom = searchRandom.split();
+            this.executor.execute(() -> this.searchSoups(workerRandom, maxSoups));
+        }
+        this.executor.shutdown();
+    }
+
+    /**
+     * Waits for a settled soup.
+     *
+     * @return the next result, or null if the search ended without more {@code Result}
+     */
+    public Result takeResult() throws InterruptedException {
+        while (true) {
+            Result result = this.results.poll(50, TimeUnit.MILLISECONDS);
+            if (result != null || this.executor.isTerminated() && this.results.isEmpty()) {
+                return result;
+            }
+        }
+    }
+
+    /**
+     * Stops the workers once the soups they're on have ended.
+     */
+    public void stop() {
+        this.stopped.set(true);
+    }
+
+    public void awaitCompletion() throws InterruptedException {
+        this.executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        if (this.endNanos == 0) {
+            this.endNanos = System.nanoTime();
+        }
+    }
+
+    public long triedSoups() {
+        return this.triedSoups.sum();
+    }
+
+    /**
+     * @return objects in the ash of the settled soups so far {@code AshCensus}
+     */
+    public AshCensus census() {
+        return this.census;
+    }
+
+    public double soupsPerSecond() {
+        long end = this.endNanos != 0 ? this.endNanos : System.nanoTime();
+        return this.triedSoups() / ((end - this.startNanos) / 1e9);
+    }
+
+    /**
+     * @return soups per second, the generations-to-settle distribution and the most common objects {@code String}
+     */
+    public String report() {
+        long settled = 0;
+        for (int i = 0; i < this.settledAt.length(); i++) {
+            settled += this.settledAt.get(i);
+        }
+
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%d soups (%dx%d, density %.2f) on %d threads, %.0f soups/s%n",
+                                    this.triedSoups(), this.lengthY, this.lengthX, this.density,
+                                    this.threads, this.soupsPerSecond()));
+        report.append(String.format("%d settled within %d generations%n", settled, this.maxGenerations));
+
+        int bucketWidth = Math.max((this.maxGenerations + HISTOGRAM_BUCKETS - 1) / HISTOGRAM_BUCKETS, 1);
+        for (int from = 0; from < this.maxGenerations; from += bucketWidth) {
+            long count = 0;
+            for (int i = from; i < Math.min(from + bucketWidth, this.maxGenerations); i++) {
+                count += this.settledAt.get(i);
+            }
+            report.append(String.format("%5d-%-5d %8d%n", from, from + bucketWidth - 1, count));
+        }
+        report.append(this.census.report(REPORTED_OBJECTS));
+        return report.toString();
+    }
+
+    private void searchSoups(SplittableRandom workerRandom, long maxSoups) {
+        if (this.boundaryMode != BoundaryModeEnum.DEAD) {
+            this.searchWrappedSoups(workerRandom, maxSoups);
+            return;
+        }
+        if (this.isBounded) {
+            this.searchSoupBatches(workerRandom, maxSoups);
+            return;
+        }
+        while (this.claimSoup(maxSoups)) {
+            this.runSoup(workerRandom.nextLong());
+        }
+    }
+
+    /**
+     * Bounded soups are simulated 64 at a time on a {@code BitSlicedBatch}, each lane
+     * refilled with a new soup as soon as its soup ends. The seed is the lane's world id.
+     */
+    private void searchSoupBatches(SplittableRandom workerRandom, long maxSoups) {
+        BitSlicedBatch batch = new BitSlicedBatch(this.lengthY, this.lengthX, 1, this.rule, this.maxGenerations);
+        batch.setAshKept(true);
+        BitGrid soup = new BitGrid(this.lengthY, this.lengthX);
+        while (true) {
+            while (batch.hasFreeLane() && this.claimSoup(maxSoups)) {
+                long soupSeed = workerRandom.nextLong();
+                fillSoup(soup, soupSeed, this.density);
+                batch.load(soup, soupSeed);
+            }
+            if (batch.activeLaneCount() == 0) {
+                return;
+            }
+            batch.step(result -> this.record(new Result(result.id(), result.generations(), result.period(),
+                                                        result.describe()), result.ash()));
+        }
+    }
+
+    /**
+     * Soups with wrapping edges are simulated one at a time on a {@code HaloGrid}, stepping back
+     * and forth between two grids; a still life is confirmed by comparing them, like {@code Conways}.
+     */
+    private void searchWrappedSoups(SplittableRandom workerRandom, long maxSoups) {
+        HaloGrid grid = new HaloGrid(this.lengthY, this.lengthX, this.boundaryMode);
+        HaloGrid spareGrid = new HaloGrid(this.lengthY, this.lengthX, this.boundaryMode);
+        while (this.claimSoup(maxSoups)) {
+            long soupSeed = workerRandom.nextLong();
+            fillSoup(grid, soupSeed, this.density);
+            CycleDetector cycleDetector = new CycleDetector(grid);
+            Result result = null;
+            for (int i = 0; i < this.maxGenerations && result == null; i++) {
+                grid.nextGeneration(spareGrid, this.rule);
+                if (cycleDetector.update(grid, spareGrid)) {
+                    boolean isStillLife = cycleDetector.period() == 1
+                                          && cycleDetector.displacementY() == 0
+                                          && cycleDetector.displacementX() == 0;
+                    if (!isStillLife || grid.sameCells(spareGrid)) {
+                        result = new Result(soupSeed, i, cycleDetector.period(), cycleDetector.describe());
+                    }
+                }
+                HaloGrid swap = grid;
+                grid = spareGrid;
+                spareGrid = swap;
+            }
+            this.record(result != null ? result : new Result(soupSeed, this.maxGenerations, 0, "not settled"), grid);
+        }
+    }
+
+    private boolean claimSoup(long maxSoups) {
+        return !this.stopped.get() && (maxSoups < 0 || this.claimedSoups.getAndIncrement() < maxSoups);
+    }
+
+    /**
+     * @param ash last generation of the soup {@code Grid}
+     */
+    private void record(Result result, Grid ash) {
+        this.triedSoups.increment();
+        if (result.isSettled()) {
+            this.settledAt.incrementAndGet(result.generations());
+            this.census.add(ash, result.period());
+            this.results.offer(result);
+        }
+    }
+
+    private void runSoup(long soupSeed) {
+        Grid grid = new SparseGrid(this.lengthY, this.lengthX);
+        fillSoup(grid, soupSeed, this.density);
+
+        CycleDetector cycleDetector = new CycleDetector(grid);
+        for (int i = 0; i < this.maxGenerations; i++) {
+            Grid newGrid = ((SparseGrid) grid).nextGeneration(this.rule);
+            if (cycleDetector.update(grid, newGrid)) {
+                this.record(new Result(soupSeed, i, cycleDetector.period(), cycleDetector.describe()), newGrid);
+                return;
+            }
+            grid = newGrid;
+        }
+        this.record(new Result(soupSeed, this.maxGenerations, 0, "not settled"), grid);
+    }
+
+    /**
+     * A soup and how it ended.
+     */
+    public static final class Result {
+
+        private final long seed;
+        private final int generations;
+        private final int period;
+        private final String ending;
+
+        Result(long seed, int generations, int period, String ending) {
+            this.seed = seed;
+            this.generations = generations;
+            this.period = period;
+            this.ending = ending;
+        }
+
+        public long seed() {
+            return this.seed;
+        }
+
+        public int generations() {
+            return this.generations;
+        }
+
+        public int period() {
+            return this.period;
+        }
+
+        public boolean isSettled() {
+            return this.period > 0;
+        }
+
+        public String describe() {
+            return this.ending;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package org.ruitx;
+
+/**
+ * Sparse game grid on an unbounded plane.
+ * Only the live cells are stored, as packed {@code (y, x)} keys in a {@code LongHashSet},
+ * so memory and step cost follow the population instead of the area.
+ * The next generation only visits live cells and their neighbors.
+ * {@code lengthY()} and {@code lengthX()} are just the viewport used to render the
+ * world, starting at 0,0. Cells outside the viewport are still simulated, so gliders
+ * and guns can leave the screen instead of crashing into the edge.
+ */
+public class SparseGrid implements Grid {
+
+    private final int viewLengthY;
+    private final int viewLengthX;
+    private final LongHashSet liveCells;
+
+    public SparseGrid(int viewLengthY, int viewLengthX) {
+        this(viewLengthY, viewLengthX, new LongHashSet());
+    }
+
+    private SparseGrid(int viewLengthY, int viewLengthX, LongHashSet liveCells) {
+        this.viewLengthY = viewLengthY;
+        this.viewLengthX = viewLengthX;
+        this.liveCells = liveCells;
+    }
+
+    /**
+     * Packs a coordinate into a single {@code long}: y on the high half, x on the low half.
+     */
+    static long key(int y, int x) {
+        return ((long) y << 32) | (x & 0xffffffffL);
+    }
+
+    static int keyY(long key) {
+        return (int) (key >> 32);
+    }
+
+    static int keyX(long key) {
+        return (int) key;
+    }
+
+    @Override
+    public int lengthY() {
+        return this.viewLengthY;
+    }
+
+    @Override
+    public int lengthX() {
+        return this.viewLengthX;
+    }
+
+    @Override
+    public boolean isBounded() {
+        return false;
+    }
+
+    @Override
+    public boolean checkCoordinates(int y, int x) {
+        return this.liveCells.contains(key(y, x));
+    }
+
+    @Override
+    public void setCoordinatesValueTo(int y, int x, boolean value) {
+        if (value) {
+            this.liveCells.add(key(y, x));
+        } else {
+            this.liveCells.remove(key(y, x));
+        }
+    }
+
+    @Override
+    public void clear() {
+        this.liveCells.clear();
+    }
+
+    /**
+     * @return number of live cells on the whole plane {@code int}
+     */
+    public int population() {
+        return this.liveCells.size();
+    }
+
+    /**
+     * Compares the live cells of the whole plane, not only the viewport.
+     *
+     * @param other {@code SparseGrid}
+     * @return isEqual {@code boolean}
+     */
+    public boolean sameCells(SparseGrid other) {
+        if (this.liveCells.size() != other.liveCells.size()) {
+            return false;
+        }
+        boolean[] isEqual = {true};
+        this.liveCells.forEach(cell -> {
+            if (isEqual[0] && !other.liveCells.contains(cell)) {
+                isEqual[0] = false;
+            }
+        });
+        return isEqual[0];
+    }
+
+    @Override
+    public void forEachLiveCell(CellConsumer action) {
+        this.liveCells.forEach(cell -> action.accept(keyY(cell), keyX(cell), true));
+    }
+
+    /**
+     * Walks the two live cell sets, so the cost follows the population on the whole plane.
+     */
+    @Override
+    public void forEachDifference(Grid other, CellConsumer action) {
+        if (!(other instanceof SparseGrid otherSparseGrid)) {
+            Grid.super.forEachDifference(other, action);
+            return;
+        }
+        this.liveCells.forEach(cell -> {
+            if (!otherSparseGrid.liveCells.contains(cell)) {
+                action.accept(keyY(cell), keyX(cell), false);
+            }
+        });
+        otherSparseGrid.liveCells.forEach(cell -> {
+            if (!this.liveCells.contains(cell)) {
+                action.accept(keyY(cell), keyX(cell), true);
+            }
+        });
+    }
+
+    /**
+     * Process's the next generation.
+     * Each live cell adds one to the neighbor count of its 8 neighbors, so only
+     * cells next to a live cell ever get a count. Then the rules are applied on
+     * the counted cells: 3 neighbors is a birth (or survival), 2 neighbors keeps
+     * a live cell alive.
+     *
+     * @return newGrid {@code SparseGrid}
+     */
+    public SparseGrid nextGeneration() {
+        return this.nextGeneration(Rule.CONWAY);
+    }
+
+    /**
+     * Same as {@code nextGeneration()}, with any rule.
+     * A rule that keeps cells with no neighbors alive (S0) also has to look at the
+     * live cells that never got a count.
+     *
+     * @param rule {@code Rule}
+     * @return newGrid {@code SparseGrid}
+     */
+    public SparseGrid nextGeneration(Rule rule) {
+        LongIntHashMap neighborCounts = new LongIntHashMap(this.liveCells.size() * 8);
+        this.liveCells.forEach(cell -> {
+            int y = keyY(cell);
+            int x = keyX(cell);
+            neighborCounts.increment(key(y - 1, x - 1));
+            neighborCounts.increment(key(y - 1, x));
+            neighborCounts.increment(key(y - 1, x + 1));
+            neighborCounts.increment(key(y, x - 1));
+            neighborCounts.increment(key(y, x + 1));
+            neighborCounts.increment(key(y + 1, x - 1));
+            neighborCounts.increment(key(y + 1, x));
+            neighborCounts.increment(key(y + 1, x + 1));
+        });
+
+        LongHashSet nextCells = new LongHashSet(this.liveCells.size());
+        neighborCounts.forEach((cell, count) -> {
+            if (rule.nextState(this.liveCells.contains(cell), count)) {
+                nextCells.add(cell);
+            }
+        });
+        if (rule.nextState(true, 0)) {
+            this.liveCells.forEach(cell -> {
+                if (neighborCounts.get(cell, 0) == 0) {
+                    nextCells.add(cell);
+                }
+            });
+        }
+
+        return new SparseGrid(this.viewLengthY, this.viewLengthX, nextCells);
+    }
+}
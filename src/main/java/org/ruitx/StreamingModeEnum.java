@@ -0,0 +1,30 @@
+package org.ruitx;
+
+public enum StreamingModeEnum {
+    OFF(1, "Off, worlds are simulated up front"),
+    BOUNDED(2, "Simulate while rendering, up to the max generations"),
+    UNBOUNDED(3, "Simulate while rendering, until the world repeats");
+
+    private int id;
+    private String desc;
+
+    StreamingModeEnum(int id, String desc) {
+        this.id = id;
+        this.desc = desc;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getDesc() {
+        return desc;
+    }
+
+    /**
+     * @return the mode after this one, wrapping around at the end {@code StreamingModeEnum}
+     */
+    public StreamingModeEnum next() {
+        return values()[(this.ordinal() + 1) % values().length];
+    }
+}
@@ -0,0 +1,298 @@
+package org.ruitx;
+
+import java.util.Arrays;
+
+/**
+ * Bit-packed game grid split in {@code TILE_SIZE} x {@code TILE_SIZE} tiles that sleep.
+ * A tile is one {@code long} per row, same packing as {@code BitGrid}. Each generation
+ * keeps which tiles changed from the one before, and only tiles that changed, or have
+ * a neighbor tile that changed, are computed again (awake). The others can't change,
+ * so the next generation just points at the same tile (sleeping): settled parts of the
+ * world cost nothing to step, and nothing to copy.
+ * Tiles shared between generations are copied before they're written.
+ * Cells outside the grid are dead, same as the other grids.
+ */
+public class TiledGrid implements Grid {
+
+    public static final int TILE_SIZE = 64;
+    private static final int TILE_SHIFT = 6;
+    private static final long[] EMPTY_TILE = new long[TILE_SIZE];
+
+    private final int gridLengthY;
+    private final int gridLengthX;
+    private final int tilesY;
+    private final int tilesX;
+    private final long[][] tiles;
+    private final boolean[] isShared;
+    private final boolean[] hasChanged;
+
+    private int awakeTiles;
+    private long awakeTileSteps;
+    private long sleepingTileSteps;
+
+    public TiledGrid(int lengthY, int lengthX) {
+        this.gridLengthY = lengthY;
+        this.gridLengthX = lengthX;
+        this.tilesY = (lengthY + TILE_SIZE - 1) >>> TILE_SHIFT;
+        this.tilesX = (lengthX + TILE_SIZE - 1) >>> TILE_SHIFT;
+        this.tiles = new long[this.tilesY * this.tilesX][];
+        this.isShared = new boolean[this.tiles.length];
+        this.hasChanged = new boolean[this.tiles.length];
+        for (int t = 0; t < this.tiles.length; t++) {
+            this.tiles[t] = new long[TILE_SIZE];
+        }
+        // a new world has no previous generation, everything is awake
+        Arrays.fill(this.hasChanged, true);
+    }
+
+    /**
+     * Empty successor of {@code previous}, filled in by {@code nextGeneration}.
+     */
+    private TiledGrid(TiledGrid previous) {
+        this.gridLengthY = previous.gridLengthY;
+        this.gridLengthX = previous.gridLengthX;
+        this.tilesY = previous.tilesY;
+        this.tilesX = previous.tilesX;
+        this.tiles = new long[previous.tiles.length][];
+        this.isShared = new boolean[this.tiles.length];
+        this.hasChanged = new boolean[this.tiles.length];
+    }
+
+    @Override
+    public int lengthY() {
+        return this.gridLengthY;
+    }
+
+    @Override
+    public int lengthX() {
+        return this.gridLengthX;
+    }
+
+    @Override
+    public boolean checkCoordinates(int y, int x) {
+        return (this.tiles[this.tileOf(y, x)][y & (TILE_SIZE - 1)] & (1L << x)) != 0;
+    }
+
+    @Override
+    public void setCoordinatesValueTo(int y, int x, boolean value) {
+        int t = this.tileOf(y, x);
+        if (this.isShared[t]) {
+            this.tiles[t] = this.tiles[t].clone();
+            this.isShared[t] = false;
+        }
+        if (value) {
+            this.tiles[t][y & (TILE_SIZE - 1)] |= 1L << x;
+        } else {
+            this.tiles[t][y & (TILE_SIZE - 1)] &= ~(1L << x);
+        }
+        this.hasChanged[t] = true;
+    }
+
+    public int tileCount() {
+        return this.tiles.length;
+    }
+
+    /**
+     * @return tiles computed for this generation {@code int}
+     */
+    public int awakeTiles() {
+        return this.awakeTiles;
+    }
+
+    /**
+     * @return tiles carried over unchanged into this generation {@code int}
+     */
+    public int sleepingTiles() {
+        return this.tiles.length - this.awakeTiles;
+    }
+
+    /**
+     * @return awake tiles summed over every generation up to this one {@code long}
+     */
+    public long awakeTileSteps() {
+        return this.awakeTileSteps;
+    }
+
+    /**
+     * @return sleeping tiles summed over every generation up to this one {@code long}
+     */
+    public long sleepingTileSteps() {
+        return this.sleepingTileSteps;
+    }
+
+    /**
+     * Compares the cells of two tiled grids, tiles shared by both are skipped.
+     *
+     * @param other {@code TiledGrid}
+     * @return isEqual {@code boolean}
+     */
+    public boolean sameCells(TiledGrid other) {
+        if (this.gridLengthY != other.gridLengthY || this.gridLengthX != other.gridLengthX) {
+            return false;
+        }
+        for (int t = 0; t < this.tiles.length; t++) {
+            if (this.tiles[t] != other.tiles[t] && !Arrays.equals(this.tiles[t], other.tiles[t])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void forEachLiveCell(CellConsumer action) {
+        for (int t = 0; t < this.tiles.length; t++) {
+            int originY = (t / this.tilesX) << TILE_SHIFT;
+            int originX = (t % this.tilesX) << TILE_SHIFT;
+            long[] tile = this.tiles[t];
+            for (int row = 0; row < TILE_SIZE; row++) {
+                for (long word = tile[row]; word != 0; word &= word - 1) {
+                    action.accept(originY + row, originX + Long.numberOfTrailingZeros(word), true);
+                }
+            }
+        }
+    }
+
+    /**
+     * XORs the tiles a word at a time, tiles shared by both grids are skipped.
+     */
+    @Override
+    public void forEachDifference(Grid other, CellConsumer action) {
+        if (!(other instanceof TiledGrid otherTiledGrid)
+                || this.gridLengthY != other.lengthY() || this.gridLengthX != other.lengthX()) {
+            Grid.super.forEachDifference(other, action);
+            return;
+        }
+        for (int t = 0; t < this.tiles.length; t++) {
+            long[] tile = this.tiles[t];
+            long[] otherTile = otherTiledGrid.tiles[t];
+            if (tile == otherTile) {
+                continue;
+            }
+            int originY = (t / this.tilesX) << TILE_SHIFT;
+            int originX = (t % this.tilesX) << TILE_SHIFT;
+            for (int row = 0; row < TILE_SIZE; row++) {
+                long otherWord = otherTile[row];
+                for (long changed = tile[row] ^ otherWord; changed != 0; changed &= changed - 1) {
+                    int bit = Long.numberOfTrailingZeros(changed);
+                    action.accept(originY + row, originX + bit, (otherWord & (1L << bit)) != 0);
+                }
+            }
+        }
+    }
+
+    /**
+     * Process's the next generation into a new grid.
+     * Awake tiles are computed with {@code BitKernel}, taking the edge rows and bits
+     * from the eight tiles around them; if the result is the same as before the old
+     * tile is kept, so the tile goes to sleep. Sleeping tiles are shared with the new grid.
+     *
+     * @return newGrid {@code TiledGrid}
+     */
+    public TiledGrid nextGeneration() {
+        return this.nextGeneration(Rule.CONWAY);
+    }
+
+    /**
+     * Same as {@code nextGeneration()}, with any rule.
+     *
+     * @param rule {@code Rule}
+     * @return newGrid {@code TiledGrid}
+     */
+    public TiledGrid nextGeneration(Rule rule) {
+        TiledGrid next = new TiledGrid(this);
+        for (int ty = 0; ty < this.tilesY; ty++) {
+            for (int tx = 0; tx < this.tilesX; tx++) {
+                int t = ty * this.tilesX + tx;
+                long[] nextTile = this.isAwake(ty, tx) ? this.nextTile(ty, tx, rule) : null;
+                if (nextTile != null) {
+                    next.awakeTiles++;
+                }
+                if (nextTile == null || Arrays.equals(nextTile, this.tiles[t])) {
+                    next.tiles[t] = this.tiles[t];
+                    next.isShared[t] = true;
+                    this.isShared[t] = true;
+                } else {
+                    next.tiles[t] = nextTile;
+                    next.hasChanged[t] = true;
+                }
+            }
+        }
+        next.awakeTileSteps = this.awakeTileSteps + next.awakeTiles;
+        next.sleepingTileSteps = this.sleepingTileSteps + next.sleepingTiles();
+        return next;
+    }
+
+    /**
+     * A tile can only change if it, or one of the eight around it, changed last generation.
+     */
+    private boolean isAwake(int ty, int tx) {
+        for (int y = Math.max(ty - 1, 0); y <= Math.min(ty + 1, this.tilesY - 1); y++) {
+            for (int x = Math.max(tx - 1, 0); x <= Math.min(tx + 1, this.tilesX - 1); x++) {
+                if (this.hasChanged[y * this.tilesX + x]) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private long[] nextTile(int ty, int tx, Rule rule) {
+        long[] northWest = this.tileAt(ty - 1, tx - 1);
+        long[] north = this.tileAt(ty - 1, tx);
+        long[] northEast = this.tileAt(ty - 1, tx + 1);
+        long[] west = this.tileAt(ty, tx - 1);
+        long[] center = this.tileAt(ty, tx);
+        long[] east = this.tileAt(ty, tx + 1);
+        long[] southWest = this.tileAt(ty + 1, tx - 1);
+        long[] south = this.tileAt(ty + 1, tx);
+        long[] southEast = this.tileAt(ty + 1, tx + 1);
+
+        long[] out = new long[TILE_SIZE];
+        for (int row = 0; row < TILE_SIZE; row++) {
+            // the row above and below come from the tiles north and south at the edges
+            long aboveWest = row > 0 ? west[row - 1] : northWest[TILE_SIZE - 1];
+            long above = row > 0 ? center[row - 1] : north[TILE_SIZE - 1];
+            long aboveEast = row > 0 ? east[row - 1] : northEast[TILE_SIZE - 1];
+            long belowWest = row + 1 < TILE_SIZE ? west[row + 1] : southWest[0];
+            long below = row + 1 < TILE_SIZE ? center[row + 1] : south[0];
+            long belowEast = row + 1 < TILE_SIZE ? east[row + 1] : southEast[0];
+            long current = center[row];
+
+            out[row] = BitKernel.next(
+                    rule,
+                    BitKernel.west(above, aboveWest), above, BitKernel.east(above, aboveEast),
+                    BitKernel.west(current, west[row]), current, BitKernel.east(current, east[row]),
+                    BitKernel.west(below, belowWest), below, BitKernel.east(below, belowEast));
+        }
+        this.clipToGrid(ty, tx, out);
+        return out;
+    }
+
+    /**
+     * Clears the cells of an edge tile that fall outside the grid, so they stay dead.
+     */
+    private void clipToGrid(int ty, int tx, long[] tile) {
+        int columns = this.gridLengthX - (tx << TILE_SHIFT);
+        if (columns < TILE_SIZE) {
+            long mask = (1L << columns) - 1;
+            for (int row = 0; row < TILE_SIZE; row++) {
+                tile[row] &= mask;
+            }
+        }
+        int rows = this.gridLengthY - (ty << TILE_SHIFT);
+        if (rows < TILE_SIZE) {
+            Arrays.fill(tile, rows, TILE_SIZE, 0L);
+        }
+    }
+
+    private long[] tileAt(int ty, int tx) {
+        if (ty < 0 || ty >= this.tilesY || tx < 0 || tx >= this.tilesX) {
+            return EMPTY_TILE;
+        }
+        return this.tiles[ty * this.tilesX + tx];
+    }
+
+    private int tileOf(int y, int x) {
+        return (y >>> TILE_SHIFT) * this.tilesX + (x >>> TILE_SHIFT);
+    }
+}
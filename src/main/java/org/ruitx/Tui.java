@@ -6,6 +6,18 @@ import com.googlecode.lanterna.screen.Screen;
 import com.googlecode.lanterna.screen.ScreenWriter;
 import com.googlecode.lanterna.terminal.Terminal;
 
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Draws generations on the terminal.
+ * Keeps the cells it drew last, one bit per cell, and only puts the cells that flipped
+ * since then, a run of neighboring flipped cells in a row at a time. The bytes sent to
+ * the terminal are counted so they can be shown per frame.
+ */
 public final class Tui {
 
     private static final String ALIVE_STRING = "•";
@@ -16,13 +28,22 @@ public final class Tui {
     private static int height;
     private static Screen screen;
     private static ScreenWriter screenWriter;
+    private static CountingOutputStream output;
+    private static long[][] drawnRows;
+    private static long[][] frameRows;
+    private static StringBuilder run;
+    private static long lastFrameBytes;
 
 
     private Tui() {
     }
 
     public static void init(int width, int height) {
-        screen = TerminalFacade.createScreen();
+        output = new CountingOutputStream(System.out);
+        screen = TerminalFacade.createScreen(TerminalFacade.createTerminal(System.in, output, Charset.defaultCharset()));
+        drawnRows = new long[height][(width + 63) >>> 6];
+        frameRows = new long[height][(width + 63) >>> 6];
+        run = new StringBuilder(width);
 
         Tui.width = width;
         Tui.height = height;
@@ -40,16 +61,106 @@ public final class Tui {
         screen.stopScreen();
     }
 
-    static void drawGrid(Conways.GameGrid gameGrid) {
-        for (int y = 0; y < gameGrid.lengthY(); y++) {
-            for (int x = 0; x < gameGrid.lengthX(); x++) {
-                if (gameGrid.checkCoordinates(y, x)) {
-                    screen.putString(x, y, ALIVE_STRING, ALIVE_COLOR, null);
-                } else {
-                    screen.putString(x, y, DEAD_STRING, null, null);
+    /**
+     * Checks, without waiting, if 'q' or escape was pressed.
+     */
+    static boolean isQuitRequested() {
+        Key key = screen.readInput();
+        return key != null && (key.getKind() == Key.Kind.Escape || key.getCharacter() == 'q');
+    }
+
+    /**
+     * Draws a generation, only the cells that changed since the last one drawn.
+     *
+     * @param gameGrid {@code Grid}
+     */
+    static void drawGrid(Grid gameGrid) {
+        for (long[] row : frameRows) {
+            Arrays.fill(row, 0L);
+        }
+        gameGrid.forEachLiveCell((y, x, isAlive) -> {
+            if (y >= 0 && y < height && x >= 0 && x < width) {
+                frameRows[y][x >>> 6] |= 1L << x;
+            }
+        });
+
+        for (int y = 0; y < height; y++) {
+            int runStart = -1;
+            for (int w = 0; w < frameRows[y].length; w++) {
+                long flipped = frameRows[y][w] ^ drawnRows[y][w];
+                for (; flipped != 0; flipped &= flipped - 1) {
+                    int x = (w << 6) + Long.numberOfTrailingZeros(flipped);
+                    if (runStart >= 0 && x != runStart + run.length()) {
+                        putRun(runStart, y);
+                        runStart = -1;
+                    }
+                    if (runStart < 0) {
+                        runStart = x;
+                    }
+                    run.append((frameRows[y][w] & (1L << x)) != 0 ? ALIVE_STRING : DEAD_STRING);
                 }
             }
+            if (runStart >= 0) {
+                putRun(runStart, y);
+            }
         }
+
+        long[][] swap = drawnRows;
+        drawnRows = frameRows;
+        frameRows = swap;
+
+        long bytesBefore = output.count;
         screen.refresh();
+        lastFrameBytes = output.count - bytesBefore;
+    }
+
+    /**
+     * Shows a status line under the grid.
+     *
+     * @param status {@code String}
+     */
+    static void drawStatus(String status) {
+        StringBuilder line = new StringBuilder(status);
+        while (line.length() < width) {
+            line.append(' ');
+        }
+        screen.putString(0, height, line.toString(), null, null);
+    }
+
+    /**
+     * @return bytes sent to the terminal by the last {@code drawGrid} {@code long}
+     */
+    static long lastFrameBytes() {
+        return lastFrameBytes;
+    }
+
+    private static void putRun(int x, int y) {
+        // dead cells are blank, so a run with both takes the alive color as a whole
+        screen.putString(x, y, run.toString(), ALIVE_COLOR, null);
+        run.setLength(0);
+    }
+
+    /**
+     * Counts the bytes written through it.
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            this.out.write(b);
+            this.count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            this.out.write(b, off, len);
+            this.count += len;
+        }
     }
 }
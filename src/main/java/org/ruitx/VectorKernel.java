@@ -0,0 +1,83 @@
+package org.ruitx;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@code HaloGrid} stepping on SIMD lanes with the Vector API ({@code jdk.incubator.vector}).
+ * A vector holds one byte cell per lane, as many as the widest vector the CPU has
+ * (32 with AVX2, 64 with AVX-512). The neighbor count of a whole vector is the sum of
+ * eight loads of the row above, the row itself and the row below, shifted one cell
+ * west and east, which the halo makes safe. The rule is applied as lane masks: the
+ * count is compared with each count of the rule, births for dead lanes, survivals for live ones.
+ * The last cells of a row that don't fill a vector are stepped one at a time.
+ * Only loaded when the JVM runs with {@code --add-modules jdk.incubator.vector},
+ * see {@code HaloGrid.VECTOR_LANES}.
+ */
+final class VectorKernel {
+
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+
+    private VectorKernel() {
+    }
+
+    /**
+     * @return cells per vector on this CPU {@code int}
+     */
+    static int lanes() {
+        return SPECIES.length();
+    }
+
+    /**
+     * Steps the world of a halo grid into {@code nextCells}; the halo must be refreshed.
+     *
+     * @param cells     world and halo, {@code stride} bytes per row {@code byte[]}
+     * @param nextCells {@code byte[]}
+     * @param stride    {@code lengthX + 2} {@code int}
+     * @param lengthY   {@code int}
+     * @param lengthX   {@code int}
+     * @param rule      {@code Rule}
+     */
+    static void nextGeneration(byte[] cells, byte[] nextCells, int stride, int lengthY, int lengthX, Rule rule) {
+        int lanes = SPECIES.length();
+        byte[] birthCounts = rule.birthCounts();
+        byte[] survivalCounts = rule.survivalCounts();
+        ByteVector alive = ByteVector.broadcast(SPECIES, (byte) 1);
+
+        for (int row = stride; row <= lengthY * stride; row += stride) {
+            int i = row + 1;
+            for (; i + lanes <= row + lengthX + 1; i += lanes) {
+                ByteVector count = ByteVector.fromArray(SPECIES, cells, i - stride - 1)
+                                             .add(ByteVector.fromArray(SPECIES, cells, i - stride))
+                                             .add(ByteVector.fromArray(SPECIES, cells, i - stride + 1))
+                                             .add(ByteVector.fromArray(SPECIES, cells, i - 1))
+                                             .add(ByteVector.fromArray(SPECIES, cells, i + 1))
+                                             .add(ByteVector.fromArray(SPECIES, cells, i + stride - 1))
+                                             .add(ByteVector.fromArray(SPECIES, cells, i + stride))
+                                             .add(ByteVector.fromArray(SPECIES, cells, i + stride + 1));
+                VectorMask<Byte> isAlive = ByteVector.fromArray(SPECIES, cells, i).compare(VectorOperators.NE, 0);
+
+                VectorMask<Byte> isBorn = SPECIES.maskAll(false);
+                for (byte birthCount : birthCounts) {
+                    isBorn = isBorn.or(count.compare(VectorOperators.EQ, birthCount));
+                }
+                VectorMask<Byte> survives = SPECIES.maskAll(false);
+                for (byte survivalCount : survivalCounts) {
+                    survives = survives.or(count.compare(VectorOperators.EQ, survivalCount));
+                }
+
+                VectorMask<Byte> isNextAlive = isBorn.and(isAlive.not()).or(survives.and(isAlive));
+                ByteVector.zero(SPECIES).blend(alive, isNextAlive).intoArray(nextCells, i);
+            }
+
+            for (; i <= row + lengthX; i++) {
+                int count = cells[i - stride - 1] + cells[i - stride] + cells[i - stride + 1]
+                            + cells[i - 1] + cells[i + 1]
+                            + cells[i + stride - 1] + cells[i + stride] + cells[i + stride + 1];
+                nextCells[i] = (byte) (rule.nextState(cells[i] != 0, count) ? 1 : 0);
+            }
+        }
+    }
+}
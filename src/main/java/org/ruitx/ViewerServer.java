@@ -0,0 +1,184 @@
+package org.ruitx;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves the generations being rendered to any number of viewers over HTTP, on the JDK's
+ * {@code HttpServer}, from a {@code GenerationBroadcaster}:
+ * <ul>
+ * <li>{@code /events} Server-Sent Events, {@code keyframe} and {@code delta} events with the frame in base 64</li>
+ * <li>{@code /frames} the binary frames, each after its length ({@code int}), for non-browser clients</li>
+ * <li>{@code /stats} generation, population, frames and every viewer's queue as JSON</li>
+ * <li>{@code /} a page that draws the world from {@code /events}</li>
+ * </ul>
+ * Every streaming connection has a thread of its own that writes the shared frames from
+ * its viewer's queue, so a slow connection only ever holds up itself. When nothing happens
+ * for {@code HEARTBEAT_MILLIS} a comment line (or a frame of length 0) is sent, which finds
+ * closed connections.
+ */
+public class ViewerServer {
+
+    private static final long HEARTBEAT_MILLIS = 5_000;
+    private static final byte[] HEARTBEAT = ":\n\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] EMPTY_FRAME = new byte[Integer.BYTES];
+
+    private static final String PAGE = """
+            <!doctype html>
+            <html><head><meta charset="utf-8"><title>jonways</title></head>
+            <body style="background:#111;color:#aaa;font:12px monospace">
+            <div id="status">connecting</div><canvas id="world"></canvas>
+            <script>
+            const scale = 4, canvas = document.getElementById('world'), context = canvas.getContext('2d');
+            let lengthX = 0;
+            function frame(event) {
+              const bytes = Uint8Array.from(atob(event.data), c => c.charCodeAt(0));
+              const view = new DataView(bytes.buffer);
+              document.getElementById('status').textContent = 'generation ' + view.getBigInt64(1);
+              return view;
+            }
+            function cell(index, isAlive) {
+              context.fillStyle = isAlive ? '#eee' : '#111';
+              context.fillRect(index % lengthX * scale, Math.floor(index / lengthX) * scale, scale, scale);
+            }
+            let cells = new Uint8Array(0);
+            const events = new EventSource('/events');
+            events.addEventListener('keyframe', event => {
+              const view = frame(event), lengthY = view.getInt32(9);
+              lengthX = view.getInt32(13);
+              const rowBytes = (lengthX + 7) >> 3;
+              canvas.width = lengthX * scale;
+              canvas.height = lengthY * scale;
+              cells = new Uint8Array(lengthY * lengthX);
+              for (let y = 0; y < lengthY; y++) {
+                for (let x = 0; x < lengthX; x++) {
+                  cells[y * lengthX + x] = view.getUint8(17 + y * rowBytes + (x >> 3)) >> (x & 7) & 1;
+                  cell(y * lengthX + x, cells[y * lengthX + x]);
+                }
+              }
+            });
+            events.addEventListener('delta', event => {
+              const view = frame(event);
+              for (let i = 0, count = view.getInt32(17); i < count; i++) {
+                const index = view.getInt32(21 + i * 4);
+                cells[index] ^= 1;
+                cell(index, cells[index]);
+              }
+            });
+            </script></body></html>
+            """;
+
+    private final GenerationBroadcaster broadcaster;
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public ViewerServer(GenerationBroadcaster broadcaster) {
+        this.broadcaster = broadcaster;
+    }
+
+    public GenerationBroadcaster broadcaster() {
+        return this.broadcaster;
+    }
+
+    /**
+     * @param address where to listen, port 0 for any free one {@code InetSocketAddress}
+     * @return the address listened on {@code InetSocketAddress}
+     */
+    public InetSocketAddress start(InetSocketAddress address) throws IOException {
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "viewer-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server = HttpServer.create(address, 0);
+        this.server.setExecutor(this.executor);
+        this.server.createContext("/", this::handlePage);
+        this.server.createContext("/events", exchange -> this.handleStream(exchange, true));
+        this.server.createContext("/frames", exchange -> this.handleStream(exchange, false));
+        this.server.createContext("/stats", this::handleStats);
+        this.server.start();
+        return this.server.getAddress();
+    }
+
+    /**
+     * Ends every stream and stops the server, giving the streams a second to end cleanly.
+     */
+    public void stop() {
+        this.broadcaster.closeAll();
+        this.server.stop(1);
+        this.executor.shutdownNow();
+    }
+
+    private void handlePage(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestURI().getPath().equals("/")) {
+            this.respond(exchange, 404, "text/plain", "Not found\n");
+            return;
+        }
+        this.respond(exchange, 200, "text/html; charset=utf-8", PAGE);
+    }
+
+    private void handleStats(HttpExchange exchange) throws IOException {
+        this.respond(exchange, 200, "application/json", this.broadcaster.statsJson() + "\n");
+    }
+
+    private void respond(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Writes the viewer's frames until the connection or the server closes.
+     *
+     * @param isEvents Server-Sent Events, otherwise length prefixed binary frames {@code boolean}
+     */
+    private void handleStream(HttpExchange exchange, boolean isEvents) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", isEvents ? "text/event-stream" : "application/octet-stream");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0);
+
+        GenerationBroadcaster.Viewer viewer = this.broadcaster.subscribe();
+        byte[] length = new byte[Integer.BYTES];
+        try (OutputStream out = exchange.getResponseBody()) {
+            while (!viewer.isClosed()) {
+                GenerationBroadcaster.Frame frame = viewer.take(HEARTBEAT_MILLIS);
+                if (frame == null) {
+                    if (!viewer.isClosed()) {
+                        out.write(isEvents ? HEARTBEAT : EMPTY_FRAME);
+                        out.flush();
+                    }
+                    continue;
+                }
+                if (isEvents) {
+                    out.write(frame.event());
+                    viewer.sent(frame.event().length);
+                } else {
+                    ByteBuffer.wrap(length).putInt(frame.bytes().length);
+                    out.write(length);
+                    out.write(frame.bytes());
+                    viewer.sent(length.length + frame.bytes().length);
+                }
+                out.flush();
+            }
+        } catch (IOException e) {
+            // the viewer went away
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            this.broadcaster.unsubscribe(viewer);
+            exchange.close();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package org.ruitx;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Every bounded backend against a plain {@code boolean[][]} B3/S23 step with dead edges,
+ * generation for generation. Each soup is stepped into new grids ({@code nextGeneration(grid)})
+ * and back and forth between two grids ({@code nextGeneration(grid, spareGrid)}), and the
+ * sizes are random so rows end anywhere in a word or tile.
+ */
+class BackendEquivalenceTest {
+
+    private static final int SOUPS = 20;
+    private static final int GENERATIONS = 300;
+    private static final double DENSITY = 0.35;
+
+    @Test
+    void everyBoundedBackendStepsLikeTheReference() {
+        GridBackendEnum[] backends = Arrays.stream(GridBackendEnum.values())
+                                           .filter(GridBackendEnum::isBounded)
+                                           .toArray(GridBackendEnum[]::new);
+        Random random = new Random(1);
+        for (int soup = 0; soup < SOUPS; soup++) {
+            int lengthY = 1 + random.nextInt(70);
+            int lengthX = 1 + random.nextInt(140);
+            long seed = random.nextLong();
+            for (GridBackendEnum backend : backends) {
+                this.checkSoup(backend, lengthY, lengthX, seed);
+            }
+        }
+    }
+
+    private void checkSoup(GridBackendEnum backend, int lengthY, int lengthX, long seed) {
+        Conways game = new Conways();
+        Grid grid = backend.newGrid(lengthY, lengthX);
+        SoupSearch.fillSoup(grid, seed, DENSITY);
+        Grid pingGrid = backend.newGrid(lengthY, lengthX);
+        SoupSearch.fillSoup(pingGrid, seed, DENSITY);
+        Grid spareGrid = game.newSpareGrid(pingGrid);
+
+        boolean[][] reference = new boolean[lengthY][lengthX];
+        for (int y = 0; y < lengthY; y++) {
+            for (int x = 0; x < lengthX; x++) {
+                reference[y][x] = grid.checkCoordinates(y, x);
+            }
+        }
+
+        String soup = backend + " " + lengthY + "x" + lengthX + " soup " + seed;
+        for (int generation = 1; generation <= GENERATIONS; generation++) {
+            reference = referenceStep(reference);
+            grid = game.nextGeneration(grid);
+            assertSameCells(reference, grid, soup + ", new grids, generation " + generation);
+
+            Grid nextGrid = game.nextGeneration(pingGrid, spareGrid);
+            if (spareGrid != null) {
+                spareGrid = pingGrid;
+            }
+            pingGrid = nextGrid;
+            assertSameCells(reference, pingGrid, soup + ", spare grid, generation " + generation);
+        }
+    }
+
+    /**
+     * B3/S23, cells outside the grid are dead.
+     */
+    private static boolean[][] referenceStep(boolean[][] cells) {
+        int lengthY = cells.length;
+        int lengthX = cells[0].length;
+        boolean[][] next = new boolean[lengthY][lengthX];
+        for (int y = 0; y < lengthY; y++) {
+            for (int x = 0; x < lengthX; x++) {
+                int neighbors = 0;
+                for (int dy = -1; dy <= 1; dy++) {
+                    for (int dx = -1; dx <= 1; dx++) {
+                        int ny = y + dy;
+                        int nx = x + dx;
+                        if ((dy != 0 || dx != 0) && ny >= 0 && ny < lengthY && nx >= 0 && nx < lengthX
+                            && cells[ny][nx]) {
+                            neighbors++;
+                        }
+                    }
+                }
+                next[y][x] = neighbors == 3 || (neighbors == 2 && cells[y][x]);
+            }
+        }
+        return next;
+    }
+
+    private static void assertSameCells(boolean[][] expected, Grid grid, String where) {
+        for (int y = 0; y < expected.length; y++) {
+            for (int x = 0; x < expected[y].length; x++) {
+                if (expected[y][x] != grid.checkCoordinates(y, x)) {
+                    assertEquals(expected[y][x], grid.checkCoordinates(y, x), where + ", cell " + y + "," + x);
+                }
+            }
+        }
+    }
+}
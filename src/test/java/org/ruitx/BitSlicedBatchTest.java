@@ -0,0 +1,57 @@
+package org.ruitx;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Worlds run in the lanes of a {@code BitSlicedBatch} end the same as each one simulated on
+ * its own with {@code Conways}: same generation, period and population.
+ * There are more soups than lanes, so lanes are freed and refilled all through the run.
+ */
+class BitSlicedBatchTest {
+
+    private static final int SOUPS = 300;
+    private static final int LENGTH_Y = 16;
+    private static final int LENGTH_X = 20;
+    private static final double DENSITY = 0.35;
+
+    @Test
+    void lanesEndLikeSingleWorlds() {
+        List<Grid> soups = new ArrayList<>();
+        for (int i = 0; i < SOUPS; i++) {
+            soups.add(soup(i));
+        }
+        BitSlicedBatch batch = new BitSlicedBatch(LENGTH_Y, LENGTH_X, 2, Rule.CONWAY, Conways.MAX_SIMULATIONS);
+        Map<Long, BitSlicedBatch.Result> results = new HashMap<>();
+        batch.run(soups.iterator(), result -> results.put(result.id(), result));
+        assertEquals(SOUPS, results.size());
+        assertEquals(0, batch.activeLaneCount());
+
+        Conways game = new Conways();
+        game.setGridBackend(GridBackendEnum.BITPACKED);
+        for (int i = 0; i < SOUPS; i++) {
+            BitSlicedBatch.Result result = results.get((long) i);
+            assertNotNull(result, "soup " + i);
+            int generations = game.simulate(soup(i));
+            String soup = "soup " + i + " (" + result.describe() + ")";
+            assertEquals(generations, result.generations(), soup + ", generations");
+            if (generations < Conways.MAX_SIMULATIONS) {
+                assertEquals(game.cycleDetector().period(), result.period(), soup + ", period");
+            }
+            assertEquals(game.cycleDetector().population(), result.population(), soup + ", population");
+        }
+    }
+
+    private static Grid soup(long seed) {
+        Grid grid = new BitGrid(LENGTH_Y, LENGTH_X);
+        SoupSearch.fillSoup(grid, seed, DENSITY);
+        return grid;
+    }
+}
@@ -0,0 +1,37 @@
+package org.ruitx;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Jumping a sparse world with {@code HashLife} gives the world stepping it would, including
+ * the cells outside its viewport.
+ */
+class HashLifeTest {
+
+    @Test
+    void jumpKeepsCellsOutsideTheViewport() {
+        SparseGrid world = new SparseGrid(20, 20);
+        SoupSearch.fillSoup(world, 42, 0.4);
+        // a glider above and left of the viewport, flying away from it
+        int[][] glider = {{0, 1}, {1, 0}, {2, 0}, {2, 1}, {2, 2}};
+        for (int[] cell : glider) {
+            world.setCoordinatesValueTo(-50 + cell[0], -50 + cell[1], true);
+        }
+
+        HashLife hashLife = new HashLife();
+        hashLife.loadGrid(world);
+        hashLife.advance(200);
+        SparseGrid jumped = new SparseGrid(20, 20);
+        hashLife.copyInto(jumped, 0, 0);
+
+        SparseGrid stepped = world;
+        for (int i = 0; i < 200; i++) {
+            stepped = stepped.nextGeneration();
+        }
+        assertEquals(stepped.population(), hashLife.population());
+        assertTrue(stepped.sameCells(jumped));
+    }
+}